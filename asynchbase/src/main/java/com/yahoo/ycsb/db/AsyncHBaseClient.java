@@ -24,6 +24,8 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.hbase.async.Bytes;
 import org.hbase.async.Config;
@@ -34,6 +36,10 @@ import org.hbase.async.KeyValue;
 import org.hbase.async.PutRequest;
 import org.hbase.async.Scanner;
 
+import com.stumbleupon.async.Callback;
+import com.stumbleupon.async.Deferred;
+
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DBException;
@@ -45,8 +51,10 @@ import com.yahoo.ycsb.Status;
  * This client provides a subset of the main HBase client and uses a completely
  * asynchronous pipeline for all calls. It is particularly useful for write heavy
  * workloads. It is also compatible with all production versions of HBase. 
+ * With "-p maxinflight=N" the YCSB operations use this pipeline as well
+ * instead of joining on every call.
  */
-public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
+public class AsyncHBaseClient extends AsyncDB {
   public static final Charset UTF8_CHARSET = Charset.forName("UTF8");
   private static final String CLIENT_SIDE_BUFFERING_PROPERTY = "clientbuffering";
   private static final String DURABILITY_PROPERTY = "durability";
@@ -194,41 +202,11 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
   @Override
   public Status read(String table, String key, Set<String> fields,
       HashMap<String, ByteIterator> result) {
-    setTable(table);
-    
-    final GetRequest get = new GetRequest(
-        lastTableBytes, key.getBytes(), columnFamilyBytes);
-    if (fields != null) {
-      get.qualifiers(getQualifierList(fields));
-    }
+    final GetRequest get = getRequest(table, key, fields);
     
     try {
-      if (debug) {
-        System.out.println("Doing read from HBase columnfamily " + 
-            Bytes.pretty(columnFamilyBytes));
-        System.out.println("Doing read for key: " + key);
-      }
-      
       final ArrayList<KeyValue> row = client.get(get).join(joinTimeout);
-      if (row == null || row.isEmpty()) {
-        return Status.NOT_FOUND;
-      }
-      
-      // got something so populate the results
-      for (final KeyValue column : row) {
-        result.put(new String(column.qualifier()), 
-            // TODO - do we need to clone this array? YCSB may keep it in memory
-            // for a while which would mean the entire KV would hang out and won't
-            // be GC'd.
-            new ByteArrayByteIterator(column.value()));
-        
-        if (debug) {
-          System.out.println(
-              "Result for field: " + Bytes.pretty(column.qualifier())
-                  + " is: " + Bytes.pretty(column.value()));
-        }
-      }
-      return Status.OK;
+      return readRow(row, result);
     } catch (InterruptedException e) {
       System.err.println("Thread interrupted");
       Thread.currentThread().interrupt();
@@ -241,17 +219,61 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
   }
 
   @Override
-  public Status scan(String table, String startkey, int recordcount,
-      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+  public CompletableFuture<Status> readAsync(String table, String key,
+      Set<String> fields, final HashMap<String, ByteIterator> result) {
+    return toFuture(client.get(getRequest(table, key, fields)),
+        new Function<ArrayList<KeyValue>, Status>() {
+          @Override
+          public Status apply(ArrayList<KeyValue> row) {
+            return readRow(row, result);
+          }
+        }, "Failure reading from row with key " + key);
+  }
+
+  private GetRequest getRequest(String table, String key, Set<String> fields) {
     setTable(table);
     
-    final Scanner scanner = client.newScanner(lastTableBytes);
-    scanner.setFamily(columnFamilyBytes);
-    scanner.setStartKey(startkey.getBytes(UTF8_CHARSET));
-    // No end key... *sniff*
+    final GetRequest get = new GetRequest(
+        lastTableBytes, key.getBytes(), columnFamilyBytes);
     if (fields != null) {
-      scanner.setQualifiers(getQualifierList(fields));
+      get.qualifiers(getQualifierList(fields));
+    }
+    
+    if (debug) {
+      System.out.println("Doing read from HBase columnfamily " + 
+          Bytes.pretty(columnFamilyBytes));
+      System.out.println("Doing read for key: " + key);
+    }
+    return get;
+  }
+
+  private Status readRow(final ArrayList<KeyValue> row,
+      final HashMap<String, ByteIterator> result) {
+    if (row == null || row.isEmpty()) {
+      return Status.NOT_FOUND;
+    }
+    
+    // got something so populate the results
+    for (final KeyValue column : row) {
+      result.put(new String(column.qualifier()), 
+          // TODO - do we need to clone this array? YCSB may keep it in memory
+          // for a while which would mean the entire KV would hang out and won't
+          // be GC'd.
+          new ByteArrayByteIterator(column.value()));
+      
+      if (debug) {
+        System.out.println(
+            "Result for field: " + Bytes.pretty(column.qualifier())
+                + " is: " + Bytes.pretty(column.value()));
+      }
     }
+    return Status.OK;
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    final Scanner scanner = newScanner(table, startkey, fields);
     
     // no filters? *sniff*
     ArrayList<ArrayList<KeyValue>> rows = null;
@@ -259,20 +281,7 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
       int numResults = 0;
       while ((rows = scanner.nextRows().join(joinTimeout)) != null) {
         for (final ArrayList<KeyValue> row : rows) {
-          final HashMap<String, ByteIterator> rowResult =
-              new HashMap<String, ByteIterator>(row.size());
-          for (final KeyValue column : row) {
-            rowResult.put(new String(column.qualifier()), 
-                // TODO - do we need to clone this array? YCSB may keep it in memory
-                // for a while which would mean the entire KV would hang out and won't
-                // be GC'd.
-                new ByteArrayByteIterator(column.value()));
-            if (debug) {
-              System.out.println("Got scan result for key: " + 
-                  Bytes.pretty(column.key()));
-            }
-          }
-          result.add(rowResult);
+          result.add(scanRow(row));
           numResults++;
 
           if (numResults >= recordcount) {// if hit recordcount, bail out
@@ -294,9 +303,127 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
     return Status.ERROR;
   }
 
+  @Override
+  public CompletableFuture<Status> scanAsync(String table, String startkey,
+      int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    nextRows(newScanner(table, startkey, fields), recordcount, result,
+        "Failure reading from row with key " + startkey, future);
+    return future;
+  }
+
+  /**
+   * Fetches the next batch of rows of an asynchronous scan, and from its
+   * callback the batch after that until enough rows were read.
+   */
+  private void nextRows(final Scanner scanner, final int recordcount,
+      final Vector<HashMap<String, ByteIterator>> result,
+      final String errorMessage, final CompletableFuture<Status> future) {
+    scanner.nextRows().addCallbacks(
+        new Callback<Object, ArrayList<ArrayList<KeyValue>>>() {
+          @Override
+          public Object call(ArrayList<ArrayList<KeyValue>> rows) {
+            if (rows != null) {
+              for (final ArrayList<KeyValue> row : rows) {
+                if (result.size() >= recordcount) {
+                  break;
+                }
+                result.add(scanRow(row));
+              }
+              if (result.size() < recordcount) {
+                nextRows(scanner, recordcount, result, errorMessage, future);
+                return null;
+              }
+            }
+            scanner.close();
+            future.complete(Status.OK);
+            return null;
+          }
+        },
+        new Callback<Object, Exception>() {
+          @Override
+          public Object call(Exception e) {
+            System.err.println(errorMessage + ": " + e.getMessage());
+            scanner.close();
+            future.complete(Status.ERROR);
+            return null;
+          }
+        });
+  }
+
+  private Scanner newScanner(String table, String startkey,
+      Set<String> fields) {
+    setTable(table);
+    
+    final Scanner scanner = client.newScanner(lastTableBytes);
+    scanner.setFamily(columnFamilyBytes);
+    scanner.setStartKey(startkey.getBytes(UTF8_CHARSET));
+    // No end key... *sniff*
+    if (fields != null) {
+      scanner.setQualifiers(getQualifierList(fields));
+    }
+    return scanner;
+  }
+
+  private HashMap<String, ByteIterator> scanRow(final ArrayList<KeyValue> row) {
+    final HashMap<String, ByteIterator> rowResult =
+        new HashMap<String, ByteIterator>(row.size());
+    for (final KeyValue column : row) {
+      rowResult.put(new String(column.qualifier()), 
+          // TODO - do we need to clone this array? YCSB may keep it in memory
+          // for a while which would mean the entire KV would hang out and won't
+          // be GC'd.
+          new ByteArrayByteIterator(column.value()));
+      if (debug) {
+        System.out.println("Got scan result for key: " + 
+            Bytes.pretty(column.key()));
+      }
+    }
+    return rowResult;
+  }
+
   @Override
   public Status update(String table, String key,
       HashMap<String, ByteIterator> values) {
+    final PutRequest put = putRequest(table, key, values);
+    if (!clientSideBuffering) {
+      put.setBufferable(false);
+      try {
+        client.put(put).join(joinTimeout);
+      } catch (InterruptedException e) {
+        System.err.println("Thread interrupted");
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        System.err.println("Failure reading from row with key " + key + 
+            ": " + e.getMessage());
+        return Status.ERROR;
+      }
+    } else {
+      // hooray! Asynchronous write. But without a callback and an async
+      // YCSB call we don't know whether it succeeded or not
+      client.put(put);
+    }
+    
+    return Status.OK;
+  }
+
+  @Override
+  public CompletableFuture<Status> updateAsync(String table, String key,
+      HashMap<String, ByteIterator> values) {
+    final PutRequest put = putRequest(table, key, values);
+    if (clientSideBuffering) {
+      // buffered writes complete when the buffer is flushed, don't wait
+      client.put(put);
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+    put.setBufferable(false);
+    return toFuture(client.put(put), null,
+        "Failure writing to row with key " + key);
+  }
+
+  private PutRequest putRequest(String table, String key,
+      HashMap<String, ByteIterator> values) {
     setTable(table);
     
     if (debug) {
@@ -321,10 +448,28 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
     if (!durability) {
       put.setDurable(false);
     }
+    return put;
+  }
+
+  @Override
+  public Status insert(String table, String key,
+      HashMap<String, ByteIterator> values) {
+    return update(table, key, values);
+  }
+
+  @Override
+  public CompletableFuture<Status> insertAsync(String table, String key,
+      HashMap<String, ByteIterator> values) {
+    return updateAsync(table, key, values);
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    final DeleteRequest delete = deleteRequest(table, key);
     if (!clientSideBuffering) {
-      put.setBufferable(false);
+      delete.setBufferable(false);
       try {
-        client.put(put).join(joinTimeout);
+        client.delete(delete).join(joinTimeout);
       } catch (InterruptedException e) {
         System.err.println("Thread interrupted");
         Thread.currentThread().interrupt();
@@ -336,20 +481,25 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
     } else {
       // hooray! Asynchronous write. But without a callback and an async
       // YCSB call we don't know whether it succeeded or not
-      client.put(put);
+      client.delete(delete);
     }
-    
     return Status.OK;
   }
 
   @Override
-  public Status insert(String table, String key,
-      HashMap<String, ByteIterator> values) {
-    return update(table, key, values);
+  public CompletableFuture<Status> deleteAsync(String table, String key) {
+    final DeleteRequest delete = deleteRequest(table, key);
+    if (clientSideBuffering) {
+      // buffered writes complete when the buffer is flushed, don't wait
+      client.delete(delete);
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+    delete.setBufferable(false);
+    return toFuture(client.delete(delete), null,
+        "Failure deleting row with key " + key);
   }
 
-  @Override
-  public Status delete(String table, String key) {
+  private DeleteRequest deleteRequest(String table, String key) {
     setTable(table);
     
     if (debug) {
@@ -361,24 +511,38 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
     if (!durability) {
       delete.setDurable(false);
     }
-    if (!clientSideBuffering) {
-      delete.setBufferable(false);
-      try {
-        client.delete(delete).join(joinTimeout);
-      } catch (InterruptedException e) {
-        System.err.println("Thread interrupted");
-        Thread.currentThread().interrupt();
-      } catch (Exception e) {
-        System.err.println("Failure reading from row with key " + key + 
-            ": " + e.getMessage());
-        return Status.ERROR;
-      }
-    } else {
-      // hooray! Asynchronous write. But without a callback and an async
-      // YCSB call we don't know whether it succeeded or not
-      client.delete(delete);
-    }
-    return Status.OK;
+    return delete;
+  }
+
+  /**
+   * Little helper to complete a future from the callbacks of a deferred
+   * result instead of joining it.
+   * @param deferred The pending result of an HBase call
+   * @param onResult Converts the result to the status of the operation, or
+   * null if success is all that matters
+   * @param errorMessage Printed along with the exception on failure
+   * @return A future completing with the status of the operation
+   */
+  private <T> CompletableFuture<Status> toFuture(final Deferred<T> deferred,
+      final Function<T, Status> onResult, final String errorMessage) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    deferred.addCallbacks(
+        new Callback<Object, T>() {
+          @Override
+          public Object call(T arg) {
+            future.complete(onResult == null ? Status.OK : onResult.apply(arg));
+            return null;
+          }
+        },
+        new Callback<Object, Exception>() {
+          @Override
+          public Object call(Exception e) {
+            System.err.println(errorMessage + ": " + e.getMessage());
+            future.complete(Status.ERROR);
+            return null;
+          }
+        });
+    return future;
   }
 
   /**
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The rate of inserts an {@link AcknowledgedCounterGenerator} shared by all threads sustains, each
+ * insert taking the next key, doing the given amount of work as the insert itself, acknowledging
+ * the key and reading the latest one as workload D does. With work and several threads (-t) the
+ * keys are acknowledged out of order, as they are by client threads inserting in parallel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AcknowledgedCounterGeneratorBenchmark {
+
+  /** The work of an insert, in {@link Blackhole#consumeCPU(long)} tokens. */
+  @Param({"0", "2000"})
+  public long work;
+
+  private AcknowledgedCounterGenerator generator;
+
+  @Setup
+  public void setUp() {
+    generator = new AcknowledgedCounterGenerator(0);
+  }
+
+  @Benchmark
+  public long insert() {
+    final long key = generator.nextLong();
+    Blackhole.consumeCPU(work);
+    generator.acknowledge(key);
+    return generator.lastLong();
+  }
+}
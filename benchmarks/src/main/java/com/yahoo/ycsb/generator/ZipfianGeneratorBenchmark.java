@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of sampling a {@link ZipfianGenerator} shared by all threads, with a fixed item count
+ * and with an item count growing as in an insert-heavy run, where every tenth sample follows an
+ * insert. Run with -t to sample from several threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZipfianGeneratorBenchmark {
+
+  private static final long ITEMS = 1000000;
+
+  private ZipfianGenerator fixed;
+  private ZipfianGenerator growing;
+  private AtomicLong itemcount;
+
+  /** Counts the samples of a thread, to insert before every tenth. */
+  @State(Scope.Thread)
+  public static class Samples {
+    private int taken;
+
+    boolean insert() {
+      return taken++ % 10 == 0;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    fixed = new ZipfianGenerator(ITEMS);
+    growing = new ZipfianGenerator(ITEMS);
+    itemcount = new AtomicLong(ITEMS);
+  }
+
+  @Benchmark
+  public long fixedItemCount() {
+    return fixed.nextLong(ITEMS);
+  }
+
+  @Benchmark
+  public long growingItemCount(Samples samples) {
+    return growing.nextLong(samples.insert() ? itemcount.incrementAndGet() : itemcount.get());
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.Status;
+
+/**
+ * The cost of measuring one operation as DBWrapper does, by operation name as it used to and
+ * through an {@link Measurements.OperationHandle}: the latency, the intended latency and the
+ * return code. Run with -t to measure it from several threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeasurementsHandleBenchmark {
+
+  private Measurements measurements;
+  private Measurements.OperationHandle handle;
+
+  /** The latency measured, varied so the histogram buckets are not always the same. */
+  @State(Scope.Thread)
+  public static class Latency {
+    private int next;
+
+    int next() {
+      return next++ & 1023;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+    measurements = new Measurements(props);
+    handle = measurements.getHandle("READ");
+  }
+
+  @Benchmark
+  public void byName(Latency latency) {
+    final int l = latency.next();
+    measurements.measure("READ", l);
+    measurements.measureIntended("READ", l + 1);
+    measurements.reportStatus("READ", Status.OK);
+  }
+
+  @Benchmark
+  public void byHandle(Latency latency) {
+    final int l = latency.next();
+    handle.measure(l, l + 1);
+    handle.reportStatus(Status.OK);
+  }
+}
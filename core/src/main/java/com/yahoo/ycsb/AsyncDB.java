@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A DB layer whose operations complete asynchronously. With the "maxinflight" property set above 1,
+ * each client thread keeps up to that many operations outstanding against its DB instance instead of
+ * waiting for every operation to complete before issuing the next one. Bindings with a native
+ * asynchronous driver extend this class directly; all other bindings are driven through an
+ * {@link AsyncDBAdapter}.
+ *
+ * The returned futures must always complete, with {@link Status#ERROR} or an exception if the
+ * operation failed. The result maps passed to read and scan may be filled from another thread, but
+ * only before the future completes. The blocking methods inherited from {@link DB} wait for the
+ * asynchronous ones.
+ */
+public abstract class AsyncDB extends DB
+{
+  /**
+   * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A HashMap of field/value pairs for the result
+   * @return A future completing with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+      HashMap<String,ByteIterator> result);
+
+  /**
+   * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored in a HashMap.
+   *
+   * @param table The name of the table
+   * @param startkey The record key of the first record to read.
+   * @param recordcount The number of records to read
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+   * @return A future completing with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String,ByteIterator>> result);
+
+  /**
+   * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
+   * record key, overwriting any existing values with the same field name.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param values A HashMap of field/value pairs to update in the record
+   * @return A future completing with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> updateAsync(String table, String key,
+      HashMap<String,ByteIterator> values);
+
+  /**
+   * Update a record in the database as the second step of an operation that started earlier, such
+   * as a read-modify-write. Such a step is issued from a completion callback, possibly on a thread of
+   * the driver, so the intended start time of the operation is passed along rather than taken from
+   * the issuing thread. The default implementation ignores it.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param values A HashMap of field/value pairs to update in the record
+   * @param intendedStartTimeNanos When the operation was intended to start, from System.nanoTime().
+   * @return A future completing with the result of the operation.
+   */
+  public CompletableFuture<Status> updateAsync(String table, String key,
+      HashMap<String,ByteIterator> values, long intendedStartTimeNanos)
+  {
+    return updateAsync(table, key, values);
+  }
+
+  /**
+   * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
+   * record key.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to insert.
+   * @param values A HashMap of field/value pairs to insert in the record
+   * @return A future completing with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> insertAsync(String table, String key,
+      HashMap<String,ByteIterator> values);
+
+  /**
+   * Delete a record from the database.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to delete.
+   * @return A future completing with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> deleteAsync(String table, String key);
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+  {
+    return await(readAsync(table, key, fields, result));
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+      Vector<HashMap<String,ByteIterator>> result)
+  {
+    return await(scanAsync(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public Status update(String table, String key, HashMap<String,ByteIterator> values)
+  {
+    return await(updateAsync(table, key, values));
+  }
+
+  @Override
+  public Status insert(String table, String key, HashMap<String,ByteIterator> values)
+  {
+    return await(insertAsync(table, key, values));
+  }
+
+  @Override
+  public Status delete(String table, String key)
+  {
+    return await(deleteAsync(table, key));
+  }
+
+  /**
+   * Wait for an operation to complete.
+   *
+   * @return The result of the operation, or {@link Status#ERROR} if it completed exceptionally, which
+   *         is reported like any other failed operation.
+   */
+  protected static Status await(CompletableFuture<Status> future)
+  {
+    try
+    {
+      return future.join();
+    }
+    catch (RuntimeException e)
+    {
+      return Status.ERROR;
+    }
+  }
+}
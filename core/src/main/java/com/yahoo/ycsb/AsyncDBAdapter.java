@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Drives a blocking DB binding asynchronously. Each DB instance is owned by a dedicated worker
+ * thread, so the bindings keep their usual guarantee of being used by one thread at a time, and the
+ * number of instances bounds the number of operations executing concurrently. Operations are handed
+ * to whichever worker is idle.
+ */
+public class AsyncDBAdapter extends AsyncDB
+{
+  /** An operation waiting for a worker. */
+  private static final class Task
+  {
+    final Function<DB, Status> _op;
+    final CompletableFuture<Status> _future;
+
+    Task(Function<DB, Status> op, CompletableFuture<Status> future)
+    {
+      _op = op;
+      _future = future;
+    }
+  }
+
+  /** Tells a worker to clean up its DB instance and exit. */
+  private static final Task SHUTDOWN = new Task(null, null);
+
+  private final List<DB> _dbs;
+  private final BlockingQueue<Task> _queue = new LinkedBlockingQueue<Task>();
+  private final List<Thread> _workers = new ArrayList<Thread>();
+
+  /** The first exception thrown by DB#init() or DB#cleanup() on a worker. */
+  private volatile DBException _failure;
+
+  /**
+   * @param dbs The DB instances to drive, one worker thread is started for each.
+   */
+  public AsyncDBAdapter(List<DB> dbs)
+  {
+    if (dbs.isEmpty())
+    {
+      throw new IllegalArgumentException("At least one DB instance is required");
+    }
+    _dbs = dbs;
+  }
+
+  @Override
+  public void setProperties(Properties p)
+  {
+    super.setProperties(p);
+    for (DB db : _dbs)
+    {
+      db.setProperties(p);
+    }
+  }
+
+  /**
+   * Start the workers and wait for each of them to initialize its DB instance.
+   */
+  @Override
+  public void init() throws DBException
+  {
+    final CountDownLatch initialized = new CountDownLatch(_dbs.size());
+    for (int i = 0; i < _dbs.size(); i++)
+    {
+      final DB db = _dbs.get(i);
+      Thread worker = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            db.init();
+          }
+          catch (DBException e)
+          {
+            _failure = e;
+            return;
+          }
+          finally
+          {
+            initialized.countDown();
+          }
+          work(db);
+        }
+      }, "AsyncDBAdapter-" + db.getClass().getSimpleName() + "-" + i);
+      worker.setDaemon(true);
+      _workers.add(worker);
+      worker.start();
+    }
+
+    try
+    {
+      initialized.await();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new DBException(e);
+    }
+    if (_failure != null)
+    {
+      cleanup();
+      throw _failure;
+    }
+  }
+
+  /**
+   * Let the workers finish the queued operations, then clean up the DB instances.
+   */
+  @Override
+  public void cleanup() throws DBException
+  {
+    for (int i = 0; i < _workers.size(); i++)
+    {
+      _queue.add(SHUTDOWN);
+    }
+    for (Thread worker : _workers)
+    {
+      try
+      {
+        worker.join();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new DBException(e);
+      }
+    }
+    _workers.clear();
+    if (_failure != null)
+    {
+      throw _failure;
+    }
+  }
+
+  private void work(DB db)
+  {
+    while (true)
+    {
+      Task task;
+      try
+      {
+        task = _queue.take();
+      }
+      catch (InterruptedException e)
+      {
+        return;
+      }
+      if (task == SHUTDOWN)
+      {
+        break;
+      }
+      try
+      {
+        task._future.complete(task._op.apply(db));
+      }
+      catch (Throwable t)
+      {
+        task._future.completeExceptionally(t);
+      }
+    }
+    try
+    {
+      db.cleanup();
+    }
+    catch (DBException e)
+    {
+      _failure = e;
+    }
+  }
+
+  private CompletableFuture<Status> submit(Function<DB, Status> op)
+  {
+    CompletableFuture<Status> future = new CompletableFuture<Status>();
+    _queue.add(new Task(op, future));
+    return future;
+  }
+
+  @Override
+  public CompletableFuture<Status> readAsync(final String table, final String key, final Set<String> fields,
+      final HashMap<String,ByteIterator> result)
+  {
+    return submit(db -> db.read(table, key, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> scanAsync(final String table, final String startkey, final int recordcount,
+      final Set<String> fields, final Vector<HashMap<String,ByteIterator>> result)
+  {
+    return submit(db -> db.scan(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> updateAsync(final String table, final String key,
+      final HashMap<String,ByteIterator> values)
+  {
+    return submit(db -> db.update(table, key, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> insertAsync(final String table, final String key,
+      final HashMap<String,ByteIterator> values)
+  {
+    return submit(db -> db.insert(table, key, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> deleteAsync(final String table, final String key)
+  {
+    return submit(db -> db.delete(table, key));
+  }
+}
@@ -25,17 +25,22 @@ import java.io.OutputStream;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.LockSupport;
 
+import org.HdrHistogram.Histogram;
 import org.apache.htrace.core.Tracer;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.HTraceConfiguration;
@@ -79,6 +84,41 @@ class StatusThread extends Thread
   private long lastGCCount = 0;
   private long lastGCTime = 0;
 
+  /** Tracks the warmup period, null if the run has none. */
+  Warmup _warmup;
+
+  /** Whether the end of the warmup was already shown. */
+  private boolean _warmupShown;
+
+  /** The target over time when following a load profile, null for a constant target. */
+  LoadProfile _loadProfile;
+
+  /** The operations the load profile had offered at the end of the last interval. */
+  private double _lastOfferedOps;
+
+  /** Serves the stats of every interval over HTTP, null if not configured. */
+  MetricsServer _metricsServer;
+
+  /** The histograms at the end of the last interval, to publish those of the interval. */
+  private Map<String, Histogram> _lastHistograms=Collections.emptyMap();
+
+  /** Whether to print the status; false when the status thread only feeds the metrics server. */
+  boolean _print=true;
+
+  /** Follows the client GC pauses when tracking the JVM stats, null otherwise. */
+  private GcMonitor _gcMonitor;
+
+  /** The intervals with a client GC pause as long as the latency outliers, see appendPauses. */
+  private int _pauseAsLongAsOutliersIntervals;
+
+  /** Whether the pauses are compared with the latency outliers, which takes HdrHistograms. */
+  boolean _checkOutliers=true;
+
+  /** The measurements of the JVM stats and the hiccups, which are no operations. */
+  private static final Set<String> JVM_MEASUREMENTS=new HashSet<String>(Arrays.asList(
+      "THREAD_COUNT", "USED_MEM_MB", "SYS_LOAD_AVG", "GCS", "GCS_TIME", "GC_PAUSES", "GC_PAUSE_TIME", "ALLOC_MB_PER_SEC",
+      HiccupMeter.OPERATION));
+
   /**
    * Creates a new StatusThread without JVM stat tracking.
    *
@@ -123,6 +163,9 @@ class StatusThread extends Thread
   @Override
   public void run()
   {
+    if (_trackJVMStats) {
+      _gcMonitor = new GcMonitor();
+    }
     final long startTimeMs=System.currentTimeMillis();
     final long startTimeNanos = System.nanoTime();
     long deadline = startTimeNanos + _sleeptimeNs;
@@ -153,6 +196,9 @@ class StatusThread extends Thread
     }
     // Print the final stats.
     computeStats(startTimeMs, startIntervalMs, System.currentTimeMillis(), lastTotalOps);
+    if (_gcMonitor != null) {
+      _gcMonitor.close();
+    }
   }
 
   /**
@@ -190,25 +236,93 @@ class StatusThread extends Thread
     String label = _label + format.format(new Date());
 
     StringBuilder msg = new StringBuilder(label).append(" ").append(interval/1000).append(" sec: ");
+    if (_warmup != null && !_warmupShown)
+    {
+      if (_warmup.isFinished())
+      {
+        msg.append("[WARMUP DONE, MEASUREMENTS RESET] ");
+        _warmupShown = true;
+      }
+      else
+      {
+        msg.append("[WARMUP] ");
+      }
+    }
     msg.append(totalops).append(" operations; ");
 
     if (totalops != 0) {
       msg.append(d.format(curthroughput)).append(" current ops/sec; ");
     }
+    if (_loadProfile != null) {
+      double offered=_loadProfile.offeredOpsAt(System.nanoTime());
+      double offeredthroughput=1000.0*(offered-_lastOfferedOps)/((double)(endIntervalMs-startIntervalMs));
+      msg.append(d.format(offeredthroughput)).append(" offered ops/sec; ");
+      _lastOfferedOps=offered;
+    }
     if (todoops != 0) {
       msg.append("est completion in ").append(RemainingFormatter.format(estremaining));
     }
 
+    Map<String, Histogram> intervalHistograms=null;
+    if (_metricsServer != null || _gcMonitor != null) {
+      Map<String, Histogram> histograms=_measurements.getCumulativeHistogramsByName();
+      intervalHistograms=Measurements.getIntervalHistograms(_lastHistograms, histograms);
+      _lastHistograms=histograms;
+    }
+    if (_gcMonitor != null) {
+      appendPauses(msg, endIntervalMs-startIntervalMs, intervalHistograms);
+    }
+    if (_metricsServer != null) {
+      _metricsServer.publish(new MetricsServer.Snapshot(interval, totalops,
+          endIntervalMs > startIntervalMs ? curthroughput : 0, intervalHistograms, _measurements.getStatusCounts()));
+    }
+
     msg.append(Measurements.getMeasurements().getSummary());
 
-    System.err.println(msg);
+    if (_print) {
+      System.err.println(msg);
+    }
 
-    if (_standardstatus) {
+    if (_print && _standardstatus) {
       System.out.println(msg);
     }
     return totalops;
   }
 
+  /**
+   * Measures and shows the client GC pauses and allocations of the interval, flagging the interval
+   * when its longest pause is as long as the latency outliers of an operation: longer than its
+   * 99th percentile latency and at least half its highest latency. This is a heuristic on the
+   * magnitudes only. The interval histograms do not tell when the outliers happened, so they are
+   * not matched with the time of the pause.
+   */
+  private void appendPauses(StringBuilder msg, long intervalMs, Map<String, Histogram> intervalHistograms) {
+    GcMonitor.Interval gc=_gcMonitor.nextInterval();
+    double allocatedMbPerSec=intervalMs > 0 ? gc._allocatedBytes/1048576.0*1000/intervalMs : 0;
+    _measurements.measure("GC_PAUSES", gc._pauses);
+    _measurements.measure("GC_PAUSE_TIME", (int)gc._pauseTimeMs);
+    _measurements.measure("ALLOC_MB_PER_SEC", (int)allocatedMbPerSec);
+
+    DecimalFormat d = new DecimalFormat("#.##");
+    msg.append(" [CLIENT GC: pauses=").append(gc._pauses).append(", pause(ms)=").append(gc._pauseTimeMs)
+        .append(", max pause(ms)=").append(gc._maxPauseMs).append(", alloc(MB/s)=").append(d.format(allocatedMbPerSec))
+        .append("]");
+
+    long pauseUs=gc._maxPauseMs*1000;
+    if (_checkOutliers && pauseUs > 0) {
+      for (Map.Entry<String, Histogram> entry : intervalHistograms.entrySet()) {
+        Histogram histogram=entry.getValue();
+        if (!JVM_MEASUREMENTS.contains(entry.getKey()) && pauseUs > histogram.getValueAtPercentile(99)
+            && pauseUs >= histogram.getMaxValue()/2) {
+          msg.append(" [CLIENT PAUSE AS LONG AS OUTLIERS]");
+          _pauseAsLongAsOutliersIntervals++;
+          break;
+        }
+      }
+    }
+    msg.append(" ");
+  }
+
   /**
    * Waits for all of the client to finish or the deadline to expire.
    *
@@ -316,6 +430,26 @@ class StatusThread extends Thread
   public boolean trackJVMStats() {
     return _trackJVMStats;
   }
+
+  /** @return The client GC pauses during the test. */
+  public int getGcPauses() {
+    return _gcMonitor.getTotalPauses();
+  }
+
+  /** @return The time spent in client GC pauses during the test. */
+  public long getGcPauseTimeMs() {
+    return _gcMonitor.getTotalPauseTimeMs();
+  }
+
+  /** @return The longest client GC pause during the test. */
+  public long getMaxGcPauseMs() {
+    return _gcMonitor.getMaxPauseMs();
+  }
+
+  /** @return The intervals with a client GC pause as long as the latency outliers. */
+  public int getPauseAsLongAsOutliersIntervals() {
+    return _pauseAsLongAsOutliersIntervals;
+  }
 }
 
 /**
@@ -351,191 +485,6 @@ class RemainingFormatter {
   }
 }
 
-/**
- * A thread for executing transactions or data inserts to the database.
- *
- * @author cooperb
- *
- */
-class ClientThread implements Runnable
-{
-  /** Counts down each of the clients completing. */
-  private final CountDownLatch _completeLatch;
-
-  private static boolean _spinSleep;
-  DB _db;
-  boolean _dotransactions;
-  Workload _workload;
-  int _opcount;
-  double _targetOpsPerMs;
-
-  int _opsdone;
-  int _threadid;
-  int _threadcount;
-  Object _workloadstate;
-  Properties _props;
-  long _targetOpsTickNs;
-  final Measurements _measurements;
-
-  /**
-   * Constructor.
-   *
-   * @param db the DB implementation to use
-   * @param dotransactions true to do transactions, false to insert data
-   * @param workload the workload to use
-   * @param props the properties defining the experiment
-   * @param opcount the number of operations (transactions or inserts) to do
-   * @param targetperthreadperms target number of operations per thread per ms
-   * @param completeLatch The latch tracking the completion of all clients.
-   */
-  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount, double targetperthreadperms, CountDownLatch completeLatch)
-  {
-    _db=db;
-    _dotransactions=dotransactions;
-    _workload=workload;
-    _opcount=opcount;
-    _opsdone=0;
-    if(targetperthreadperms > 0){
-      _targetOpsPerMs=targetperthreadperms;
-      _targetOpsTickNs=(long)(1000000/_targetOpsPerMs);
-    }
-    _props=props;
-    _measurements = Measurements.getMeasurements();
-    _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
-    _completeLatch=completeLatch;
-  }
-
-  public int getOpsDone()
-  {
-    return _opsdone;
-  }
-
-  @Override
-  public void run()
-  {
-    try
-    {
-      _db.init();
-    }
-    catch (DBException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    try
-    {
-      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
-    }
-    catch (WorkloadException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    //NOTE: Switching to using nanoTime and parkNanos for time management here such that the measurements
-    // and the client thread have the same view on time.
-
-    //spread the thread operations out so they don't all hit the DB at the same time
-    // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
-    // and the sleep() doesn't make sense for granularities < 1 ms anyway
-    if ((_targetOpsPerMs > 0) && (_targetOpsPerMs <= 1.0))
-    {
-      long randomMinorDelay = Utils.random().nextInt((int) _targetOpsTickNs);
-      sleepUntil(System.nanoTime() + randomMinorDelay);
-    }
-    try
-    {
-      if (_dotransactions)
-      {
-        long startTimeNanos = System.nanoTime();
-
-        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-        {
-
-          if (!_workload.doTransaction(_db,_workloadstate))
-          {
-            break;
-          }
-
-          _opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-      else
-      {
-        long startTimeNanos = System.nanoTime();
-
-        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-        {
-
-          if (!_workload.doInsert(_db,_workloadstate))
-          {
-            break;
-          }
-
-          _opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-    }
-    catch (Exception e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      System.exit(0);
-    }
-
-    try
-    {
-      _measurements.setIntendedStartTimeNs(0);
-      _db.cleanup();
-    }
-    catch (DBException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-    finally
-    {
-      _completeLatch.countDown();
-    }
-  }
-
-  static void sleepUntil(long deadline) {
-    long now = System.nanoTime();
-    while((now = System.nanoTime()) < deadline) {
-      if (!_spinSleep) {
-        LockSupport.parkNanos(deadline - now);
-      }
-    }
-  }
-  private void throttleNanos(long startTimeNanos) {
-    //throttle the operations
-    if (_targetOpsPerMs > 0)
-    {
-      // delay until next tick
-      long deadline = startTimeNanos + _opsdone*_targetOpsTickNs;
-      sleepUntil(deadline);
-      _measurements.setIntendedStartTimeNs(deadline);
-    }
-  }
-  
-  /**
-   * the total amount of work this thread is still expected to do
-   */
-  public int getOpsTodo()
-  {
-    int todo = _opcount - _opsdone;
-    return todo < 0 ? 0 : todo;
-  }
-}
-
 /**
  * Main class for executing YCSB.
  */
@@ -603,9 +552,58 @@ public class Client
    */
   public static final String DO_TRANSACTIONS_PROPERTY = "dotransactions";
 
+  /**
+   * The load model: "closed" (default) issues the next operation on a thread only after the
+   * previous one completed, "open" issues operations at the target rate regardless of completions.
+   */
+  public static final String LOAD_MODEL_PROPERTY = "loadmodel";
+
+  /**
+   * The default load model.
+   */
+  public static final String LOAD_MODEL_PROPERTY_DEFAULT = "closed";
+
+  /**
+   * How the target throughput is enforced. "perthread" throttles every client thread to an even
+   * share of the target, "shared" hands out permits at the target rate from a bucket shared by
+   * all client threads, see {@link SharedRateLimiter}.
+   */
+  public static final String THROTTLE_PROPERTY = "throttle";
+
+  /**
+   * The default throttle.
+   */
+  public static final String THROTTLE_PROPERTY_DEFAULT = "perthread";
+
+  /**
+   * The number of operations each client thread keeps outstanding. Above 1, operations are issued
+   * asynchronously: natively by bindings extending {@link AsyncDB}, or by a pool of that many
+   * instances of any other binding.
+   */
+  public static final String MAX_IN_FLIGHT_PROPERTY = "maxinflight";
+
+  /**
+   * The default number of outstanding operations per client thread.
+   */
+  public static final String MAX_IN_FLIGHT_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The kind of thread each client runs on: "platform" (default) or "virtual". Virtual threads
+   * (Java 21 and later) make it practical to simulate hundreds of thousands of clients.
+   */
+  public static final String THREAD_MODEL_PROPERTY = "threadmodel";
+
+  /**
+   * The default thread model.
+   */
+  public static final String THREAD_MODEL_PROPERTY_DEFAULT = "platform";
+
   /** An optional thread used to track progress and measure JVM stats. */
   private static StatusThread statusthread = null;
 
+  /** Serves the status of the run over HTTP, null if not configured. */
+  private static MetricsServer metricsserver = null;
+
   // HTrace integration related constants.
 
   /**
@@ -659,86 +657,115 @@ public class Client
 
 
   /**
-   * Exports the measurements to either sysout or a file using the exporter
-   * loaded from conf.
-   * @throws IOException Either failed to write to output stream or failed to close it.
+   * Create the thread a client runs on. Virtual threads are created reflectively so that the
+   * client still builds for and runs on JVMs that predate them.
+   *
+   * @param client The client to run.
+   * @param virtual True for a virtual thread, false for a platform thread.
+   * @return The unstarted thread.
+   * @throws ReflectiveOperationException if this JVM does not support virtual threads.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
-    throws IOException
+  static Thread newClientThread(Runnable client, boolean virtual) throws ReflectiveOperationException
   {
-    MeasurementsExporter exporter = null;
-    try
+    if (!virtual)
     {
-      // if no destination file is provided the results will be written to stdout
-      OutputStream out;
-      String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
-      if (exportFile == null)
-      {
-        out = System.out;
-      } else
-      {
-        out = new FileOutputStream(exportFile);
-      }
+      return new Thread(client);
+    }
+    Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+    return (Thread) Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class).invoke(builder, client);
+  }
 
-      // if no exporter is provided the default text one will be used
-      String exporterStr = props.getProperty(EXPORTER_PROPERTY, "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-      try
-      {
-        exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
-      } catch (Exception e)
-      {
-        System.err.println("Could not find exporter " + exporterStr
-                           + ", will use default text reporter.");
-        e.printStackTrace();
-        exporter = new TextMeasurementsExporter(out);
-      }
+  /**
+   * Create the exporter configured by the properties.
+   *
+   * @throws IOException Thrown if the export file could not be opened.
+   */
+  private static MeasurementsExporter openExporter(Properties props) throws IOException
+  {
+    // if no destination file is provided the results will be written to stdout
+    OutputStream out;
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile == null)
+    {
+      out = System.out;
+    } else
+    {
+      out = new FileOutputStream(exportFile);
+    }
 
-      exporter.write("OVERALL", "RunTime(ms)", runtime);
-      double throughput = 1000.0 * (opcount) / (runtime);
-      exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
-      
-      final Map<String, Long[]> gcs = Utils.getGCStatst();
-      long totalGCCount = 0;
-      long totalGCTime = 0;
-      for (final Entry<String, Long[]> entry : gcs.entrySet()) {
-        exporter.write("TOTAL_GCS_" + entry.getKey(), "Count", entry.getValue()[0]);
-        exporter.write("TOTAL_GC_TIME_" + entry.getKey(), "Time(ms)", entry.getValue()[1]);
-        exporter.write("TOTAL_GC_TIME_%_" + entry.getKey(), "Time(%)",((double)entry.getValue()[1] / runtime) * (double)100);
-        totalGCCount += entry.getValue()[0];
-        totalGCTime += entry.getValue()[1];
-      }
-      exporter.write("TOTAL_GCs", "Count", totalGCCount);
-      
-      exporter.write("TOTAL_GC_TIME", "Time(ms)", totalGCTime);
-      exporter.write("TOTAL_GC_TIME_%", "Time(%)", ((double)totalGCTime / runtime) * (double)100);
-      if (statusthread != null && statusthread.trackJVMStats()) {
-        exporter.write("MAX_MEM_USED", "MBs", statusthread.getMaxUsedMem());
-        exporter.write("MIN_MEM_USED", "MBs", statusthread.getMinUsedMem());
-        exporter.write("MAX_THREADS", "Count", statusthread.getMaxThreads());
-        exporter.write("MIN_THREADS", "Count", statusthread.getMinThreads());
-        exporter.write("MAX_SYS_LOAD_AVG", "Load", statusthread.getMaxLoadAvg());
-        exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
-      }
-
-      Measurements.getMeasurements().exportMeasurements(exporter);
-    } finally
+    // if no exporter is provided the default text one will be used
+    String exporterStr = props.getProperty(EXPORTER_PROPERTY, "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try
     {
-      if (exporter != null)
-      {
-        exporter.close();
+      return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
+    } catch (Exception e)
+    {
+      System.err.println("Could not find exporter " + exporterStr
+                         + ", will use default text reporter.");
+      e.printStackTrace();
+      return new TextMeasurementsExporter(out);
+    }
+  }
+
+  /**
+   * Exports the measurements of a run.
+   *
+   * @param gcsAtStart The GC statistics at the start of the run, or null to report the GC
+   *                   activity since the JVM started.
+   * @throws IOException Thrown if the export failed.
+   */
+  private static void exportMeasurements(MeasurementsExporter exporter, long opcount, long runtime,
+      Map<String, Long[]> gcsAtStart)
+    throws IOException
+  {
+    exporter.write("OVERALL", "RunTime(ms)", runtime);
+    double throughput = 1000.0 * (opcount) / (runtime);
+    exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+    
+    final Map<String, Long[]> gcs = Utils.getGCStatst();
+    long totalGCCount = 0;
+    long totalGCTime = 0;
+    for (final Entry<String, Long[]> entry : gcs.entrySet()) {
+      long count = entry.getValue()[0];
+      long time = entry.getValue()[1];
+      if (gcsAtStart != null && gcsAtStart.containsKey(entry.getKey())) {
+        count -= gcsAtStart.get(entry.getKey())[0];
+        time -= gcsAtStart.get(entry.getKey())[1];
+      }
+      exporter.write("TOTAL_GCS_" + entry.getKey(), "Count", count);
+      exporter.write("TOTAL_GC_TIME_" + entry.getKey(), "Time(ms)", time);
+      exporter.write("TOTAL_GC_TIME_%_" + entry.getKey(), "Time(%)",((double)time / runtime) * (double)100);
+      totalGCCount += count;
+      totalGCTime += time;
+    }
+    exporter.write("TOTAL_GCs", "Count", totalGCCount);
+    
+    exporter.write("TOTAL_GC_TIME", "Time(ms)", totalGCTime);
+    exporter.write("TOTAL_GC_TIME_%", "Time(%)", ((double)totalGCTime / runtime) * (double)100);
+    if (statusthread != null && statusthread.trackJVMStats()) {
+      exporter.write("MAX_MEM_USED", "MBs", statusthread.getMaxUsedMem());
+      exporter.write("MIN_MEM_USED", "MBs", statusthread.getMinUsedMem());
+      exporter.write("MAX_THREADS", "Count", statusthread.getMaxThreads());
+      exporter.write("MIN_THREADS", "Count", statusthread.getMinThreads());
+      exporter.write("MAX_SYS_LOAD_AVG", "Load", statusthread.getMaxLoadAvg());
+      exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
+      exporter.write("CLIENT_GC_PAUSES", "Count", statusthread.getGcPauses());
+      exporter.write("CLIENT_GC_PAUSE_TIME", "Time(ms)", statusthread.getGcPauseTimeMs());
+      exporter.write("CLIENT_GC_MAX_PAUSE", "Time(ms)", statusthread.getMaxGcPauseMs());
+      if (statusthread._checkOutliers) {
+        exporter.write("CLIENT_PAUSE_AS_LONG_AS_OUTLIERS_INTERVALS", "Count", statusthread.getPauseAsLongAsOutliersIntervals());
       }
     }
+
+    Measurements.getMeasurements().exportMeasurements(exporter);
   }
 
   @SuppressWarnings("unchecked")
   public static void main(String[] args)
   {
-    String dbname;
     Properties props=new Properties();
     Properties fileprops=new Properties();
     boolean dotransactions=true;
-    int threadcount=1;
-    int target=0;
     boolean status=false;
     String label="";
 
@@ -913,29 +940,60 @@ public class Client
       fileprops.setProperty(prop,props.getProperty(prop));
     }
 
+    //the command line properties override those of a run plan as well
+    Properties commandlineprops=props;
     props=fileprops;
 
-    if (!checkRequiredProperties(props))
+    props.setProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(dotransactions));
+
+    //a run plan executes several phases, otherwise there is a single unnamed one
+    String runplan=props.getProperty(RunPlan.RUN_PLAN_PROPERTY);
+    if (runplan!=null && props.getProperty(Distributed.MODE_PROPERTY)!=null)
     {
-      System.out.println("Failed check required properties.");
+      System.out.println("A run plan cannot be combined with "+Distributed.MODE_PROPERTY+".");
       System.exit(0);
     }
 
-    props.setProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(dotransactions));
-
-    long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
-
-    //get number of threads, target and db
-    threadcount=Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY,"1"));
-    dbname=props.getProperty(DB_PROPERTY,"com.yahoo.ycsb.BasicDB");
-    target=Integer.parseInt(props.getProperty(TARGET_PROPERTY,"0"));
+    //a worker of a distributed run gets its share of the run from the coordinator
+    DistributedWorker worker=null;
+    if (Distributed.isWorker(props))
+    {
+      try
+      {
+        worker=DistributedWorker.connect(props);
+      }
+      catch (IOException e)
+      {
+        System.out.println("Could not connect to the coordinator: "+e.getMessage());
+        System.exit(0);
+      }
+    }
+    List<RunPlan.Phase> phases=null;
+    if (runplan==null)
+    {
+      phases=Collections.singletonList(new RunPlan.Phase(null, props));
+    }
+    else
+    {
+      try
+      {
+        phases=RunPlan.load(runplan, props, commandlineprops).getPhases();
+      }
+      catch (IOException | IllegalArgumentException e)
+      {
+        System.out.println("Could not read run plan "+runplan+": "+e.getMessage());
+        System.exit(0);
+      }
+    }
 
-    //compute the target throughput
-    double targetperthreadperms=-1;
-    if (target>0)
+    for (RunPlan.Phase phase : phases)
     {
-      double targetperthread=((double)target)/((double)threadcount);
-      targetperthreadperms=targetperthread/1000.0;
+      if (!checkRequiredProperties(phase.getProperties()))
+      {
+        System.out.println("Failed check required properties.");
+        System.exit(0);
+      }
+      checkRunProperties(phase.getProperties());
     }
 
     final Map<String, String> filteredProperties = new HashMap<>();
@@ -946,33 +1004,9 @@ public class Client
     }
     final HTraceConfiguration conf =  HTraceConfiguration.fromMap(filteredProperties);
 
-    //show a warning message that creating the workload is taking a while
-    //but only do so if it is taking longer than 2 seconds
-    //(showing the message right away if the setup wasn't taking very long was confusing people)
-    Thread warningthread=new Thread()
-      {
-        @Override
-        public void run()
-        {
-          try
-          {
-            sleep(2000);
-          }
-          catch (InterruptedException e)
-          {
-            return;
-          }
-          System.err.println(" (might take a few minutes for large data sets)");
-        }
-      };
-
-
-    warningthread.start();
-
     //set up measurements
-    Measurements.setProperties(props);
+    Measurements.setProperties(phases.get(0).getProperties());
 
-    //load the workload
     ClassLoader classLoader = Client.class.getClassLoader();
 
     try {
@@ -989,6 +1023,391 @@ public class Client
       System.err.print(" "+args[i]);
     }
     System.err.println();
+
+    String workloadname=phases.get(0).getProperties().getProperty(WORKLOAD_PROPERTY);
+    final Tracer tracer = new Tracer.Builder("YCSB " + workloadname.substring(workloadname.lastIndexOf('.')+1))
+        .conf(conf)
+        .build();
+
+    try
+    {
+      metricsserver=MetricsServer.start(props);
+    }
+    catch (IOException e)
+    {
+      System.out.println("Could not start the metrics server: "+e.getMessage());
+      System.exit(0);
+    }
+
+    MeasurementsExporter exporter=null;
+    try
+    {
+      exporter=openExporter(props);
+
+      if (Distributed.isCoordinator(props))
+      {
+        // the workers execute the run, the coordinator merges their results
+        new DistributedCoordinator(props, args).run(exporter, status, label);
+      }
+      else
+      {
+        // with a run plan the DB instances, and so their connections, are kept open across phases
+        List<DB> dbs=(runplan==null) ? null : new ArrayList<DB>();
+        for (int i=0; i<phases.size(); i++)
+        {
+          RunPlan.Phase phase=phases.get(i);
+          if (runplan!=null)
+          {
+            System.err.println("Starting phase "+phase.getName()+" ("+(i+1)+" of "+phases.size()+").");
+            if (i>0)
+            {
+              Measurements.getMeasurements().reset();
+            }
+            exporter.write("PHASE", phase.getName(), i);
+          }
+          runPhase(phase.getProperties(), tracer, status, label, dbs, i==phases.size()-1, exporter, worker);
+        }
+        Measurements.getMeasurements().close();
+      }
+    }
+    catch (IOException e)
+    {
+      System.err.println("Could not export measurements, error: " + e.getMessage());
+      e.printStackTrace();
+      System.exit(-1);
+    }
+    finally
+    {
+      if (exporter != null)
+      {
+        try
+        {
+          exporter.close();
+        }
+        catch (IOException e)
+        {
+          System.err.println("Could not export measurements, error: " + e.getMessage());
+          e.printStackTrace();
+          System.exit(-1);
+        }
+      }
+    }
+
+    System.exit(0);
+  }
+
+  /**
+   * Check the properties of a run, exiting with a message if they are invalid.
+   */
+  private static void checkRunProperties(Properties props)
+  {
+    boolean profile=props.getProperty(LoadProfile.LOAD_PROFILE_PROPERTY)!=null;
+    if (profile)
+    {
+      try
+      {
+        LoadProfile.create(props);
+      }
+      catch (IOException | IllegalArgumentException e)
+      {
+        System.out.println("Invalid load profile: "+e.getMessage());
+        System.exit(0);
+      }
+      if (ThroughputSearch.isEnabled(props))
+      {
+        System.out.println("The SLO search ("+ThroughputSearch.SEARCH_PROPERTY+") cannot follow a load profile.");
+        System.exit(0);
+      }
+    }
+
+    String loadmodel=props.getProperty(LOAD_MODEL_PROPERTY, LOAD_MODEL_PROPERTY_DEFAULT);
+    if (loadmodel.compareTo("open")==0)
+    {
+      if (!profile && Integer.parseInt(props.getProperty(TARGET_PROPERTY,"0"))<=0)
+      {
+        System.out.println("The open loop model requires a target throughput (-target or \""+TARGET_PROPERTY+"\") or a "
+            +LoadProfile.LOAD_PROFILE_PROPERTY+".");
+        System.exit(0);
+      }
+      if (props.getProperty(Measurements.MEASUREMENT_INTERVAL, "op").compareTo("op")==0)
+      {
+        System.err.println("WARNING: with "+LOAD_MODEL_PROPERTY+"=open, set "+Measurements.MEASUREMENT_INTERVAL
+            +"=intended or both to include queueing delay in the measured latencies.");
+      }
+      String arrivals=props.getProperty(OpenLoopScheduler.ARRIVAL_DISTRIBUTION_PROPERTY,
+          OpenLoopScheduler.ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT);
+      if (arrivals.compareTo("fixed")!=0 && arrivals.compareTo("poisson")!=0)
+      {
+        System.out.println("Unknown "+OpenLoopScheduler.ARRIVAL_DISTRIBUTION_PROPERTY+" \""+arrivals+"\"");
+        System.exit(0);
+      }
+    }
+    else if (loadmodel.compareTo("closed")!=0)
+    {
+      System.out.println("Unknown "+LOAD_MODEL_PROPERTY+" \""+loadmodel+"\"");
+      System.exit(0);
+    }
+
+    if (Integer.parseInt(props.getProperty(MAX_IN_FLIGHT_PROPERTY, MAX_IN_FLIGHT_PROPERTY_DEFAULT))<1)
+    {
+      System.out.println("The "+MAX_IN_FLIGHT_PROPERTY+" property must be at least 1.");
+      System.exit(0);
+    }
+
+    if (ThreadScaler.isEnabled(props))
+    {
+      if (ThroughputSearch.isEnabled(props))
+      {
+        System.out.println("Thread scaling cannot be combined with the SLO search ("+ThroughputSearch.SEARCH_PROPERTY+").");
+        System.exit(0);
+      }
+      try
+      {
+        new ThreadScaler(props, null, null, false);
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println("Invalid thread scaling: "+e.getMessage());
+        System.exit(0);
+      }
+      if (Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY, "0"))>0)
+      {
+        System.out.println("Thread scaling ("+ThreadScaler.THREAD_SCALING_PROPERTY+") runs until the scaling completes and requires "
+            +OPERATION_COUNT_PROPERTY+"=0.");
+        System.exit(0);
+      }
+    }
+
+    String throttle=props.getProperty(THROTTLE_PROPERTY, THROTTLE_PROPERTY_DEFAULT);
+    if (throttle.compareTo("shared")==0)
+    {
+      if (loadmodel.compareTo("open")==0)
+      {
+        System.err.println("WARNING: "+THROTTLE_PROPERTY+"=shared has no effect with "+LOAD_MODEL_PROPERTY
+            +"=open, whose arrivals are shared by all client threads already.");
+      }
+      try
+      {
+        SharedRateLimiter.create(1, props);
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println("Invalid shared throttle: "+e.getMessage());
+        System.exit(0);
+      }
+    }
+    else if (throttle.compareTo("perthread")!=0)
+    {
+      System.out.println("Unknown "+THROTTLE_PROPERTY+" \""+throttle+"\"");
+      System.exit(0);
+    }
+
+    if (ThroughputSearch.isEnabled(props))
+    {
+      if (loadmodel.compareTo("open")==0)
+      {
+        System.out.println("The SLO search ("+ThroughputSearch.SEARCH_PROPERTY+") requires "+LOAD_MODEL_PROPERTY+"=closed.");
+        System.exit(0);
+      }
+      if (!props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram").startsWith("hdrhistogram"))
+      {
+        System.out.println("The SLO search ("+ThroughputSearch.SEARCH_PROPERTY+") checks HdrHistogram percentiles and requires an hdrhistogram "+Measurements.MEASUREMENT_TYPE_PROPERTY+".");
+        System.exit(0);
+      }
+      try
+      {
+        new ThroughputSearch(props);
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println("Invalid SLO search: "+e.getMessage());
+        System.exit(0);
+      }
+    }
+
+    try
+    {
+      HiccupMeter.create(props);
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.out.println("Invalid hiccup meter: "+e.getMessage());
+      System.exit(0);
+    }
+
+    try
+    {
+      Warmup.create(props);
+    }
+    catch (NumberFormatException e)
+    {
+      System.out.println("The "+Warmup.WARMUP_TIME_PROPERTY+" and "+Warmup.WARMUP_OPERATIONS_PROPERTY+" properties must be numbers.");
+      System.exit(0);
+    }
+
+    String threadmodel=props.getProperty(THREAD_MODEL_PROPERTY, THREAD_MODEL_PROPERTY_DEFAULT);
+    if (threadmodel.compareTo("virtual")==0)
+    {
+      try
+      {
+        newClientThread(new Runnable() { public void run() {} }, true);
+      }
+      catch (ReflectiveOperationException e)
+      {
+        System.out.println(THREAD_MODEL_PROPERTY+"=virtual requires Java 21 or later, this is Java "+System.getProperty("java.version"));
+        System.exit(0);
+      }
+      if (Boolean.valueOf(props.getProperty("spin.sleep", "false")))
+      {
+        System.err.println("WARNING: spin.sleep keeps virtual threads on their carrier threads and starves the other clients.");
+      }
+    }
+    else if (threadmodel.compareTo("platform")!=0)
+    {
+      System.out.println("Unknown "+THREAD_MODEL_PROPERTY+" \""+threadmodel+"\"");
+      System.exit(0);
+    }
+
+    if (props.getProperty(Measurements.MEASUREMENT_TRACK_JVM_PROPERTY, Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true")
+        && !props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram").startsWith("hdrhistogram"))
+    {
+      System.err.println("WARNING: the client GC pauses are only compared with the latency outliers with an hdrhistogram "
+          +Measurements.MEASUREMENT_TYPE_PROPERTY+", intervals will not be marked [CLIENT PAUSE AS LONG AS OUTLIERS].");
+    }
+
+    String distributed=props.getProperty(Distributed.MODE_PROPERTY);
+    if (distributed!=null)
+    {
+      if (!Distributed.isCoordinator(props) && !Distributed.isWorker(props))
+      {
+        System.out.println("Unknown "+Distributed.MODE_PROPERTY+" \""+distributed+"\"");
+        System.exit(0);
+      }
+      if (!props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram").startsWith("hdrhistogram"))
+      {
+        System.out.println("A distributed run merges HdrHistograms and requires an hdrhistogram "+Measurements.MEASUREMENT_TYPE_PROPERTY+".");
+        System.exit(0);
+      }
+      if (profile || ThroughputSearch.isEnabled(props) || ThreadScaler.isEnabled(props))
+      {
+        System.out.println("A distributed run cannot be combined with a load profile, the SLO search or thread scaling.");
+        System.exit(0);
+      }
+      if (Distributed.isCoordinator(props))
+      {
+        int workers=Integer.parseInt(props.getProperty(Distributed.WORKERS_PROPERTY, "0"));
+        if (workers<1)
+        {
+          System.out.println("The coordinator requires the number of workers ("+Distributed.WORKERS_PROPERTY+").");
+          System.exit(0);
+        }
+        long operationcount=Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
+        long target=Long.parseLong(props.getProperty(TARGET_PROPERTY, "0"));
+        if ((operationcount>0 && operationcount<workers) || (target>0 && target<workers))
+        {
+          System.out.println("The "+OPERATION_COUNT_PROPERTY+" and "+TARGET_PROPERTY+" must be at least the number of workers.");
+          System.exit(0);
+        }
+      }
+    }
+  }
+
+  /**
+   * Load and run a workload to completion, then export its measurements.
+   *
+   * @param props The properties of the run.
+   * @param tracer The tracer to wrap the run in.
+   * @param status True to report the progress of the run.
+   * @param label The label of the status reports.
+   * @param dbs The DB instances to run against, which are left open until the last phase and to
+   *            which instances are added if there are more threads than instances; null to have
+   *            every client thread open and clean up its own instance.
+   * @param lastPhase True if no other phase follows, so the instances in dbs are cleaned up.
+   * @param exporter The exporter to export the measurements to.
+   * @param worker The connection to the coordinator when this is a worker of a distributed run,
+   *               null otherwise.
+   * @throws IOException if the measurements could not be exported.
+   */
+  private static void runPhase(Properties props, final Tracer tracer, boolean status, String label, List<DB> dbs,
+      boolean lastPhase, MeasurementsExporter exporter, DistributedWorker worker) throws IOException
+  {
+    boolean dotransactions=Boolean.valueOf(props.getProperty(DO_TRANSACTIONS_PROPERTY, "true"));
+
+    long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
+
+    //get number of threads, target and db
+    int threadcount=Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY,"1"));
+    String dbname=props.getProperty(DB_PROPERTY,"com.yahoo.ycsb.BasicDB");
+    int target=Integer.parseInt(props.getProperty(TARGET_PROPERTY,"0"));
+
+    ThroughputSearch search=null;
+    if (ThroughputSearch.isEnabled(props))
+    {
+      search=new ThroughputSearch(props);
+      target=search.getTarget();
+    }
+
+    //compute the target throughput
+    double targetperthreadperms=-1;
+    if (target>0)
+    {
+      double targetperthread=((double)target)/((double)threadcount);
+      targetperthreadperms=targetperthread/1000.0;
+    }
+
+    LoadProfile profile=LoadProfile.create(props);
+    if (profile!=null)
+    {
+      // the profile replaces the constant target
+      targetperthreadperms=-1;
+    }
+
+    boolean openloop=props.getProperty(LOAD_MODEL_PROPERTY, LOAD_MODEL_PROPERTY_DEFAULT).compareTo("open")==0;
+    if (openloop)
+    {
+      // the scheduler paces the operations, so the threads must not throttle themselves
+      targetperthreadperms=-1;
+    }
+
+    SharedRateLimiter ratelimiter=null;
+    if (props.getProperty(THROTTLE_PROPERTY, THROTTLE_PROPERTY_DEFAULT).compareTo("shared")==0 && (target>0 || profile!=null) && !openloop)
+    {
+      ratelimiter=(profile!=null) ? SharedRateLimiter.create(profile, props) : SharedRateLimiter.create(target, props);
+      // the threads share the limiter instead of throttling themselves
+      targetperthreadperms=-1;
+    }
+
+    boolean virtualthreads=props.getProperty(THREAD_MODEL_PROPERTY, THREAD_MODEL_PROPERTY_DEFAULT).compareTo("virtual")==0;
+
+    // GC statistics are reported for the phase only when several phases share the JVM
+    Map<String, Long[]> gcsAtStart=(dbs==null) ? null : Utils.getGCStatst();
+
+    //show a warning message that creating the workload is taking a while
+    //but only do so if it is taking longer than 2 seconds
+    //(showing the message right away if the setup wasn't taking very long was confusing people)
+    Thread warningthread=new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            sleep(2000);
+          }
+          catch (InterruptedException e)
+          {
+            return;
+          }
+          System.err.println(" (might take a few minutes for large data sets)");
+        }
+      };
+
+
+    warningthread.start();
+
+    //load the workload
+    ClassLoader classLoader = Client.class.getClassLoader();
+
     System.err.println("Loading workload...");
 
     Workload workload = null;
@@ -1006,10 +1425,6 @@ public class Client
       System.exit(0);
     }
 
-    final Tracer tracer = new Tracer.Builder("YCSB " + workload.getClass().getSimpleName())
-        .conf(conf)
-        .build();
-
     try
     {
       try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_INIT_SPAN)) {
@@ -1028,44 +1443,72 @@ public class Client
 
     System.err.println("Starting test.");
     final CountDownLatch completeLatch = new CountDownLatch(threadcount);
-    final List<ClientThread> clients = new ArrayList<ClientThread>(threadcount);
+    final ThreadScaler scaler = ThreadScaler.isEnabled(props) ? new ThreadScaler(props, dbname, tracer, virtualthreads) : null;
+    // the status thread iterates the clients while the scaler adds to them
+    final List<ClientThread> clients = (scaler != null) ? new CopyOnWriteArrayList<ClientThread>() : new ArrayList<ClientThread>(threadcount);
 
+    Warmup warmup = null;
+    HiccupMeter hiccupmeter = null;
     boolean initFailed = false;
     try (final TraceScope span = tracer.newScope(CLIENT_INIT_SPAN)) {
 
-      int opcount;
+      long opcount;
       if (dotransactions)
       {
-        opcount=Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+        opcount=Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
       }
       else
       {
         if (props.containsKey(INSERT_COUNT_PROPERTY))
         {
-          opcount=Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
+          opcount=Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
         }
         else
         {
-          opcount=Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+          opcount=Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
         }
       }
 
+      warmup=Warmup.create(props);
+      hiccupmeter=HiccupMeter.create(props);
+
+      OpenLoopScheduler scheduler=null;
+      if (openloop)
+      {
+        String arrivals=props.getProperty(OpenLoopScheduler.ARRIVAL_DISTRIBUTION_PROPERTY,
+            OpenLoopScheduler.ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT);
+        boolean poisson=arrivals.compareTo("poisson")==0;
+        scheduler=(profile!=null) ? new OpenLoopScheduler(profile, opcount, poisson) : new OpenLoopScheduler(target, opcount, poisson);
+      }
+
       for (int threadid=0; threadid<threadcount; threadid++)
       {
         DB db = null;
-        try
+        boolean newdb = (dbs == null) || (threadid >= dbs.size());
+        if (newdb)
         {
-          db = DBFactory.newDB(dbname, props, tracer);
+          try
+          {
+            db = DBFactory.newDB(dbname, props, tracer);
+          }
+          catch (UnknownDBException e)
+          {
+            System.out.println("Unknown DB " + dbname);
+            initFailed = true;
+            break;
+          }
+          if (dbs != null)
+          {
+            dbs.add(db);
+          }
         }
-        catch (UnknownDBException e)
+        else
         {
-          System.out.println("Unknown DB " + dbname);
-          initFailed = true;
-          break;
+          db = dbs.get(threadid);
         }
 
 
-        int threadopcount = opcount / threadcount;
+        long threadopcount = opcount / threadcount;
 
         // ensure correct number of operations, in case opcount is not a multiple of threadcount
         if (threadid<opcount%threadcount)
@@ -1073,7 +1516,16 @@ public class Client
           ++threadopcount;
         }
 
-        ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch);
+        ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch, scheduler);
+        t._initDb=newdb;
+        t._cleanupDb=(dbs == null);
+        t._warmup=warmup;
+        t._rateLimiter=ratelimiter;
+        if (ratelimiter==null && !openloop)
+        {
+          t._loadProfile=profile;
+          t._loadProfileThreads=threadcount;
+        }
 
         clients.add(t);
       }
@@ -1085,7 +1537,17 @@ public class Client
       System.exit(0);
     }
 
-    if (status)
+    if (search != null)
+    {
+      search.setClients(clients, workload, ratelimiter);
+    }
+
+    if (scaler != null)
+    {
+      scaler.setClients(clients, workload);
+    }
+
+    if (status || metricsserver!=null)
     {
       boolean standardstatus=false;
       if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY,"").compareTo("timeseries")==0)
@@ -1096,33 +1558,79 @@ public class Client
       boolean trackJVMStats = props.getProperty(Measurements.MEASUREMENT_TRACK_JVM_PROPERTY, 
           Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
       statusthread=new StatusThread(completeLatch,clients,label,standardstatus,statusIntervalSeconds,trackJVMStats);
+      statusthread._warmup=warmup;
+      statusthread._loadProfile=profile;
+      statusthread._metricsServer=metricsserver;
+      statusthread._print=status;
+      statusthread._checkOutliers=props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram").startsWith("hdrhistogram");
       statusthread.start();
     }
 
     Thread terminator = null;
     long st;
     long en;
-    int opsDone;
+    long opsDone;
 
     try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
       final Map<Thread, ClientThread> threads = new HashMap<Thread, ClientThread>(threadcount);
       for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+        try {
+          threads.put(newClientThread(tracer.wrap(client, "ClientThread"), virtualthreads), client);
+        } catch (ReflectiveOperationException e) {
+          // checked when the properties were read
+          throw new IllegalStateException(e);
+        }
+      }
+
+      // the threads of a worker initialize and then wait for all workers to be ready
+      final CountDownLatch readyLatch = (worker != null) ? new CountDownLatch(clients.size()) : null;
+      final CountDownLatch startLatch = (worker != null) ? new CountDownLatch(1) : null;
+      for (ClientThread client : clients) {
+        client._readyLatch = readyLatch;
+        client._startLatch = startLatch;
+      }
+
+      if (hiccupmeter != null)
+      {
+        hiccupmeter.start();
       }
 
       st=System.currentTimeMillis();
+      if (warmup != null)
+      {
+        warmup.start();
+      }
 
       for (Thread t : threads.keySet())
       {
         t.start();
       }
 
+      if (worker != null) {
+        worker.awaitStart(readyLatch);
+        st=System.currentTimeMillis();
+        if (warmup != null)
+        {
+          warmup.start();
+        }
+        startLatch.countDown();
+        worker.startReporting(clients);
+      }
+
       if (maxExecutionTime > 0) {
         terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload);
         terminator.start();
       }
 
+      if (search != null) {
+        search.start();
+      }
+
+      if (scaler != null) {
+        scaler.start();
+      }
+
       opsDone = 0;
 
       for (Map.Entry<Thread, ClientThread> entry : threads.entrySet())
@@ -1137,8 +1645,32 @@ public class Client
         }
       }
 
+      if (scaler != null) {
+        scaler.interrupt();
+        try {
+          scaler.join();
+          opsDone += scaler.joinAddedThreads();
+        } catch (InterruptedException e) {
+        }
+      }
+
       en=System.currentTimeMillis();
 
+      if (hiccupmeter != null) {
+        try {
+          hiccupmeter.terminate();
+        } catch (InterruptedException e) {
+        }
+      }
+
+      if (search != null) {
+        search.interrupt();
+        try {
+          search.join();
+        } catch (InterruptedException e) {
+        }
+      }
+
     }
 
     try
@@ -1149,7 +1681,7 @@ public class Client
           terminator.interrupt();
         }
 
-        if (status)
+        if (status || metricsserver!=null)
         {
           // wake up status thread if it's asleep
           statusthread.interrupt();
@@ -1160,6 +1692,24 @@ public class Client
           }
         }
 
+        // the DB instances kept open across the phases of a run plan are cleaned up before the
+        // last phase is exported, as the client threads clean up their own in a single run
+        if (lastPhase && (dbs != null))
+        {
+          for (DB db : dbs)
+          {
+            try
+            {
+              db.cleanup();
+            }
+            catch (DBException e)
+            {
+              e.printStackTrace();
+              e.printStackTrace(System.out);
+            }
+          }
+        }
+
         workload.cleanup();
       }
     }
@@ -1170,18 +1720,33 @@ public class Client
       System.exit(0);
     }
 
-    try
+    if (warmup != null)
     {
-      try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
-        exportMeasurements(props, opsDone, en - st);
+      if (warmup.isFinished())
+      {
+        // report only what was measured after the warmup
+        opsDone -= warmup.getOperations();
+        st = warmup.getEndTimeMs();
+      }
+      else
+      {
+        System.err.println("WARNING: the run ended before the warmup did, the results include the warmup.");
       }
-    } catch (IOException e)
+    }
+
+    if (worker != null)
     {
-      System.err.println("Could not export measurements, error: " + e.getMessage());
-      e.printStackTrace();
-      System.exit(-1);
+      worker.finish(opsDone, en - st);
     }
 
-    System.exit(0);
+    try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
+      exportMeasurements(exporter, opsDone, en - st, gcsAtStart);
+      if (search != null) {
+        search.exportMeasurements(exporter);
+      }
+      if (scaler != null) {
+        scaler.exportMeasurements(exporter);
+      }
+    }
   }
 }
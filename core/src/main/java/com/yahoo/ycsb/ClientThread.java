@@ -0,0 +1,494 @@
+/**
+ * Copyright (c) 2010 - 2016 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A thread for executing transactions or data inserts to the database.
+ *
+ * @author cooperb
+ *
+ */
+class ClientThread implements Runnable
+{
+  /** Counts down each of the clients completing. */
+  private final CountDownLatch _completeLatch;
+
+  private static boolean _spinSleep;
+  DB _db;
+  boolean _dotransactions;
+  Workload _workload;
+  long _opcount;
+  double _targetOpsPerMs;
+
+  /**
+   * The operations done, read by the status thread while the client runs. Only this thread
+   * writes it, except for asynchronous completions, which update it holding the thread's lock.
+   */
+  volatile long _opsdone;
+  int _threadid;
+  int _threadcount;
+  Object _workloadstate;
+  Properties _props;
+  long _targetOpsTickNs;
+  final Measurements _measurements;
+
+  /** Hands out operation arrival times when running the open loop model, null otherwise. */
+  final OpenLoopScheduler _scheduler;
+
+  /** Whether this thread initializes its DB before running, false if it is already open. */
+  boolean _initDb = true;
+
+  /** Whether this thread cleans up its DB after running, false to keep it open for another run. */
+  boolean _cleanupDb = true;
+
+  /** The number of operations this thread keeps outstanding, 1 to wait for each operation. */
+  final int _maxInFlight;
+
+  /** Tracks the warmup period, null if the run has none. */
+  Warmup _warmup;
+
+  /** The target shared by all client threads, null if each thread throttles itself. */
+  SharedRateLimiter _rateLimiter;
+
+  /** The target over time when following a load profile, null for a constant target. */
+  LoadProfile _loadProfile;
+
+  /** The number of threads sharing the load profile; this thread issues every n-th operation. */
+  int _loadProfileThreads = 1;
+
+  /** The start of the current throttle schedule and the operations issued before it. */
+  private long _throttleStartNs;
+  private long _throttleBaseOps;
+
+  /** A target set by {@link #changeTarget(double)}, not yet picked up by the thread. */
+  private volatile double _newTargetOpsPerMs;
+  private volatile boolean _targetChanged;
+
+  /** Set by a completing asynchronous operation when the workload is done. */
+  private volatile boolean _asyncDone;
+
+  /**
+   * Counted down once the thread is initialized, and released when the run may start, both null
+   * to start right away.
+   */
+  CountDownLatch _readyLatch;
+  CountDownLatch _startLatch;
+
+  /**
+   * Constructor.
+   *
+   * @param db the DB implementation to use
+   * @param dotransactions true to do transactions, false to insert data
+   * @param workload the workload to use
+   * @param props the properties defining the experiment
+   * @param opcount the number of operations (transactions or inserts) to do
+   * @param targetperthreadperms target number of operations per thread per ms
+   * @param completeLatch The latch tracking the completion of all clients.
+   */
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount, double targetperthreadperms, CountDownLatch completeLatch)
+  {
+    this(db, dotransactions, workload, props, opcount, targetperthreadperms, completeLatch, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param db the DB implementation to use
+   * @param dotransactions true to do transactions, false to insert data
+   * @param workload the workload to use
+   * @param props the properties defining the experiment
+   * @param opcount the number of operations (transactions or inserts) to do
+   * @param targetperthreadperms target number of operations per thread per ms
+   * @param completeLatch The latch tracking the completion of all clients.
+   * @param scheduler The shared open loop arrival scheduler, or null to run closed loop.
+   */
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount, double targetperthreadperms, CountDownLatch completeLatch,
+                      OpenLoopScheduler scheduler)
+  {
+    _db=db;
+    _dotransactions=dotransactions;
+    _workload=workload;
+    _opcount=opcount;
+    _opsdone=0;
+    setTarget(targetperthreadperms);
+    _props=props;
+    _measurements = Measurements.getMeasurements();
+    _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
+    _completeLatch=completeLatch;
+    _scheduler=scheduler;
+    _maxInFlight=Integer.parseInt(_props.getProperty(Client.MAX_IN_FLIGHT_PROPERTY, Client.MAX_IN_FLIGHT_PROPERTY_DEFAULT));
+  }
+
+  private void setTarget(double targetperthreadperms)
+  {
+    if(targetperthreadperms > 0){
+      _targetOpsPerMs=targetperthreadperms;
+      _targetOpsTickNs=(long)(1000000/_targetOpsPerMs);
+    }
+    else
+    {
+      _targetOpsPerMs=0;
+    }
+  }
+
+  /**
+   * Create another client thread running the same workload with the same settings on its own DB
+   * instance, for threads added to a run in progress. It runs until the workload is stopped.
+   *
+   * @param db the DB implementation to use, initialized and cleaned up by the new thread
+   * @param completeLatch The latch tracking the completion of the new thread.
+   */
+  ClientThread newSibling(DB db, CountDownLatch completeLatch)
+  {
+    ClientThread t=new ClientThread(db, _dotransactions, _workload, _props, 0, _targetOpsPerMs, completeLatch, _scheduler);
+    t._warmup=_warmup;
+    t._rateLimiter=_rateLimiter;
+    t._loadProfile=_loadProfile;
+    t._loadProfileThreads=_loadProfileThreads;
+    return t;
+  }
+
+  /**
+   * Change the target of a running thread. The thread follows the new target from its next
+   * operation on, without catching up on or giving back the operations of the previous target.
+   *
+   * @param targetperthreadperms target number of operations per thread per ms, 0 for no target
+   */
+  void changeTarget(double targetperthreadperms)
+  {
+    _newTargetOpsPerMs=targetperthreadperms;
+    _targetChanged=true;
+  }
+
+  public long getOpsDone()
+  {
+    return _opsdone;
+  }
+
+  @Override
+  public void run()
+  {
+    if (_initDb)
+    {
+      try
+      {
+        _db.init();
+      }
+      catch (DBException e)
+      {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        ready();
+        return;
+      }
+    }
+
+    try
+    {
+      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+    }
+    catch (WorkloadException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      ready();
+      return;
+    }
+
+    ready();
+    if (_startLatch != null)
+    {
+      try
+      {
+        _startLatch.await();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    //NOTE: Switching to using nanoTime and parkNanos for time management here such that the measurements
+    // and the client thread have the same view on time.
+
+    //spread the thread operations out so they don't all hit the DB at the same time
+    // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
+    // and the sleep() doesn't make sense for granularities < 1 ms anyway
+    if ((_targetOpsPerMs > 0) && (_targetOpsPerMs <= 1.0))
+    {
+      long randomMinorDelay = Utils.random().nextInt((int) _targetOpsTickNs);
+      sleepUntil(System.nanoTime() + randomMinorDelay);
+    }
+    try
+    {
+      if ((_maxInFlight > 1) && (_db instanceof AsyncDB))
+      {
+        runAsync();
+      }
+      else if (_scheduler != null)
+      {
+        runOpenLoop();
+      }
+      else if (_dotransactions)
+      {
+        _throttleStartNs = System.nanoTime();
+
+        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
+        {
+          awaitPermit();
+
+          _measurements.startOperation();
+          boolean more=_workload.doTransaction(_db,_workloadstate);
+          _measurements.endOperation();
+          if (!more)
+          {
+            break;
+          }
+
+          _opsdone++;
+          warmupOperationDone();
+
+          throttleNanos(_opsdone);
+        }
+      }
+      else
+      {
+        _throttleStartNs = System.nanoTime();
+
+        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
+        {
+          awaitPermit();
+
+          _measurements.startOperation();
+          boolean more=_workload.doInsert(_db,_workloadstate);
+          _measurements.endOperation();
+          if (!more)
+          {
+            break;
+          }
+
+          _opsdone++;
+          warmupOperationDone();
+
+          throttleNanos(_opsdone);
+        }
+      }
+    }
+    catch (Exception e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      System.exit(0);
+    }
+
+    try
+    {
+      _measurements.setIntendedStartTimeNs(0);
+      if (_cleanupDb)
+      {
+        _db.cleanup();
+      }
+    }
+    catch (DBException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return;
+    }
+    finally
+    {
+      _completeLatch.countDown();
+    }
+  }
+
+  /**
+   * Executes operations at the arrival times handed out by the shared scheduler, independent of
+   * how long previous operations took. Latency is measured from the scheduled arrival time.
+   */
+  private void runOpenLoop()
+  {
+    while (!_workload.isStopRequested())
+    {
+      long arrival = _scheduler.nextArrivalNs();
+      if (arrival < 0)
+      {
+        break;
+      }
+      sleepUntil(arrival);
+      _measurements.setIntendedStartTimeNs(arrival);
+
+      _measurements.startOperation();
+      boolean more = _dotransactions ? _workload.doTransaction(_db, _workloadstate) : _workload.doInsert(_db, _workloadstate);
+      _measurements.endOperation();
+      if (!more)
+      {
+        break;
+      }
+
+      _opsdone++;
+      warmupOperationDone();
+    }
+  }
+
+  /**
+   * Keeps up to {@link #_maxInFlight} operations outstanding, issuing the next one as soon as one
+   * completes or, with a target or the open loop model, when it is due. Operations count as done
+   * when they complete. Waits for all outstanding operations before returning.
+   */
+  private void runAsync()
+  {
+    final AsyncDB db = (AsyncDB) _db;
+    final Semaphore inflight = new Semaphore(_maxInFlight);
+    _throttleStartNs = System.nanoTime();
+    long issued = 0;
+
+    while (((_scheduler != null) || (_opcount == 0) || (issued < _opcount)) && !_workload.isStopRequested() && !_asyncDone)
+    {
+      inflight.acquireUninterruptibly();
+      if (_scheduler != null)
+      {
+        long arrival = _scheduler.nextArrivalNs();
+        if (arrival < 0)
+        {
+          inflight.release();
+          break;
+        }
+        sleepUntil(arrival);
+        _measurements.setIntendedStartTimeNs(arrival);
+      }
+      else
+      {
+        awaitPermit();
+      }
+
+      _measurements.startOperation();
+      CompletableFuture<Boolean> op = _dotransactions ? _workload.doTransactionAsync(db, _workloadstate) : _workload.doInsertAsync(db, _workloadstate);
+      op.whenComplete((more, error) -> {
+        if (error != null)
+        {
+          // the DB layer reports its failures as a return code, so this is the workload failing;
+          // like the synchronous loop, stop rather than go on with the remaining operations
+          error.printStackTrace();
+          error.printStackTrace(System.out);
+          _asyncDone = true;
+        }
+        else if (!more)
+        {
+          _asyncDone = true;
+        }
+        else
+        {
+          synchronized (this)
+          {
+            _opsdone++;
+          }
+          warmupOperationDone();
+        }
+        inflight.release();
+      });
+      issued++;
+
+      if (_scheduler == null)
+      {
+        throttleNanos(issued);
+      }
+    }
+
+    inflight.acquireUninterruptibly(_maxInFlight);
+  }
+
+  /**
+   * Waits for a permit of the shared throttle, if there is one.
+   */
+  private void awaitPermit()
+  {
+    if (_rateLimiter != null)
+    {
+      long permit = _rateLimiter.acquire();
+      sleepUntil(permit);
+      _measurements.setIntendedStartTimeNs(permit);
+    }
+  }
+
+  private void warmupOperationDone()
+  {
+    if (_warmup != null)
+    {
+      _warmup.operationDone();
+    }
+  }
+
+  private void ready()
+  {
+    if (_readyLatch != null)
+    {
+      _readyLatch.countDown();
+    }
+  }
+
+  static void sleepUntil(long deadline) {
+    long now = System.nanoTime();
+    while((now = System.nanoTime()) < deadline) {
+      if (!_spinSleep) {
+        LockSupport.parkNanos(deadline - now);
+      }
+    }
+  }
+  private void throttleNanos(long opsIssued) {
+    if (_loadProfile != null)
+    {
+      long deadline = _loadProfile.startTimeNs() + _loadProfile.offsetNs((double) opsIssued * _loadProfileThreads);
+      sleepUntil(deadline);
+      _measurements.setIntendedStartTimeNs(deadline);
+      return;
+    }
+    if (_targetChanged)
+    {
+      _targetChanged = false;
+      setTarget(_newTargetOpsPerMs);
+      // the new target applies from now on
+      _throttleStartNs = System.nanoTime();
+      _throttleBaseOps = opsIssued;
+    }
+    //throttle the operations
+    if (_targetOpsPerMs > 0)
+    {
+      // delay until next tick
+      long deadline = _throttleStartNs + (opsIssued - _throttleBaseOps)*_targetOpsTickNs;
+      sleepUntil(deadline);
+      _measurements.setIntendedStartTimeNs(deadline);
+    }
+  }
+  
+  /**
+   * the total amount of work this thread is still expected to do
+   */
+  public long getOpsTodo()
+  {
+    long todo = _opcount - _opsdone;
+    return todo < 0 ? 0 : todo;
+  }
+}
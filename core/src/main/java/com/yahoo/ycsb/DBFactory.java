@@ -17,6 +17,8 @@
 
 package com.yahoo.ycsb;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import org.apache.htrace.core.Tracer;
 
@@ -31,10 +33,11 @@ public class DBFactory
 	 ClassLoader classLoader = DBFactory.class.getClassLoader();
 
 	 DB ret=null;
+	 Class dbclass;
 
 	 try 
 	 {
-	    Class dbclass = classLoader.loadClass(dbname);
+	    dbclass = classLoader.loadClass(dbname);
 	    //System.out.println("dbclass.getName() = " + dbclass.getName());
 	    
 	    ret=(DB)dbclass.newInstance();
@@ -44,6 +47,27 @@ public class DBFactory
 	    e.printStackTrace();
 	    return null;
 	 }
+
+	 // blocking bindings get one instance per in-flight operation, driven by a pool of workers
+	 int maxinflight=Integer.parseInt(properties.getProperty(Client.MAX_IN_FLIGHT_PROPERTY, Client.MAX_IN_FLIGHT_PROPERTY_DEFAULT));
+	 if (maxinflight>1 && !(ret instanceof AsyncDB))
+	 {
+	    List<DB> dbs=new ArrayList<DB>(maxinflight);
+	    dbs.add(ret);
+	    try
+	    {
+	       for (int i=1; i<maxinflight; i++)
+	       {
+	          dbs.add((DB)dbclass.getDeclaredConstructor().newInstance());
+	       }
+	    }
+	    catch (Exception e)
+	    {
+	       e.printStackTrace();
+	       return null;
+	    }
+	    ret=new AsyncDBAdapter(dbs);
+	 }
 	 
 	 ret.setProperties(properties);
 
@@ -23,17 +23,21 @@ import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.htrace.core.Tracer;
 import org.apache.htrace.core.TraceScope;
 
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.Measurements.OperationHandle;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
  * Also reports latency separately between OK and failed operations.
+ * Asynchronous operations are measured from submission to completion of their future.
  */
-public class DBWrapper extends DB
+public class DBWrapper extends AsyncDB
 {
   private final DB _db;
   private final Measurements _measurements;
@@ -58,11 +62,39 @@ public class DBWrapper extends DB
   private final String SCOPE_STRING_SCAN;
   private final String SCOPE_STRING_UPDATE;
 
+  /** The measurements of each operation, looked up once instead of on every operation. */
+  private final OperationHandle _cleanupHandle;
+  private final OperationHandle _deleteHandle;
+  private final OperationHandle _insertHandle;
+  private final OperationHandle _readHandle;
+  private final OperationHandle _scanHandle;
+  private final OperationHandle _updateHandle;
+
+  /** The measurements of the failures of each operation. */
+  private final FailureHandles _cleanupFailures;
+  private final FailureHandles _deleteFailures;
+  private final FailureHandles _insertFailures;
+  private final FailureHandles _readFailures;
+  private final FailureHandles _scanFailures;
+  private final FailureHandles _updateFailures;
+
   public DBWrapper(final DB db, final Tracer tracer)
   {
     _db=db;
     _measurements=Measurements.getMeasurements();
     _tracer = tracer;
+    _cleanupHandle = _measurements.getHandle("CLEANUP");
+    _deleteHandle = _measurements.getHandle("DELETE");
+    _insertHandle = _measurements.getHandle("INSERT");
+    _readHandle = _measurements.getHandle("READ");
+    _scanHandle = _measurements.getHandle("SCAN");
+    _updateHandle = _measurements.getHandle("UPDATE");
+    _cleanupFailures = new FailureHandles("CLEANUP");
+    _deleteFailures = new FailureHandles("DELETE");
+    _insertFailures = new FailureHandles("INSERT");
+    _readFailures = new FailureHandles("READ");
+    _scanFailures = new FailureHandles("SCAN");
+    _updateFailures = new FailureHandles("UPDATE");
     final String simple = db.getClass().getSimpleName();
     SCOPE_STRING_CLEANUP = simple + "#cleanup";
     SCOPE_STRING_DELETE = simple + "#delete";
@@ -128,7 +160,7 @@ public class DBWrapper extends DB
       long st = System.nanoTime();
       _db.cleanup();
       long en=System.nanoTime();
-      measure("CLEANUP", Status.OK, ist, st, en);
+      measure(_cleanupHandle, _cleanupFailures, Status.OK, ist, st, en);
     }
   }
 
@@ -148,10 +180,11 @@ public class DBWrapper extends DB
     try (final TraceScope span = _tracer.newScope(SCOPE_STRING_READ)) {
       long ist=_measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
+      _readHandle.startCall(st);
       Status res=_db.read(table,key,fields,result);
       long en=System.nanoTime();
-      measure("READ", res, ist, st, en);
-      _measurements.reportStatus("READ", res);
+      measure(_readHandle, _readFailures, res, ist, st, en);
+      _readHandle.reportStatus(res);
       return res;
     }
   }
@@ -173,31 +206,74 @@ public class DBWrapper extends DB
     try (final TraceScope span = _tracer.newScope(SCOPE_STRING_SCAN)) {
       long ist=_measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
+      _scanHandle.startCall(st);
       Status res=_db.scan(table,startkey,recordcount,fields,result);
       long en=System.nanoTime();
-      measure("SCAN", res, ist, st, en);
-      _measurements.reportStatus("SCAN", res);
+      measure(_scanHandle, _scanFailures, res, ist, st, en);
+      _scanHandle.reportStatus(res);
       return res;
     }
   }
 
-  private void measure(String op, Status result, long intendedStartTimeNanos,
-      long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
-    if (result != Status.OK) {
-      if (this.reportLatencyForEachError ||
-          this.latencyTrackedErrors.contains(result.getName())) {
-        measurementName = op + "-" + result.getName();
-      } else {
-        measurementName = op + "-FAILED";
+  /**
+   * Record the latency and return code of an asynchronous operation once it completes. The
+   * (intended) start time is taken by the caller on the submitting thread, since the completion
+   * may run on a thread of the driver.
+   */
+  private CompletableFuture<Status> measureAsync(final OperationHandle handle, final FailureHandles failures,
+      final long intendedStartTimeNanos, final long startTimeNanos, CompletableFuture<Status> future) {
+    return future.handle((res, error) -> {
+      long en=System.nanoTime();
+      Status status=res;
+      if (error != null) {
+        // reported as a failed operation, like a binding returning ERROR
+        status=Status.ERROR;
       }
-    }
-    _measurements.measure(measurementName,
-        (int)((endTimeNanos-startTimeNanos)/1000));
-    _measurements.measureIntended(measurementName,
+      measure(handle, failures, status, intendedStartTimeNanos, startTimeNanos, en);
+      handle.reportStatus(status);
+      return status;
+    });
+  }
+
+  private void measure(OperationHandle handle, FailureHandles failures, Status result,
+      long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+    handle.endCall((int)((endTimeNanos-startTimeNanos)/1000));
+    // failures are measured by the name of their return code
+    OperationHandle measured = (result == Status.OK) ? handle : failures.get(result);
+    measured.measure((int)((endTimeNanos-startTimeNanos)/1000),
         (int)((endTimeNanos-intendedStartTimeNanos)/1000));
   }
 
+  /**
+   * The measurements of the failures of an operation, either apart by return code or together as
+   * op-FAILED. Each return code is looked up once, so failing operations concatenate no names.
+   */
+  private final class FailureHandles {
+    private final String _op;
+    private final OperationHandle _failed;
+    private final ConcurrentHashMap<Status, OperationHandle> _byStatus =
+        new ConcurrentHashMap<Status, OperationHandle>();
+
+    FailureHandles(String op) {
+      _op = op;
+      _failed = _measurements.getHandle(op + "-FAILED");
+    }
+
+    OperationHandle get(Status status) {
+      OperationHandle handle = _byStatus.get(status);
+      if (handle == null) {
+        // only looked up once init() read which return codes are measured apart
+        if (reportLatencyForEachError || latencyTrackedErrors.contains(status.getName())) {
+          handle = _measurements.getHandle(_op + "-" + status.getName());
+        } else {
+          handle = _failed;
+        }
+        _byStatus.putIfAbsent(status, handle);
+      }
+      return handle;
+    }
+  }
+
   /**
    * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
    * record key, overwriting any existing values with the same field name.
@@ -209,14 +285,20 @@ public class DBWrapper extends DB
    */
   public Status update(String table, String key,
       HashMap<String,ByteIterator> values)
+  {
+    return update(table, key, values, _measurements.getIntendedtartTimeNs());
+  }
+
+  private Status update(String table, String key,
+      HashMap<String,ByteIterator> values, long ist)
   {
     try (final TraceScope span = _tracer.newScope(SCOPE_STRING_UPDATE)) {
-      long ist=_measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
+      _updateHandle.startCall(st);
       Status res=_db.update(table,key,values);
       long en=System.nanoTime();
-      measure("UPDATE", res, ist, st, en);
-      _measurements.reportStatus("UPDATE", res);
+      measure(_updateHandle, _updateFailures, res, ist, st, en);
+      _updateHandle.reportStatus(res);
       return res;
     }
   }
@@ -237,10 +319,11 @@ public class DBWrapper extends DB
     try (final TraceScope span = _tracer.newScope(SCOPE_STRING_INSERT)) {
       long ist=_measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
+      _insertHandle.startCall(st);
       Status res=_db.insert(table,key,values);
       long en=System.nanoTime();
-      measure("INSERT", res, ist, st, en);
-      _measurements.reportStatus("INSERT", res);
+      measure(_insertHandle, _insertFailures, res, ist, st, en);
+      _insertHandle.reportStatus(res);
       return res;
     }
   }
@@ -257,11 +340,123 @@ public class DBWrapper extends DB
     try (final TraceScope span = _tracer.newScope(SCOPE_STRING_DELETE)) {
       long ist=_measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
+      _deleteHandle.startCall(st);
       Status res=_db.delete(table,key);
       long en=System.nanoTime();
-      measure("DELETE", res, ist, st, en);
-      _measurements.reportStatus("DELETE", res);
+      measure(_deleteHandle, _deleteFailures, res, ist, st, en);
+      _deleteHandle.reportStatus(res);
       return res;
     }
   }
+
+  /**
+   * Read a record from the database without waiting for the result.
+   *
+   * @see #read(String, String, Set, HashMap)
+   */
+  public CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+      HashMap<String,ByteIterator> result)
+  {
+    if (!(_db instanceof AsyncDB))
+    {
+      return CompletableFuture.completedFuture(read(table,key,fields,result));
+    }
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_READ)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      _readHandle.startCall(st);
+      return measureAsync(_readHandle, _readFailures, ist, st, ((AsyncDB)_db).readAsync(table,key,fields,result));
+    }
+  }
+
+  /**
+   * Perform a range scan without waiting for the result.
+   *
+   * @see #scan(String, String, int, Set, Vector)
+   */
+  public CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+  {
+    if (!(_db instanceof AsyncDB))
+    {
+      return CompletableFuture.completedFuture(scan(table,startkey,recordcount,fields,result));
+    }
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_SCAN)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      _scanHandle.startCall(st);
+      return measureAsync(_scanHandle, _scanFailures, ist, st, ((AsyncDB)_db).scanAsync(table,startkey,recordcount,fields,result));
+    }
+  }
+
+  /**
+   * Update a record in the database without waiting for the result.
+   *
+   * @see #update(String, String, HashMap)
+   */
+  public CompletableFuture<Status> updateAsync(String table, String key,
+      HashMap<String,ByteIterator> values)
+  {
+    return updateAsync(table, key, values, _measurements.getIntendedtartTimeNs());
+  }
+
+  /**
+   * Update a record in the database without waiting for the result, measuring its intended latency
+   * from the given intended start time.
+   *
+   * @see #update(String, String, HashMap)
+   */
+  @Override
+  public CompletableFuture<Status> updateAsync(String table, String key,
+      HashMap<String,ByteIterator> values, long ist)
+  {
+    if (!(_db instanceof AsyncDB))
+    {
+      return CompletableFuture.completedFuture(update(table,key,values,ist));
+    }
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_UPDATE)) {
+      long st = System.nanoTime();
+      _updateHandle.startCall(st);
+      return measureAsync(_updateHandle, _updateFailures, ist, st, ((AsyncDB)_db).updateAsync(table,key,values));
+    }
+  }
+
+  /**
+   * Insert a record in the database without waiting for the result.
+   *
+   * @see #insert(String, String, HashMap)
+   */
+  public CompletableFuture<Status> insertAsync(String table, String key,
+      HashMap<String,ByteIterator> values)
+  {
+    if (!(_db instanceof AsyncDB))
+    {
+      return CompletableFuture.completedFuture(insert(table,key,values));
+    }
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_INSERT)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      _insertHandle.startCall(st);
+      return measureAsync(_insertHandle, _insertFailures, ist, st, ((AsyncDB)_db).insertAsync(table,key,values));
+    }
+  }
+
+  /**
+   * Delete a record from the database without waiting for the result.
+   *
+   * @see #delete(String, String)
+   */
+  public CompletableFuture<Status> deleteAsync(String table, String key)
+  {
+    if (!(_db instanceof AsyncDB))
+    {
+      return CompletableFuture.completedFuture(delete(table,key));
+    }
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_DELETE)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      _deleteHandle.startCall(st);
+      return measureAsync(_deleteHandle, _deleteFailures, ist, st, ((AsyncDB)_db).deleteAsync(table,key));
+    }
+  }
 }
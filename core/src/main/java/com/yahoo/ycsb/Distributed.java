@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The properties and the wire format shared by the coordinator and the workers of a distributed
+ * run, in which several client processes, possibly on several machines, run one benchmark.
+ *
+ * The coordinator assigns each worker a slice of the key space ("insertstart"/"insertcount") and a
+ * share of the operation count and target, starts all workers at once when every one of them is
+ * initialized, and merges the HdrHistograms they send back. Unlike summing the results of clients
+ * run by hand, this reports the true percentiles of the whole run.
+ *
+ * Messages are a type byte followed by its fields, written with {@link DataOutputStream};
+ * histograms are sent in their compressed encoding.
+ */
+public final class Distributed
+{
+  /**
+   * The role of this process: "coordinator" or "worker". Not set for a standalone run.
+   */
+  public static final String MODE_PROPERTY = "distributed.mode";
+
+  /**
+   * The number of workers the coordinator waits for.
+   */
+  public static final String WORKERS_PROPERTY = "distributed.workers";
+
+  /**
+   * The host of the coordinator the workers connect to.
+   */
+  public static final String HOST_PROPERTY = "distributed.host";
+  public static final String HOST_PROPERTY_DEFAULT = "localhost";
+
+  /**
+   * The port the coordinator listens on, 0 for any free port when it spawns the workers.
+   */
+  public static final String PORT_PROPERTY = "distributed.port";
+  public static final String PORT_PROPERTY_DEFAULT = "5150";
+
+  /**
+   * The number of seconds between two interval histograms sent by a worker.
+   */
+  public static final String INTERVAL_PROPERTY = "distributed.interval";
+  public static final String INTERVAL_PROPERTY_DEFAULT = "10";
+
+  /**
+   * Whether the coordinator starts the workers itself, as local processes with the same command
+   * line. Meant for testing; otherwise the workers are started by hand on their machines.
+   */
+  public static final String SPAWN_PROPERTY = "distributed.spawn";
+  public static final String SPAWN_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The number of seconds to wait for the workers to connect and initialize.
+   */
+  public static final String TIMEOUT_PROPERTY = "distributed.timeout";
+  public static final String TIMEOUT_PROPERTY_DEFAULT = "300";
+
+  /** Coordinator to worker: the index of the worker, the number of workers and its properties. */
+  static final byte ASSIGN = 1;
+
+  /** Worker to coordinator: the worker is initialized and waits for the start. */
+  static final byte READY = 2;
+
+  /** Coordinator to worker: start the run. */
+  static final byte START = 3;
+
+  /** Worker to coordinator: the operations and histograms of an interval. */
+  static final byte INTERVAL = 4;
+
+  /** Worker to coordinator: the operations, the run time and the histograms of the whole run. */
+  static final byte DONE = 5;
+
+  private Distributed()
+  {
+  }
+
+  /**
+   * @return Whether the properties make this process the coordinator.
+   */
+  public static boolean isCoordinator(Properties props)
+  {
+    return "coordinator".equals(props.getProperty(MODE_PROPERTY));
+  }
+
+  /**
+   * @return Whether the properties make this process a worker.
+   */
+  public static boolean isWorker(Properties props)
+  {
+    return "worker".equals(props.getProperty(MODE_PROPERTY));
+  }
+
+  /**
+   * Compute the properties a worker runs with in place of those of the whole run: its slice of
+   * the records, and its share of the operations and of the target.
+   *
+   * @param index The index of the worker, from 0.
+   * @param workers The number of workers.
+   */
+  static Properties assignment(Properties props, int index, int workers)
+  {
+    Properties assigned = new Properties();
+    long recordcount = Long.parseLong(props.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+    long insertstart = Long.parseLong(props.getProperty(Workload.INSERT_START_PROPERTY,
+        Workload.INSERT_START_PROPERTY_DEFAULT));
+    long insertcount = props.containsKey(Client.INSERT_COUNT_PROPERTY)
+        ? Long.parseLong(props.getProperty(Client.INSERT_COUNT_PROPERTY)) : recordcount - insertstart;
+    assigned.setProperty(Workload.INSERT_START_PROPERTY,
+        String.valueOf(insertstart + share(insertcount, index, workers)));
+    assigned.setProperty(Client.INSERT_COUNT_PROPERTY, String.valueOf(share(insertcount, index + 1, workers)
+        - share(insertcount, index, workers)));
+
+    long operationcount = Long.parseLong(props.getProperty(Client.OPERATION_COUNT_PROPERTY, "0"));
+    if (operationcount > 0)
+    {
+      assigned.setProperty(Client.OPERATION_COUNT_PROPERTY, String.valueOf(share(operationcount, index + 1, workers)
+          - share(operationcount, index, workers)));
+    }
+    long target = Long.parseLong(props.getProperty(Client.TARGET_PROPERTY, "0"));
+    if (target > 0)
+    {
+      assigned.setProperty(Client.TARGET_PROPERTY, String.valueOf(share(target, index + 1, workers)
+          - share(target, index, workers)));
+    }
+    return assigned;
+  }
+
+  /** @return The part of the total before the given worker, so the shares add up to the total. */
+  private static long share(long total, int index, int workers)
+  {
+    return total * index / workers;
+  }
+
+  static void writeHistograms(DataOutputStream out, Map<String, Histogram> histograms) throws IOException
+  {
+    out.writeInt(histograms.size());
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet())
+    {
+      Histogram histogram = entry.getValue();
+      ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+      int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+      out.writeUTF(entry.getKey());
+      out.writeInt(length);
+      out.write(buffer.array(), 0, length);
+    }
+  }
+
+  static Map<String, Histogram> readHistograms(DataInputStream in) throws IOException
+  {
+    int count = in.readInt();
+    Map<String, Histogram> histograms = new HashMap<String, Histogram>();
+    for (int i = 0; i < count; i++)
+    {
+      String name = in.readUTF();
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      try
+      {
+        histograms.put(name, Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0));
+      }
+      catch (DataFormatException e)
+      {
+        throw new IOException("Invalid histogram for " + name, e);
+      }
+    }
+    return histograms;
+  }
+
+  /**
+   * Add histograms into the ones merged so far, by name.
+   */
+  static void merge(Map<String, Histogram> merged, Map<String, Histogram> histograms)
+  {
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet())
+    {
+      Histogram total = merged.get(entry.getKey());
+      if (total == null)
+      {
+        total = new Histogram(3);
+        merged.put(entry.getKey(), total);
+      }
+      total.add(entry.getValue());
+    }
+  }
+
+  /**
+   * Check the message type read from a peer.
+   *
+   * @throws IOException if it is not the expected one.
+   */
+  static void expect(DataInputStream in, byte type) throws IOException
+  {
+    byte read = in.readByte();
+    if (read != type)
+    {
+      throw new IOException("Unexpected message " + read + ", expected " + type);
+    }
+  }
+}
@@ -0,0 +1,409 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * The side of a distributed run reporting the results. The coordinator waits for the workers to
+ * connect, assigns each a share of the run, starts them all once they are initialized and merges
+ * their histograms into the status and the exported results. It executes no operations itself.
+ *
+ * @see Distributed
+ */
+public class DistributedCoordinator
+{
+  /**
+   * The results of one worker.
+   */
+  private static class Worker
+  {
+    final int _index;
+    final DataInputStream _in;
+    final DataOutputStream _out;
+
+    /** Set once the worker sent its results. */
+    boolean _done;
+    long _opsDone;
+    long _runtimeMs;
+    Map<String, Histogram> _histograms;
+
+    Worker(int index, Socket socket) throws IOException
+    {
+      _index = index;
+      _in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      _out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+  }
+
+  private final Properties _props;
+  private final String[] _args;
+  private final int _workers;
+  private final int _port;
+  private final int _timeoutMs;
+  private final long _intervalMs;
+  private final boolean _spawn;
+
+  /** The operations and histograms received since the last status line. */
+  private final Map<String, Histogram> _interval = new HashMap<String, Histogram>();
+  private long _intervalOps;
+  private long _totalOps;
+
+  /**
+   * Create a coordinator from the run properties.
+   *
+   * @param args The command line, which spawned workers are started with.
+   */
+  public DistributedCoordinator(Properties props, String[] args)
+  {
+    _props = props;
+    _args = args;
+    _workers = Integer.parseInt(props.getProperty(Distributed.WORKERS_PROPERTY, "0"));
+    _port = Integer.parseInt(props.getProperty(Distributed.PORT_PROPERTY, Distributed.PORT_PROPERTY_DEFAULT));
+    _timeoutMs = 1000 * Integer.parseInt(props.getProperty(Distributed.TIMEOUT_PROPERTY,
+        Distributed.TIMEOUT_PROPERTY_DEFAULT));
+    _intervalMs = 1000L * Integer.parseInt(props.getProperty(Distributed.INTERVAL_PROPERTY,
+        Distributed.INTERVAL_PROPERTY_DEFAULT));
+    _spawn = Boolean.parseBoolean(props.getProperty(Distributed.SPAWN_PROPERTY, Distributed.SPAWN_PROPERTY_DEFAULT));
+  }
+
+  /**
+   * Run the benchmark on the workers and export the merged results.
+   *
+   * @param status Whether to print a status line for each interval.
+   * @param label The label of the status lines.
+   * @throws IOException if the workers could not be started or the results exported.
+   */
+  public void run(MeasurementsExporter exporter, boolean status, String label) throws IOException
+  {
+    final List<Worker> workers = new ArrayList<Worker>();
+    List<Process> processes = new ArrayList<Process>();
+    List<Socket> sockets = new ArrayList<Socket>();
+    long startMs;
+    try (ServerSocket server = new ServerSocket(_port))
+    {
+      server.setSoTimeout(_timeoutMs);
+      if (_spawn)
+      {
+        processes = spawnWorkers(server.getLocalPort());
+      }
+      System.err.println("Waiting for " + _workers + " workers on port " + server.getLocalPort() + "...");
+      for (int i = 0; i < _workers; i++)
+      {
+        Socket socket = server.accept();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(_timeoutMs);
+        sockets.add(socket);
+        Worker worker = new Worker(i, socket);
+        StringWriter assigned = new StringWriter();
+        Distributed.assignment(_props, i, _workers).store(assigned, null);
+        worker._out.writeByte(Distributed.ASSIGN);
+        worker._out.writeInt(i);
+        worker._out.writeInt(_workers);
+        worker._out.writeUTF(assigned.toString());
+        worker._out.flush();
+        workers.add(worker);
+        System.err.println("Worker " + (i + 1) + " connected from " + socket.getRemoteSocketAddress());
+      }
+
+      // all workers start at once when every one of them is initialized
+      for (Worker worker : workers)
+      {
+        Distributed.expect(worker._in, Distributed.READY);
+      }
+      for (Socket socket : sockets)
+      {
+        socket.setSoTimeout(0);
+      }
+      for (Worker worker : workers)
+      {
+        worker._out.writeByte(Distributed.START);
+        worker._out.flush();
+      }
+      startMs = System.currentTimeMillis();
+      System.err.println("Started " + _workers + " workers.");
+    }
+
+    List<Thread> readers = new ArrayList<Thread>();
+    for (final Worker worker : workers)
+    {
+      Thread reader = new Thread("DistributedCoordinator-" + worker._index)
+      {
+        @Override
+        public void run()
+        {
+          receive(worker);
+        }
+      };
+      reader.start();
+      readers.add(reader);
+    }
+
+    Thread statusthread = null;
+    if (status)
+    {
+      statusthread = new Thread("DistributedStatus")
+      {
+        @Override
+        public void run()
+        {
+          // half an interval behind the workers, so their intervals arrive in between
+          long deadline = startMs + _intervalMs + _intervalMs / 2;
+          long lastMs = startMs + _intervalMs / 2;
+          boolean alldone = false;
+          while (!alldone)
+          {
+            try
+            {
+              Thread.sleep(Math.max(0, deadline - System.currentTimeMillis()));
+            }
+            catch (InterruptedException e)
+            {
+              // print the final stats
+              alldone = true;
+            }
+            deadline += _intervalMs;
+            long nowMs = System.currentTimeMillis();
+            printStatus(label, nowMs - startMs, nowMs - lastMs);
+            lastMs = nowMs;
+          }
+        }
+      };
+      statusthread.start();
+    }
+
+    for (Thread reader : readers)
+    {
+      try
+      {
+        reader.join();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (statusthread != null)
+    {
+      statusthread.interrupt();
+      try
+      {
+        statusthread.join();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    for (Socket socket : sockets)
+    {
+      socket.close();
+    }
+    for (Process process : processes)
+    {
+      try
+      {
+        process.waitFor();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    exportMeasurements(exporter, workers);
+  }
+
+  private List<Process> spawnWorkers(int port) throws IOException
+  {
+    List<String> command = new ArrayList<String>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Client.class.getName());
+    for (String arg : _args)
+    {
+      // the status of the run is reported by the coordinator
+      if (!arg.equals("-s"))
+      {
+        command.add(arg);
+      }
+    }
+    command.add("-p");
+    command.add(Distributed.MODE_PROPERTY + "=worker");
+    command.add("-p");
+    command.add(Distributed.HOST_PROPERTY + "=localhost");
+    command.add("-p");
+    command.add(Distributed.PORT_PROPERTY + "=" + port);
+
+    // the results of each worker are merged by the coordinator, so only their errors are shown
+    File discard = new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+    List<Process> processes = new ArrayList<Process>();
+    for (int i = 0; i < _workers; i++)
+    {
+      processes.add(new ProcessBuilder(command)
+          .redirectOutput(discard)
+          .redirectError(ProcessBuilder.Redirect.INHERIT)
+          .start());
+    }
+    return processes;
+  }
+
+  /**
+   * Read the messages of a worker until it is done or disconnected.
+   */
+  private void receive(Worker worker)
+  {
+    try
+    {
+      while (true)
+      {
+        byte type = worker._in.readByte();
+        if (type == Distributed.INTERVAL)
+        {
+          long ops = worker._in.readLong();
+          Map<String, Histogram> histograms = Distributed.readHistograms(worker._in);
+          synchronized (_interval)
+          {
+            _intervalOps += ops;
+            _totalOps += ops;
+            Distributed.merge(_interval, histograms);
+          }
+        }
+        else if (type == Distributed.DONE)
+        {
+          long opsDone = worker._in.readLong();
+          long runtimeMs = worker._in.readLong();
+          Map<String, Histogram> histograms = Distributed.readHistograms(worker._in);
+          synchronized (worker)
+          {
+            worker._opsDone = opsDone;
+            worker._runtimeMs = runtimeMs;
+            worker._histograms = histograms;
+            worker._done = true;
+          }
+          System.err.println("Worker " + (worker._index + 1) + " done: " + opsDone + " operations in "
+              + runtimeMs + " ms.");
+          return;
+        }
+        else
+        {
+          throw new IOException("Unexpected message " + type);
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      System.err.println("Lost worker " + (worker._index + 1) + ": " + e.getMessage());
+    }
+  }
+
+  private void printStatus(String label, long elapsedMs, long intervalMs)
+  {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS");
+    DecimalFormat d = new DecimalFormat("#.##");
+    StringBuilder msg = new StringBuilder(label).append(format.format(new Date())).append(" ")
+        .append(elapsedMs / 1000).append(" sec: ");
+    synchronized (_interval)
+    {
+      msg.append(_totalOps).append(" operations; ");
+      if (_totalOps != 0)
+      {
+        msg.append(d.format(1000.0 * _intervalOps / intervalMs)).append(" current ops/sec; ");
+      }
+      for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(_interval).entrySet())
+      {
+        msg.append(OneMeasurementHdrHistogram.getSummary(entry.getKey(), entry.getValue())).append(" ");
+      }
+      _interval.clear();
+      _intervalOps = 0;
+    }
+    System.err.println(msg);
+  }
+
+  private void exportMeasurements(MeasurementsExporter exporter, List<Worker> workers) throws IOException
+  {
+    long opsDone = 0;
+    long runtimeMs = 0;
+    int done = 0;
+    Map<String, Histogram> merged = new TreeMap<String, Histogram>();
+    for (Worker worker : workers)
+    {
+      synchronized (worker)
+      {
+        if (!worker._done)
+        {
+          continue;
+        }
+        done++;
+        opsDone += worker._opsDone;
+        // the workers started together, so the run lasted as long as the slowest one
+        runtimeMs = Math.max(runtimeMs, worker._runtimeMs);
+        Distributed.merge(merged, worker._histograms);
+      }
+    }
+    if (done < workers.size())
+    {
+      System.err.println("WARNING: " + (workers.size() - done) + " workers did not complete, their results are missing.");
+    }
+
+    exporter.write("OVERALL", "RunTime(ms)", runtimeMs);
+    exporter.write("OVERALL", "Throughput(ops/sec)", 1000.0 * opsDone / runtimeMs);
+    exporter.write("WORKERS", "Count", done);
+    for (Worker worker : workers)
+    {
+      if (worker._done)
+      {
+        String metric = "WORKER_" + worker._index;
+        exporter.write(metric, "Operations", worker._opsDone);
+        exporter.write(metric, "RunTime(ms)", worker._runtimeMs);
+        exporter.write(metric, "Throughput(ops/sec)", 1000.0 * worker._opsDone / worker._runtimeMs);
+      }
+    }
+
+    List<Integer> percentiles = OneMeasurementHdrHistogram.getPercentileValues(
+        _props.getProperty(OneMeasurementHdrHistogram.PERCENTILES_PROPERTY,
+            OneMeasurementHdrHistogram.PERCENTILES_PROPERTY_DEFAULT));
+    for (Map.Entry<String, Histogram> entry : merged.entrySet())
+    {
+      OneMeasurementHdrHistogram.exportHistogram(exporter, entry.getKey(), entry.getValue(), percentiles);
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * The side of a distributed run executing the operations. The worker connects to the coordinator,
+ * runs with the share of the run it is assigned, waits for all workers to be initialized before
+ * starting and sends its histograms back while it runs and when it is done.
+ *
+ * @see Distributed
+ */
+public class DistributedWorker
+{
+  private final Socket _socket;
+  private final DataInputStream _in;
+  private final DataOutputStream _out;
+  private final long _intervalMs;
+
+  /** Sends the interval histograms during the run, null until the run started. */
+  private Thread _reporter;
+
+  /** The client threads of the run and what was sent of them so far. */
+  private List<ClientThread> _clients;
+  private Map<String, Histogram> _sentHistograms;
+  private long _sentOps;
+
+  private DistributedWorker(Socket socket, long intervalMs) throws IOException
+  {
+    _socket = socket;
+    _in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    _out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    _intervalMs = intervalMs;
+  }
+
+  /**
+   * Connect to the coordinator, retrying until it listens, and apply the assigned share of the
+   * run to the properties.
+   *
+   * @throws IOException if the coordinator could not be reached in time.
+   */
+  public static DistributedWorker connect(Properties props) throws IOException
+  {
+    String host = props.getProperty(Distributed.HOST_PROPERTY, Distributed.HOST_PROPERTY_DEFAULT);
+    int port = Integer.parseInt(props.getProperty(Distributed.PORT_PROPERTY, Distributed.PORT_PROPERTY_DEFAULT));
+    long timeoutMs = 1000L * Integer.parseInt(props.getProperty(Distributed.TIMEOUT_PROPERTY,
+        Distributed.TIMEOUT_PROPERTY_DEFAULT));
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    Socket socket;
+    while (true)
+    {
+      try
+      {
+        socket = new Socket(host, port);
+        break;
+      }
+      catch (ConnectException e)
+      {
+        if (System.currentTimeMillis() > deadline)
+        {
+          throw e;
+        }
+        try
+        {
+          Thread.sleep(500);
+        }
+        catch (InterruptedException ie)
+        {
+          throw new IOException("Interrupted while connecting to the coordinator", ie);
+        }
+      }
+    }
+    socket.setTcpNoDelay(true);
+
+    DistributedWorker worker = new DistributedWorker(socket, 1000L * Integer.parseInt(
+        props.getProperty(Distributed.INTERVAL_PROPERTY, Distributed.INTERVAL_PROPERTY_DEFAULT)));
+    Distributed.expect(worker._in, Distributed.ASSIGN);
+    int index = worker._in.readInt();
+    int workers = worker._in.readInt();
+    Properties assigned = new Properties();
+    assigned.load(new StringReader(worker._in.readUTF()));
+    for (String key : assigned.stringPropertyNames())
+    {
+      props.setProperty(key, assigned.getProperty(key));
+    }
+    System.err.println("Worker " + (index + 1) + " of " + workers + " connected to " + host + ":" + port
+        + ", assigned " + assigned);
+    return worker;
+  }
+
+  /**
+   * Tell the coordinator that this worker is ready once all its client threads are, and wait for
+   * the coordinator to start the run.
+   *
+   * @param readyLatch Counted down by each client thread once it is initialized.
+   */
+  void awaitStart(CountDownLatch readyLatch) throws IOException
+  {
+    try
+    {
+      readyLatch.await();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    _out.writeByte(Distributed.READY);
+    _out.flush();
+    Distributed.expect(_in, Distributed.START);
+  }
+
+  /**
+   * Start sending the operations and histograms of each interval to the coordinator.
+   */
+  void startReporting(List<ClientThread> clients)
+  {
+    _clients = clients;
+    _sentHistograms = Measurements.getMeasurements().getCumulativeHistogramsByName();
+    _reporter = new Thread("DistributedWorker")
+    {
+      @Override
+      public void run()
+      {
+        long deadline = System.currentTimeMillis() + _intervalMs;
+        while (true)
+        {
+          try
+          {
+            Thread.sleep(Math.max(0, deadline - System.currentTimeMillis()));
+          }
+          catch (InterruptedException e)
+          {
+            return;
+          }
+          deadline += _intervalMs;
+          try
+          {
+            sendInterval();
+          }
+          catch (IOException e)
+          {
+            System.err.println("Could not send the interval to the coordinator: " + e.getMessage());
+            return;
+          }
+        }
+      }
+    };
+    _reporter.setDaemon(true);
+    _reporter.start();
+  }
+
+  /**
+   * Send what was done since the last interval.
+   */
+  private void sendInterval() throws IOException
+  {
+    Map<String, Histogram> histograms = Measurements.getMeasurements().getCumulativeHistogramsByName();
+    long ops = 0;
+    for (ClientThread client : _clients)
+    {
+      ops += client.getOpsDone();
+    }
+    synchronized (_out)
+    {
+      _out.writeByte(Distributed.INTERVAL);
+      _out.writeLong(ops - _sentOps);
+      Distributed.writeHistograms(_out, Measurements.getIntervalHistograms(_sentHistograms, histograms));
+      _out.flush();
+    }
+    _sentHistograms = histograms;
+    _sentOps = ops;
+  }
+
+  /**
+   * Send the results of the whole run to the coordinator and disconnect.
+   *
+   * @param opsDone The operations completed in the measured part of the run.
+   * @param runtimeMs The duration of the measured part of the run.
+   */
+  void finish(long opsDone, long runtimeMs) throws IOException
+  {
+    try
+    {
+      if (_reporter != null)
+      {
+        _reporter.interrupt();
+        try
+        {
+          _reporter.join();
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+        // the rest of the last interval
+        sendInterval();
+      }
+      synchronized (_out)
+      {
+        _out.writeByte(Distributed.DONE);
+        _out.writeLong(opsDone);
+        _out.writeLong(runtimeMs);
+        Distributed.writeHistograms(_out, Measurements.getMeasurements().getCumulativeHistogramsByName());
+        _out.flush();
+      }
+    }
+    finally
+    {
+      _socket.close();
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Follows the garbage collections of the client JVM through the notifications of the garbage
+ * collector MXBeans, and sums up the pauses and the allocations of every status interval.
+ *
+ * Collections done concurrently with the application, such as the cycles of G1, ZGC or
+ * Shenandoah, are not pauses and only count towards the allocations. The allocations of an
+ * interval are the growth of the heap plus what the collections freed.
+ */
+final class GcMonitor implements NotificationListener
+{
+  /**
+   * The pauses and allocations of one interval.
+   */
+  static final class Interval
+  {
+    final int _pauses;
+    final long _pauseTimeMs;
+    final long _maxPauseMs;
+    final long _allocatedBytes;
+
+    Interval(int pauses, long pauseTimeMs, long maxPauseMs, long allocatedBytes)
+    {
+      _pauses=pauses;
+      _pauseTimeMs=pauseTimeMs;
+      _maxPauseMs=maxPauseMs;
+      _allocatedBytes=allocatedBytes;
+    }
+  }
+
+  private final Set<String> _heapPools=new HashSet<String>();
+
+  /** The current interval, guarded by this. */
+  private int _pauses;
+  private long _pauseTimeMs;
+  private long _maxPauseMs;
+  private long _freedBytes;
+  private long _usedAtStart;
+
+  /** The whole run, guarded by this. */
+  private int _totalPauses;
+  private long _totalPauseTimeMs;
+  private long _totalMaxPauseMs;
+
+  GcMonitor()
+  {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+    {
+      if (pool.getType()==MemoryType.HEAP)
+      {
+        _heapPools.add(pool.getName());
+      }
+    }
+    _usedAtStart=usedHeap();
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+    {
+      if (bean instanceof NotificationEmitter)
+      {
+        ((NotificationEmitter) bean).addNotificationListener(this, null, null);
+      }
+    }
+  }
+
+  /**
+   * Stop following the collections.
+   */
+  void close()
+  {
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+    {
+      if (bean instanceof NotificationEmitter)
+      {
+        try
+        {
+          ((NotificationEmitter) bean).removeNotificationListener(this);
+        }
+        catch (ListenerNotFoundException e)
+        {
+          // was not registered
+        }
+      }
+    }
+  }
+
+  @Override
+  public void handleNotification(Notification notification, Object handback)
+  {
+    if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+    {
+      return;
+    }
+    GarbageCollectionNotificationInfo info=GarbageCollectionNotificationInfo.from(
+        (CompositeData) notification.getUserData());
+    long freed=0;
+    Map<String, MemoryUsage> after=info.getGcInfo().getMemoryUsageAfterGc();
+    for (Map.Entry<String, MemoryUsage> before : info.getGcInfo().getMemoryUsageBeforeGc().entrySet())
+    {
+      if (_heapPools.contains(before.getKey()) && after.containsKey(before.getKey()))
+      {
+        freed+=before.getValue().getUsed()-after.get(before.getKey()).getUsed();
+      }
+    }
+    recordCollection(isPause(info.getGcName()), info.getGcInfo().getDuration(), freed);
+  }
+
+  /**
+   * Whether the collections of the given collector stop the application.
+   */
+  static boolean isPause(String gcName)
+  {
+    return !gcName.contains("Concurrent") && !gcName.contains("Cycles");
+  }
+
+  synchronized void recordCollection(boolean pause, long durationMs, long freedBytes)
+  {
+    _freedBytes+=freedBytes;
+    if (pause)
+    {
+      _pauses++;
+      _pauseTimeMs+=durationMs;
+      _maxPauseMs=Math.max(_maxPauseMs, durationMs);
+      _totalPauses++;
+      _totalPauseTimeMs+=durationMs;
+      _totalMaxPauseMs=Math.max(_totalMaxPauseMs, durationMs);
+    }
+  }
+
+  /**
+   * Return the pauses and allocations since the last call, and start a new interval.
+   */
+  synchronized Interval nextInterval()
+  {
+    long used=usedHeap();
+    Interval interval=new Interval(_pauses, _pauseTimeMs, _maxPauseMs, Math.max(0, used-_usedAtStart+_freedBytes));
+    _pauses=0;
+    _pauseTimeMs=0;
+    _maxPauseMs=0;
+    _freedBytes=0;
+    _usedAtStart=used;
+    return interval;
+  }
+
+  synchronized int getTotalPauses()
+  {
+    return _totalPauses;
+  }
+
+  synchronized long getTotalPauseTimeMs()
+  {
+    return _totalPauseTimeMs;
+  }
+
+  synchronized long getMaxPauseMs()
+  {
+    return _totalMaxPauseMs;
+  }
+
+  private long usedHeap()
+  {
+    long used=0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+    {
+      if (_heapPools.contains(pool.getName()))
+      {
+        used+=pool.getUsage().getUsed();
+      }
+    }
+    return used;
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A thread measuring the stalls of the client platform, in the manner of jHiccup: it sleeps for
+ * a short fixed time over and over, and measures by how much each sleep overran. Whatever stalls
+ * this thread, a garbage collection, a safepoint, a starved CPU, stalls the client threads as well,
+ * so the hiccups are the part of the measured latencies the client itself may have added.
+ *
+ * The hiccups are measured in microseconds as the pseudo operation {@link #OPERATION}, next to the
+ * actual operations. The shortest sleep observed is taken as the baseline, so the cost of sleeping
+ * itself is not counted as a hiccup. Like a client issuing an operation per sleep, a hiccup
+ * longer than a sleep also stalled the sleeps that should have followed it, which are measured
+ * as well, so a long stall weighs on the percentiles as much as it would on the operations.
+ */
+public class HiccupMeter extends Thread
+{
+  /**
+   * Whether to measure the hiccups of the client.
+   */
+  public static final String HICCUP_PROPERTY="measurement.hiccup";
+  public static final String HICCUP_PROPERTY_DEFAULT="false";
+
+  /**
+   * How long the meter sleeps between two measurements, in milliseconds.
+   */
+  public static final String RESOLUTION_PROPERTY="measurement.hiccup.resolution_ms";
+  public static final String RESOLUTION_PROPERTY_DEFAULT="1";
+
+  /**
+   * The name the hiccups are measured under.
+   */
+  public static final String OPERATION="CLIENT_HICCUP";
+
+  private final long _resolutionNs;
+
+  private volatile boolean _stopped;
+
+  /**
+   * Create a hiccup meter if the properties ask for one.
+   *
+   * @return The unstarted meter, or null if the hiccups are not measured.
+   */
+  public static HiccupMeter create(Properties props)
+  {
+    if (!Boolean.parseBoolean(props.getProperty(HICCUP_PROPERTY, HICCUP_PROPERTY_DEFAULT)))
+    {
+      return null;
+    }
+    long resolutionMs=Long.parseLong(props.getProperty(RESOLUTION_PROPERTY, RESOLUTION_PROPERTY_DEFAULT));
+    if (resolutionMs<=0)
+    {
+      throw new IllegalArgumentException(RESOLUTION_PROPERTY+" must be positive, not "+resolutionMs);
+    }
+    return new HiccupMeter(TimeUnit.MILLISECONDS.toNanos(resolutionMs));
+  }
+
+  HiccupMeter(long resolutionNs)
+  {
+    super("HiccupMeter");
+    setDaemon(true);
+    _resolutionNs=resolutionNs;
+  }
+
+  /**
+   * Stop measuring and wait for the meter to finish.
+   */
+  public void terminate() throws InterruptedException
+  {
+    _stopped=true;
+    interrupt();
+    join();
+  }
+
+  @Override
+  public void run()
+  {
+    Measurements measurements=Measurements.getMeasurements();
+    long shortestNs=Long.MAX_VALUE;
+    while (!_stopped)
+    {
+      long start=System.nanoTime();
+      try
+      {
+        TimeUnit.NANOSECONDS.sleep(_resolutionNs);
+      }
+      catch (InterruptedException e)
+      {
+        // terminated
+        break;
+      }
+      long elapsedNs=System.nanoTime()-start;
+      shortestNs=Math.min(shortestNs, elapsedNs);
+      record(measurements, elapsedNs-shortestNs);
+    }
+  }
+
+  /**
+   * Measure one hiccup, and the sleeps it held up.
+   */
+  void record(Measurements measurements, long hiccupNs)
+  {
+    long hiccupUs=TimeUnit.NANOSECONDS.toMicros(hiccupNs);
+    long resolutionUs=TimeUnit.NANOSECONDS.toMicros(_resolutionNs);
+    measurements.measure(OPERATION, (int)Math.min(hiccupUs, Integer.MAX_VALUE));
+    for (long missed=hiccupUs-resolutionUs; missed>=resolutionUs; missed-=resolutionUs)
+    {
+      measurements.measure(OPERATION, (int)Math.min(missed, Integer.MAX_VALUE));
+    }
+  }
+}
@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A target throughput varying over time, used instead of the constant "target". The profile is a
+ * piecewise-linear curve through (seconds, ops/sec) points, which covers ramps, square-wave bursts
+ * (two points at the same time make a step) and arbitrary curves read from a CSV file. After the
+ * last point the profile either holds the last rate or starts over.
+ *
+ * The throttles do not sample the rate; they ask when the n-th operation is due, which is where the
+ * integral of the curve reaches n. Operations that start late are therefore measured from the time
+ * the profile intended them to start, as with a constant target.
+ */
+public class LoadProfile
+{
+  /**
+   * The kind of profile: "ramp" through the points of "loadprofile.points", "burst" alternating
+   * between two rates, or "csv" through the points of the "loadprofile.file" CSV file. Not set for
+   * a constant target.
+   */
+  public static final String LOAD_PROFILE_PROPERTY = "loadprofile";
+
+  /**
+   * The comma separated seconds:ops/sec points of a "ramp" profile, for example "0:100,60:5000".
+   */
+  public static final String POINTS_PROPERTY = "loadprofile.points";
+
+  /**
+   * The file of a "csv" profile, with one "seconds,ops/sec" point per line.
+   */
+  public static final String FILE_PROPERTY = "loadprofile.file";
+
+  /**
+   * Whether a "ramp" or "csv" profile starts over after its last point instead of holding its rate.
+   */
+  public static final String REPEAT_PROPERTY = "loadprofile.repeat";
+  public static final String REPEAT_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The rate between the bursts of a "burst" profile, in ops/sec.
+   */
+  public static final String BASE_PROPERTY = "loadprofile.base";
+
+  /**
+   * The rate during the bursts of a "burst" profile, in ops/sec.
+   */
+  public static final String PEAK_PROPERTY = "loadprofile.peak";
+
+  /**
+   * The number of seconds from the start of one burst to the next.
+   */
+  public static final String PERIOD_PROPERTY = "loadprofile.period";
+
+  /**
+   * The number of seconds each burst lasts.
+   */
+  public static final String BURST_LENGTH_PROPERTY = "loadprofile.burstlength";
+
+  /** The time of each point, in nanoseconds since the start of the profile. */
+  private final double[] _timesNs;
+
+  /** The rate at each point, in operations per nanosecond. */
+  private final double[] _rates;
+
+  /** The rate at each point, in operations per second. */
+  private final double[] _opsPerSec;
+
+  /** The number of operations offered up to each point. */
+  private final double[] _ops;
+
+  private final boolean _repeat;
+
+  /** The start of the profile, set when it is first used. */
+  private volatile long _startTimeNs;
+
+  /**
+   * Create a profile.
+   *
+   * @param seconds The time of each point, in seconds since the start, in ascending order.
+   * @param opsPerSec The rate at each point.
+   * @param repeat True to start over after the last point, false to hold its rate.
+   * @throws IllegalArgumentException if the profile would never offer another operation.
+   */
+  public LoadProfile(double[] seconds, double[] opsPerSec, boolean repeat)
+  {
+    if ((seconds.length == 0) || (seconds.length != opsPerSec.length))
+    {
+      throw new IllegalArgumentException("The load profile requires at least one point");
+    }
+    int n = seconds.length;
+    _timesNs = new double[n];
+    _rates = new double[n];
+    _opsPerSec = opsPerSec.clone();
+    _ops = new double[n];
+    for (int i = 0; i < n; i++)
+    {
+      if ((seconds[i] < 0) || ((i > 0) && (seconds[i] < seconds[i - 1])))
+      {
+        throw new IllegalArgumentException("The times of the load profile must be ascending from 0");
+      }
+      if (opsPerSec[i] < 0)
+      {
+        throw new IllegalArgumentException("The rates of the load profile must not be negative");
+      }
+      _timesNs[i] = seconds[i] * 1e9;
+      _rates[i] = opsPerSec[i] / 1e9;
+      if (i > 0)
+      {
+        _ops[i] = _ops[i - 1] + (_rates[i - 1] + _rates[i]) / 2 * (_timesNs[i] - _timesNs[i - 1]);
+      }
+      else
+      {
+        // the first rate applies from the start
+        _ops[i] = _rates[i] * _timesNs[i];
+      }
+    }
+    _repeat = repeat;
+    if (repeat ? (_ops[n - 1] <= 0) : (_rates[n - 1] <= 0))
+    {
+      throw new IllegalArgumentException("The load profile must not end with a rate of 0 unless it repeats");
+    }
+  }
+
+  /**
+   * A profile with a constant rate.
+   */
+  public static LoadProfile constant(double opsPerSec)
+  {
+    return new LoadProfile(new double[] {0}, new double[] {opsPerSec}, false);
+  }
+
+  /**
+   * Create the profile configured in the run properties.
+   *
+   * @return The profile, or null for a constant target.
+   * @throws IOException if the CSV file cannot be read.
+   * @throws IllegalArgumentException if the profile is invalid.
+   */
+  public static LoadProfile create(Properties props) throws IOException
+  {
+    String kind = props.getProperty(LOAD_PROFILE_PROPERTY);
+    if (kind == null)
+    {
+      return null;
+    }
+    boolean repeat = Boolean.parseBoolean(props.getProperty(REPEAT_PROPERTY, REPEAT_PROPERTY_DEFAULT));
+    List<double[]> points = new ArrayList<double[]>();
+    if (kind.equals("ramp"))
+    {
+      for (String point : required(props, POINTS_PROPERTY).split(","))
+      {
+        points.add(parsePoint(point, ":"));
+      }
+    }
+    else if (kind.equals("csv"))
+    {
+      try (BufferedReader reader = new BufferedReader(new FileReader(required(props, FILE_PROPERTY))))
+      {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+          line = line.trim();
+          if (line.isEmpty() || line.startsWith("#") || Character.isLetter(line.charAt(0)))
+          {
+            // blank lines, comments and a header
+            continue;
+          }
+          points.add(parsePoint(line, ","));
+        }
+      }
+    }
+    else if (kind.equals("burst"))
+    {
+      double base = Double.parseDouble(required(props, BASE_PROPERTY));
+      double peak = Double.parseDouble(required(props, PEAK_PROPERTY));
+      double period = Double.parseDouble(required(props, PERIOD_PROPERTY));
+      double length = Double.parseDouble(required(props, BURST_LENGTH_PROPERTY));
+      if ((length <= 0) || (length >= period))
+      {
+        throw new IllegalArgumentException(BURST_LENGTH_PROPERTY + " must be between 0 and " + PERIOD_PROPERTY);
+      }
+      points.add(new double[] {0, peak});
+      points.add(new double[] {length, peak});
+      points.add(new double[] {length, base});
+      points.add(new double[] {period, base});
+      repeat = true;
+    }
+    else
+    {
+      throw new IllegalArgumentException("Unknown " + LOAD_PROFILE_PROPERTY + " \"" + kind + "\"");
+    }
+
+    double[] seconds = new double[points.size()];
+    double[] rates = new double[points.size()];
+    for (int i = 0; i < points.size(); i++)
+    {
+      seconds[i] = points.get(i)[0];
+      rates[i] = points.get(i)[1];
+    }
+    return new LoadProfile(seconds, rates, repeat);
+  }
+
+  private static String required(Properties props, String key)
+  {
+    String value = props.getProperty(key);
+    if (value == null)
+    {
+      throw new IllegalArgumentException("The load profile requires \"" + key + "\"");
+    }
+    return value;
+  }
+
+  private static double[] parsePoint(String point, String separator)
+  {
+    String[] parts = point.split(separator);
+    if (parts.length != 2)
+    {
+      throw new IllegalArgumentException("Invalid load profile point \"" + point + "\"");
+    }
+    return new double[] {Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())};
+  }
+
+  /**
+   * The profile starts when it is first used rather than at construction, so the time the client
+   * threads spend in {@link DB#init()} is not counted as queueing delay.
+   *
+   * @return The start of the profile in {@link System#nanoTime()} terms.
+   */
+  public long startTimeNs()
+  {
+    long start = _startTimeNs;
+    if (start == 0)
+    {
+      synchronized (this)
+      {
+        start = _startTimeNs;
+        if (start == 0)
+        {
+          start = System.nanoTime();
+          _startTimeNs = start;
+        }
+      }
+    }
+    return start;
+  }
+
+  /**
+   * @return The time the given number of operations have been offered by, in nanoseconds since
+   *         the start of the profile.
+   */
+  public long offsetNs(double ops)
+  {
+    int last = _timesNs.length - 1;
+    double base = 0;
+    if (_repeat)
+    {
+      double periods = Math.floor(ops / _ops[last]);
+      base = periods * _timesNs[last];
+      ops -= periods * _ops[last];
+    }
+    else if (ops >= _ops[last])
+    {
+      return Math.round(_timesNs[last] + (ops - _ops[last]) * 1e9 / _opsPerSec[last]);
+    }
+
+    if (ops < _ops[0])
+    {
+      return Math.round(base + ops * 1e9 / _opsPerSec[0]);
+    }
+    // the segment in which the ops are reached
+    int i = upperBound(_ops, ops);
+    double rate = _rates[i - 1];
+    double accel = (_rates[i] - rate) / (_timesNs[i] - _timesNs[i - 1]);
+    double remaining = ops - _ops[i - 1];
+    double t = 0;
+    if (remaining > 0)
+    {
+      // solves rate * t + accel / 2 * t^2 = remaining, in a form stable for small accelerations
+      t = 2 * remaining / (rate + Math.sqrt(Math.max(0, rate * rate + 2 * accel * remaining)));
+    }
+    return Math.round(base + _timesNs[i - 1] + t);
+  }
+
+  /**
+   * @return The number of operations offered by the given time, in nanoseconds since the start of
+   *         the profile.
+   */
+  public double offeredOps(long offsetNs)
+  {
+    int last = _timesNs.length - 1;
+    double t = offsetNs;
+    double base = 0;
+    if (_repeat)
+    {
+      double periods = Math.floor(t / _timesNs[last]);
+      base = periods * _ops[last];
+      t -= periods * _timesNs[last];
+    }
+    else if (t >= _timesNs[last])
+    {
+      return _ops[last] + (t - _timesNs[last]) * _rates[last];
+    }
+
+    if (t < _timesNs[0])
+    {
+      return base + t * _rates[0];
+    }
+    int i = upperBound(_timesNs, t);
+    double rate = _rates[i - 1];
+    double accel = (_rates[i] - rate) / (_timesNs[i] - _timesNs[i - 1]);
+    double dt = t - _timesNs[i - 1];
+    return base + _ops[i - 1] + rate * dt + accel / 2 * dt * dt;
+  }
+
+  /**
+   * @return The number of operations offered since the start of the profile, 0 before it started.
+   */
+  public double offeredOpsAt(long nowNs)
+  {
+    long start = _startTimeNs;
+    return (start == 0) ? 0 : offeredOps(nowNs - start);
+  }
+
+  /** @return The index of the first element greater than the value. */
+  private static int upperBound(double[] values, double value)
+  {
+    int low = 0;
+    int high = values.length;
+    while (low < high)
+    {
+      int mid = (low + high) >>> 1;
+      if (values[mid] <= value)
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.HdrHistogram.Histogram;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An HTTP endpoint serving the progress of the run while it executes: "/metrics" in the
+ * Prometheus text format and "/metrics.json" as JSON.
+ *
+ * The metrics are those of the last status interval, published by the status thread each time it
+ * reports: the throughput, the latency percentiles of every operation during the interval (for
+ * the measurement types keeping an HdrHistogram), the return codes so far and JVM statistics.
+ * Requests never touch the measurements themselves.
+ */
+public final class MetricsServer
+{
+  /**
+   * The port to serve the metrics on, 0 for any free port. Not set for no endpoint.
+   */
+  public static final String PORT_PROPERTY = "metrics.port";
+
+  /**
+   * The address to serve the metrics on.
+   */
+  public static final String HOST_PROPERTY = "metrics.host";
+  public static final String HOST_PROPERTY_DEFAULT = "localhost";
+
+  /** The percentiles exported for every operation, as Prometheus quantiles and JSON fields. */
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+  private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999", "0.9999"};
+  private static final String[] FIELDS = {"p50", "p90", "p99", "p999", "p9999"};
+
+  /**
+   * The metrics of one status interval.
+   */
+  static final class Snapshot
+  {
+    final long _timestampMs;
+    final long _runtimeMs;
+    final long _operations;
+    final double _throughput;
+    final Map<String, Histogram> _latencies;
+    final Map<String, Map<String, Integer>> _statusCounts;
+    final int _threads;
+    final int _usedMemoryMb;
+    final double _loadAverage;
+    final long _gcCount;
+    final long _gcTimeMs;
+
+    /**
+     * @param runtimeMs The time since the start of the run.
+     * @param operations The operations done so far.
+     * @param throughput The operations per second during the interval.
+     * @param latencies What every measurement recorded during the interval.
+     * @param statusCounts The return codes of every measurement so far.
+     */
+    Snapshot(long runtimeMs, long operations, double throughput, Map<String, Histogram> latencies,
+        Map<String, Map<String, Integer>> statusCounts)
+    {
+      _timestampMs=System.currentTimeMillis();
+      _runtimeMs=runtimeMs;
+      _operations=operations;
+      _throughput=throughput;
+      _latencies=new TreeMap<String, Histogram>(latencies);
+      _statusCounts=new TreeMap<String, Map<String, Integer>>(statusCounts);
+      _threads=Utils.getActiveThreadCount();
+      _usedMemoryMb=Utils.getUsedMemoryMegaBytes();
+      _loadAverage=Utils.getSystemLoadAverage();
+      _gcCount=Utils.getGCTotalCollectionCount();
+      _gcTimeMs=Utils.getGCTotalTime();
+    }
+  }
+
+  private final HttpServer _server;
+
+  private volatile Snapshot _snapshot=new Snapshot(0, 0, 0, Collections.<String, Histogram>emptyMap(),
+      Collections.<String, Map<String, Integer>>emptyMap());
+
+  /**
+   * Start serving the metrics as configured, or return null when no port is configured.
+   */
+  public static MetricsServer start(Properties props) throws IOException
+  {
+    String port=props.getProperty(PORT_PROPERTY);
+    if (port==null)
+    {
+      return null;
+    }
+    return new MetricsServer(props.getProperty(HOST_PROPERTY, HOST_PROPERTY_DEFAULT), Integer.parseInt(port));
+  }
+
+  MetricsServer(String host, int port) throws IOException
+  {
+    _server=HttpServer.create(new InetSocketAddress(host, port), 0);
+    _server.createContext("/metrics", new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        if (exchange.getRequestURI().getPath().equals("/metrics.json"))
+        {
+          respond(exchange, "application/json", toJson(_snapshot));
+        }
+        else if (exchange.getRequestURI().getPath().equals("/metrics"))
+        {
+          respond(exchange, "text/plain; version=0.0.4", toPrometheus(_snapshot));
+        }
+        else
+        {
+          exchange.sendResponseHeaders(404, -1);
+          exchange.close();
+        }
+      }
+    });
+    // a daemon thread, so the endpoint does not keep the client from exiting
+    _server.setExecutor(Executors.newSingleThreadExecutor(new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable r)
+      {
+        Thread thread=new Thread(r, "metrics-server");
+        thread.setDaemon(true);
+        return thread;
+      }
+    }));
+    _server.start();
+    System.err.println("Serving metrics on http://"+host+":"+getPort()+"/metrics");
+  }
+
+  /**
+   * The port the metrics are served on.
+   */
+  public int getPort()
+  {
+    return _server.getAddress().getPort();
+  }
+
+  /**
+   * Serve the given metrics from now on.
+   */
+  void publish(Snapshot snapshot)
+  {
+    _snapshot=snapshot;
+  }
+
+  public void stop()
+  {
+    _server.stop(0);
+  }
+
+  private static void respond(HttpExchange exchange, String contentType, String body) throws IOException
+  {
+    byte[] bytes=body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType+"; charset=utf-8");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out=exchange.getResponseBody())
+    {
+      out.write(bytes);
+    }
+  }
+
+  static String toPrometheus(Snapshot snapshot)
+  {
+    StringBuilder out=new StringBuilder();
+    metric(out, "ycsb_runtime_seconds", "gauge", "Time since the start of the run.");
+    out.append("ycsb_runtime_seconds ").append(snapshot._runtimeMs/1000.0).append('\n');
+    metric(out, "ycsb_operations_total", "counter", "Operations done since the start of the run.");
+    out.append("ycsb_operations_total ").append(snapshot._operations).append('\n');
+    metric(out, "ycsb_throughput_ops_per_second", "gauge", "Throughput during the last status interval.");
+    out.append("ycsb_throughput_ops_per_second ").append(snapshot._throughput).append('\n');
+
+    // gauges rather than a summary: the counts are those of the interval, not cumulative
+    metric(out, "ycsb_latency_us", "gauge", "Latency percentiles during the last status interval.");
+    for (Map.Entry<String, Histogram> entry : snapshot._latencies.entrySet())
+    {
+      for (int i=0; i<PERCENTILES.length; i++)
+      {
+        out.append("ycsb_latency_us{operation=\"").append(entry.getKey()).append("\",quantile=\"").append(QUANTILES[i])
+            .append("\"} ").append(entry.getValue().getValueAtPercentile(PERCENTILES[i])).append('\n');
+      }
+    }
+    metric(out, "ycsb_latency_max_us", "gauge", "Highest latency during the last status interval.");
+    for (Map.Entry<String, Histogram> entry : snapshot._latencies.entrySet())
+    {
+      out.append("ycsb_latency_max_us{operation=\"").append(entry.getKey()).append("\"} ")
+          .append(entry.getValue().getMaxValue()).append('\n');
+    }
+    metric(out, "ycsb_latency_mean_us", "gauge", "Mean latency during the last status interval.");
+    for (Map.Entry<String, Histogram> entry : snapshot._latencies.entrySet())
+    {
+      out.append("ycsb_latency_mean_us{operation=\"").append(entry.getKey()).append("\"} ")
+          .append(entry.getValue().getMean()).append('\n');
+    }
+    metric(out, "ycsb_interval_operations", "gauge", "Operations measured during the last status interval.");
+    for (Map.Entry<String, Histogram> entry : snapshot._latencies.entrySet())
+    {
+      out.append("ycsb_interval_operations{operation=\"").append(entry.getKey()).append("\"} ")
+          .append(entry.getValue().getTotalCount()).append('\n');
+    }
+
+    metric(out, "ycsb_return_codes_total", "counter", "Operations by return code since the start of the run.");
+    for (Map.Entry<String, Map<String, Integer>> entry : snapshot._statusCounts.entrySet())
+    {
+      for (Map.Entry<String, Integer> status : entry.getValue().entrySet())
+      {
+        out.append("ycsb_return_codes_total{operation=\"").append(entry.getKey()).append("\",status=\"")
+            .append(status.getKey()).append("\"} ").append(status.getValue()).append('\n');
+      }
+    }
+
+    metric(out, "ycsb_jvm_threads", "gauge", "Active threads of the client.");
+    out.append("ycsb_jvm_threads ").append(snapshot._threads).append('\n');
+    metric(out, "ycsb_jvm_used_memory_megabytes", "gauge", "Heap used by the client.");
+    out.append("ycsb_jvm_used_memory_megabytes ").append(snapshot._usedMemoryMb).append('\n');
+    if (snapshot._loadAverage>=0)
+    {
+      metric(out, "ycsb_system_load_average", "gauge", "System load average of the client machine.");
+      out.append("ycsb_system_load_average ").append(snapshot._loadAverage).append('\n');
+    }
+    metric(out, "ycsb_jvm_gc_collections_total", "counter", "Garbage collections of the client.");
+    out.append("ycsb_jvm_gc_collections_total ").append(snapshot._gcCount).append('\n');
+    metric(out, "ycsb_jvm_gc_time_seconds_total", "counter", "Time spent in garbage collection by the client.");
+    out.append("ycsb_jvm_gc_time_seconds_total ").append(snapshot._gcTimeMs/1000.0).append('\n');
+    return out.toString();
+  }
+
+  private static void metric(StringBuilder out, String name, String type, String help)
+  {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  static String toJson(Snapshot snapshot) throws IOException
+  {
+    StringWriter out=new StringWriter();
+    JsonGenerator g=new JsonFactory().createJsonGenerator(out);
+    g.writeStartObject();
+    g.writeNumberField("timestamp", snapshot._timestampMs);
+    g.writeNumberField("runtime", snapshot._runtimeMs);
+    g.writeNumberField("operations", snapshot._operations);
+    g.writeNumberField("throughput", snapshot._throughput);
+
+    g.writeObjectFieldStart("latencies");
+    for (Map.Entry<String, Histogram> entry : snapshot._latencies.entrySet())
+    {
+      Histogram histogram=entry.getValue();
+      g.writeObjectFieldStart(entry.getKey());
+      g.writeNumberField("count", histogram.getTotalCount());
+      g.writeNumberField("mean", histogram.getMean());
+      g.writeNumberField("min", histogram.getMinValue());
+      for (int i=0; i<PERCENTILES.length; i++)
+      {
+        g.writeNumberField(FIELDS[i], histogram.getValueAtPercentile(PERCENTILES[i]));
+      }
+      g.writeNumberField("max", histogram.getMaxValue());
+      g.writeEndObject();
+    }
+    g.writeEndObject();
+
+    g.writeObjectFieldStart("returncodes");
+    for (Map.Entry<String, Map<String, Integer>> entry : snapshot._statusCounts.entrySet())
+    {
+      g.writeObjectFieldStart(entry.getKey());
+      for (Map.Entry<String, Integer> status : entry.getValue().entrySet())
+      {
+        g.writeNumberField(status.getKey(), status.getValue());
+      }
+      g.writeEndObject();
+    }
+    g.writeEndObject();
+
+    g.writeObjectFieldStart("jvm");
+    g.writeNumberField("threads", snapshot._threads);
+    g.writeNumberField("usedmemorymb", snapshot._usedMemoryMb);
+    g.writeNumberField("loadaverage", snapshot._loadAverage);
+    g.writeNumberField("gccount", snapshot._gcCount);
+    g.writeNumberField("gctimems", snapshot._gcTimeMs);
+    g.writeEndObject();
+
+    g.writeEndObject();
+    g.close();
+    return out.toString();
+  }
+}
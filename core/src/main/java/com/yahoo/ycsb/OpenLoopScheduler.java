@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues operation arrival times for the open loop load model. Arrivals follow
+ * a fixed or Poisson schedule derived from the target throughput only, so a
+ * slow or stalled datastore does not slow down the rate at which operations
+ * are offered. The client threads act as a bounded pool of executors: each
+ * one claims the next arrival, waits for it if it is in the future and
+ * executes it immediately if it is already overdue. Overdue operations show up
+ * as queueing delay in the intended latency measurements.
+ */
+public class OpenLoopScheduler
+{
+  /**
+   * The distribution of operation inter-arrival times in the open loop model.
+   * Options are "fixed" and "poisson".
+   */
+  public static final String ARRIVAL_DISTRIBUTION_PROPERTY = "arrivaldistribution";
+
+  /**
+   * The default inter-arrival time distribution.
+   */
+  public static final String ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT = "fixed";
+
+  /** The total number of operations to issue; 0 for no limit. */
+  private final long _opcount;
+
+  /** The rate at which operations are issued. */
+  private final LoadProfile _profile;
+
+  /** Whether inter-arrival times are exponentially distributed. */
+  private final boolean _poisson;
+
+  /** The number of arrivals issued so far. */
+  private final AtomicLong _issued = new AtomicLong();
+
+  /**
+   * The position of the next Poisson arrival on the profile, in operations, as the bits of a
+   * double. Exponential steps in operations become exponential inter-arrival times at the rate of
+   * the profile wherever the arrival falls.
+   */
+  private final AtomicLong _nextArrivalOps = new AtomicLong(Double.doubleToLongBits(0));
+
+  /**
+   * Create a scheduler.
+   *
+   * @param targetOpsPerSec The aggregate rate at which operations are issued.
+   * @param opcount The total number of operations to issue, or 0 for no limit.
+   * @param poisson True for exponentially distributed inter-arrival times,
+   *                false for a fixed interval between arrivals.
+   */
+  public OpenLoopScheduler(double targetOpsPerSec, long opcount, boolean poisson)
+  {
+    this(constantProfile(targetOpsPerSec), opcount, poisson);
+  }
+
+  /**
+   * Create a scheduler following a load profile.
+   *
+   * @param profile The aggregate rate at which operations are issued over time.
+   * @param opcount The total number of operations to issue, or 0 for no limit.
+   * @param poisson True for exponentially distributed inter-arrival times,
+   *                false for evenly spaced arrivals.
+   */
+  public OpenLoopScheduler(LoadProfile profile, long opcount, boolean poisson)
+  {
+    _opcount = opcount;
+    _profile = profile;
+    _poisson = poisson;
+  }
+
+  private static LoadProfile constantProfile(double targetOpsPerSec)
+  {
+    if (targetOpsPerSec <= 0)
+    {
+      throw new IllegalArgumentException("The open loop model requires a positive target throughput");
+    }
+    return LoadProfile.constant(targetOpsPerSec);
+  }
+
+  /**
+   * Claim the next operation.
+   *
+   * @return The intended start time of the operation in {@link System#nanoTime()} terms,
+   *         or -1 if all operations have already been issued.
+   */
+  public long nextArrivalNs()
+  {
+    long n = _issued.getAndIncrement();
+    if ((_opcount > 0) && (n >= _opcount))
+    {
+      return -1;
+    }
+
+    long start = _profile.startTimeNs();
+    if (!_poisson)
+    {
+      return start + _profile.offsetNs(n);
+    }
+    double gap = -Math.log(1.0 - Utils.random().nextDouble());
+    while (true)
+    {
+      long bits = _nextArrivalOps.get();
+      double ops = Double.longBitsToDouble(bits);
+      if (_nextArrivalOps.compareAndSet(bits, Double.doubleToLongBits(ops + gap)))
+      {
+        return start + _profile.offsetNs(ops);
+      }
+    }
+  }
+}
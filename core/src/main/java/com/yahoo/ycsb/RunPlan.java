@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A sequence of phases, for example a load, a warmup and a measured run, executed back to back by
+ * one client process so the DB connections, the JIT-compiled code and the workload's precomputed
+ * state stay warm. The plan is a properties file:
+ *
+ * <pre>
+ * phases=load,warmup,run
+ * phase.load.dotransactions=false
+ * phase.warmup.maxexecutiontime=60
+ * phase.run.properties=workloads/workloadb
+ * phase.run.target=5000
+ * </pre>
+ *
+ * Each phase starts from the client's properties, then applies the property files listed in
+ * "phase.&lt;name&gt;.properties", then the "phase.&lt;name&gt;.*" entries. Any other entry of the plan
+ * applies to all phases. The properties given with -p on the command line come last, so they
+ * override the plan as they override the -P files.
+ */
+public class RunPlan
+{
+  /**
+   * The property naming the run plan file.
+   */
+  public static final String RUN_PLAN_PROPERTY = "runplan";
+
+  /** The comma separated list of phase names, in execution order. */
+  public static final String PHASES_KEY = "phases";
+
+  /** The prefix of the per phase properties. */
+  public static final String PHASE_PREFIX = "phase.";
+
+  /** The per phase list of property files. */
+  public static final String PHASE_PROPERTY_FILES_KEY = "properties";
+
+  /**
+   * One phase of a plan.
+   */
+  public static class Phase
+  {
+    private final String _name;
+    private final Properties _props;
+
+    public Phase(String name, Properties props)
+    {
+      _name = name;
+      _props = props;
+    }
+
+    /** The name of the phase, as listed in the plan. */
+    public String getName()
+    {
+      return _name;
+    }
+
+    /** The complete set of properties to run the phase with. */
+    public Properties getProperties()
+    {
+      return _props;
+    }
+  }
+
+  private final List<Phase> _phases;
+
+  private RunPlan(List<Phase> phases)
+  {
+    _phases = phases;
+  }
+
+  /**
+   * @return The phases, in execution order.
+   */
+  public List<Phase> getPhases()
+  {
+    return Collections.unmodifiableList(_phases);
+  }
+
+  /**
+   * Read a plan file.
+   *
+   * @param file The plan file.
+   * @param base The client's properties, which every phase starts from.
+   * @param overrides The properties given on the command line, which every phase ends with.
+   * @return The plan.
+   * @throws IOException if the plan or one of the property files it names cannot be read.
+   * @throws IllegalArgumentException if the plan does not list any phases.
+   */
+  public static RunPlan load(String file, Properties base, Properties overrides) throws IOException
+  {
+    Properties plan = new Properties();
+    try (InputStream in = new FileInputStream(file))
+    {
+      plan.load(in);
+    }
+    return create(plan, base, overrides);
+  }
+
+  /**
+   * Create a plan from its properties.
+   *
+   * @param plan The contents of the plan file.
+   * @param base The client's properties, which every phase starts from.
+   * @param overrides The properties given on the command line, which every phase ends with.
+   * @return The plan.
+   * @throws IOException if one of the property files the plan names cannot be read.
+   * @throws IllegalArgumentException if the plan does not list any phases.
+   */
+  public static RunPlan create(Properties plan, Properties base, Properties overrides) throws IOException
+  {
+    String names = plan.getProperty(PHASES_KEY, "").trim();
+    if (names.isEmpty())
+    {
+      throw new IllegalArgumentException("The run plan does not list any \"" + PHASES_KEY + "\"");
+    }
+
+    Properties common = new Properties();
+    copy(base, common);
+    for (String key : plan.stringPropertyNames())
+    {
+      if (!key.equals(PHASES_KEY) && !key.startsWith(PHASE_PREFIX))
+      {
+        common.setProperty(key, plan.getProperty(key));
+      }
+    }
+
+    List<Phase> phases = new ArrayList<Phase>();
+    for (String name : names.split(","))
+    {
+      name = name.trim();
+      String prefix = PHASE_PREFIX + name + ".";
+
+      Properties props = new Properties();
+      copy(common, props);
+
+      String files = plan.getProperty(prefix + PHASE_PROPERTY_FILES_KEY);
+      if (files != null)
+      {
+        for (String propfile : files.split(","))
+        {
+          try (InputStream in = new FileInputStream(propfile.trim()))
+          {
+            props.load(in);
+          }
+        }
+      }
+
+      for (String key : plan.stringPropertyNames())
+      {
+        if (key.startsWith(prefix) && !key.equals(prefix + PHASE_PROPERTY_FILES_KEY))
+        {
+          props.setProperty(key.substring(prefix.length()), plan.getProperty(key));
+        }
+      }
+      copy(overrides, props);
+      phases.add(new Phase(name, props));
+    }
+    return new RunPlan(phases);
+  }
+
+  private static void copy(Properties from, Properties to)
+  {
+    for (String key : from.stringPropertyNames())
+    {
+      to.setProperty(key, from.getProperty(key));
+    }
+  }
+}
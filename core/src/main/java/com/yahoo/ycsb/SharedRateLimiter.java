@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket shared by all client threads, used instead of throttling each thread to an even
+ * share of the target. Permits are issued at the target rate and taken by whichever thread asks
+ * first, so threads that are free pick up the slack of threads blocked on slow operations.
+ *
+ * Each permit has a time, the moment it was issued; a thread waits for the time of its permit
+ * and records it as the intended start time of the operation, so the latency of an operation
+ * started late because all threads were busy includes the delay. Permits are claimed with one
+ * compare-and-set on a shared counter, optionally several at a time to reduce contention.
+ */
+public class SharedRateLimiter
+{
+  /**
+   * The number of permits a thread claims at a time. Larger batches reduce contention on the
+   * bucket, but a thread blocked on a slow operation holds on to the rest of its batch.
+   */
+  public static final String BATCH_PROPERTY = "throttle.batch";
+
+  /**
+   * The default permit batch.
+   */
+  public static final String BATCH_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The number of permits that accumulate while all threads are busy, 0 for no limit. Permits
+   * beyond it expire, so the client does not try to catch up with a long stall.
+   */
+  public static final String BURST_PROPERTY = "throttle.burst";
+
+  /**
+   * The default burst, no limit.
+   */
+  public static final String BURST_PROPERTY_DEFAULT = "0";
+
+  private final int _batch;
+  private final long _burst;
+
+  /** The time between two permits. */
+  private volatile double _intervalNs;
+
+  /** The time of the next permit to issue, 0 until the first one is claimed. */
+  private final AtomicLong _nextPermitNs = new AtomicLong();
+
+  /** The rate over time when following a load profile, null for a constant rate. */
+  private final LoadProfile _profile;
+
+  /** The number of permits issued so far when following a load profile. */
+  private final AtomicLong _issued = new AtomicLong();
+
+  /** The permits a thread claimed but did not use yet. */
+  private final ThreadLocal<long[]> _claimed = new ThreadLocal<long[]>()
+  {
+    @Override
+    protected long[] initialValue()
+    {
+      // the time (or, with a profile, the index) of the next permit, the step to the one after
+      // and the number of permits left
+      return new long[3];
+    }
+  };
+
+  /**
+   * Create a limiter.
+   *
+   * @param targetOpsPerSec The rate at which permits are issued.
+   * @param batch The number of permits claimed at a time.
+   * @param burst The number of permits that accumulate at most, 0 for no limit.
+   */
+  public SharedRateLimiter(double targetOpsPerSec, int batch, long burst)
+  {
+    if (batch < 1)
+    {
+      throw new IllegalArgumentException("The permit batch must be at least 1");
+    }
+    setRate(targetOpsPerSec);
+    _batch = batch;
+    _burst = burst;
+    _profile = null;
+  }
+
+  /**
+   * Create a limiter following a load profile. Permits do not expire; each is due when the profile
+   * has offered as many operations.
+   *
+   * @param profile The rate at which permits are issued over time.
+   * @param batch The number of permits claimed at a time.
+   */
+  public SharedRateLimiter(LoadProfile profile, int batch)
+  {
+    if (batch < 1)
+    {
+      throw new IllegalArgumentException("The permit batch must be at least 1");
+    }
+    _batch = batch;
+    _burst = 0;
+    _profile = profile;
+  }
+
+  /**
+   * Create a limiter from the run properties.
+   *
+   * @param targetOpsPerSec The rate at which permits are issued.
+   */
+  public static SharedRateLimiter create(double targetOpsPerSec, Properties props)
+  {
+    return new SharedRateLimiter(targetOpsPerSec,
+        Integer.parseInt(props.getProperty(BATCH_PROPERTY, BATCH_PROPERTY_DEFAULT)),
+        Long.parseLong(props.getProperty(BURST_PROPERTY, BURST_PROPERTY_DEFAULT)));
+  }
+
+  /**
+   * Create a limiter following a load profile from the run properties.
+   *
+   * @param profile The rate at which permits are issued over time.
+   */
+  public static SharedRateLimiter create(LoadProfile profile, Properties props)
+  {
+    return new SharedRateLimiter(profile,
+        Integer.parseInt(props.getProperty(BATCH_PROPERTY, BATCH_PROPERTY_DEFAULT)));
+  }
+
+  /**
+   * Change the rate, which applies to the permits claimed from now on.
+   *
+   * @param targetOpsPerSec The rate at which permits are issued.
+   */
+  public void setRate(double targetOpsPerSec)
+  {
+    if (targetOpsPerSec <= 0)
+    {
+      throw new IllegalArgumentException("The shared throttle requires a positive target throughput");
+    }
+    _intervalNs = 1000000000.0 / targetOpsPerSec;
+  }
+
+  /**
+   * Take a permit.
+   *
+   * @return The time of the permit in {@link System#nanoTime()} terms, which the caller should
+   *         wait for before starting the operation and record as its intended start time.
+   */
+  public long acquire()
+  {
+    long[] claimed = _claimed.get();
+    if (claimed[2] == 0)
+    {
+      if (_profile != null)
+      {
+        claimed[0] = _issued.getAndAdd(_batch);
+        claimed[1] = 1;
+      }
+      else
+      {
+        long intervalNs = (long) _intervalNs;
+        claimed[0] = claim(_batch, intervalNs);
+        claimed[1] = intervalNs;
+      }
+      claimed[2] = _batch;
+    }
+    long permit = claimed[0];
+    claimed[0] += claimed[1];
+    claimed[2]--;
+    if (_profile != null)
+    {
+      return _profile.startTimeNs() + _profile.offsetNs(permit);
+    }
+    return permit;
+  }
+
+  private long claim(int permits, long intervalNs)
+  {
+    while (true)
+    {
+      long next = _nextPermitNs.get();
+      long now = System.nanoTime();
+      long first = next;
+      if (first == 0)
+      {
+        first = now;
+      }
+      else if ((_burst > 0) && (first < now - _burst * intervalNs))
+      {
+        first = now - _burst * intervalNs;
+      }
+      if (_nextPermitNs.compareAndSet(next, first + permits * intervalNs))
+      {
+        return first;
+      }
+    }
+  }
+}
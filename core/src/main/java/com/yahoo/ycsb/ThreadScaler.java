@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.HdrHistogram.Histogram;
+import org.apache.htrace.core.Tracer;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Maps throughput and latency against the number of client threads in one run. The run starts with
+ * "threadcount" threads; after each window more threads are added, each with its own DB instance,
+ * until the maximum is reached or the throughput stops rising. The throughput and latency
+ * percentiles of every window are reported through the exporter.
+ */
+public class ThreadScaler extends Thread
+{
+  /**
+   * Whether to add client threads during the run.
+   */
+  public static final String THREAD_SCALING_PROPERTY = "threadscaling";
+  public static final String THREAD_SCALING_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The number of threads added after each window.
+   */
+  public static final String STEP_PROPERTY = "threadscaling.step";
+  public static final String STEP_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The number of seconds each thread count is held.
+   */
+  public static final String WINDOW_PROPERTY = "threadscaling.window";
+  public static final String WINDOW_PROPERTY_DEFAULT = "30";
+
+  /**
+   * The highest number of threads, 0 for no limit.
+   */
+  public static final String MAX_THREADS_PROPERTY = "threadscaling.max";
+  public static final String MAX_THREADS_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The relative throughput gain below which adding threads stops, 0 to keep adding them until
+   * the maximum is reached.
+   */
+  public static final String MIN_GAIN_PROPERTY = "threadscaling.mingain";
+  public static final String MIN_GAIN_PROPERTY_DEFAULT = "0.05";
+
+  /** The latency percentiles reported for each window. */
+  private static final double[] PERCENTILES = {50, 95, 99, 99.9};
+
+  /**
+   * The result of one thread count.
+   */
+  static class Step
+  {
+    final int _threads;
+    final double _throughput;
+    final Map<String, Histogram> _histograms;
+
+    Step(int threads, double throughput, Map<String, Histogram> histograms)
+    {
+      _threads = threads;
+      _throughput = throughput;
+      _histograms = histograms;
+    }
+  }
+
+  private final int _step;
+  private final long _windowMs;
+  private final int _maxThreads;
+  private final double _minGain;
+
+  private final String _dbname;
+  private final Properties _props;
+  private final Tracer _tracer;
+  private final boolean _virtual;
+
+  private List<ClientThread> _clients;
+  private Workload _workload;
+
+  /** The threads added by the scaler and their clients. */
+  private final List<Thread> _added = new ArrayList<Thread>();
+  private final List<ClientThread> _addedClients = new ArrayList<ClientThread>();
+
+  private final List<Step> _steps = new ArrayList<Step>();
+
+  /**
+   * Create a scaler from the run properties.
+   *
+   * @param dbname The DB class the added threads use.
+   * @param tracer The tracer the added threads are wrapped with.
+   * @param virtual Whether the added threads are virtual threads.
+   * @throws IllegalArgumentException if the properties are invalid.
+   */
+  public ThreadScaler(Properties props, String dbname, Tracer tracer, boolean virtual)
+  {
+    super("ThreadScaler");
+    setDaemon(true);
+    _step = Integer.parseInt(props.getProperty(STEP_PROPERTY, STEP_PROPERTY_DEFAULT));
+    _windowMs = 1000L * Integer.parseInt(props.getProperty(WINDOW_PROPERTY, WINDOW_PROPERTY_DEFAULT));
+    _maxThreads = Integer.parseInt(props.getProperty(MAX_THREADS_PROPERTY, MAX_THREADS_PROPERTY_DEFAULT));
+    _minGain = Double.parseDouble(props.getProperty(MIN_GAIN_PROPERTY, MIN_GAIN_PROPERTY_DEFAULT));
+    if ((_step <= 0) || (_windowMs <= 0))
+    {
+      throw new IllegalArgumentException(STEP_PROPERTY + " and " + WINDOW_PROPERTY + " must be positive");
+    }
+    if ((_maxThreads <= 0) && (_minGain <= 0))
+    {
+      throw new IllegalArgumentException("Thread scaling requires " + MAX_THREADS_PROPERTY + " or " + MIN_GAIN_PROPERTY);
+    }
+    _dbname = dbname;
+    _props = props;
+    _tracer = tracer;
+    _virtual = virtual;
+  }
+
+  /**
+   * @return Whether the properties ask for thread scaling.
+   */
+  public static boolean isEnabled(Properties props)
+  {
+    return Boolean.parseBoolean(props.getProperty(THREAD_SCALING_PROPERTY, THREAD_SCALING_PROPERTY_DEFAULT));
+  }
+
+  /**
+   * Set the running client threads, which the added threads are appended to, and the workload to
+   * stop once the scaling is complete.
+   *
+   * @param clients The client threads, a list safe to append to while other threads iterate it.
+   */
+  void setClients(List<ClientThread> clients, Workload workload)
+  {
+    _clients = clients;
+    _workload = workload;
+  }
+
+  @Override
+  public void run()
+  {
+    DecimalFormat d = new DecimalFormat("#.##");
+    Map<String, Histogram> before = Measurements.getMeasurements().getCumulativeHistograms();
+    long opsBefore = getOpsDone();
+    long startMs = System.currentTimeMillis();
+    try
+    {
+      while (true)
+      {
+        int threads = _clients.size();
+        System.err.println("Thread scaling: holding " + threads + " threads for " + (_windowMs / 1000) + " sec");
+        Thread.sleep(_windowMs);
+
+        Map<String, Histogram> after = Measurements.getMeasurements().getCumulativeHistograms();
+        long opsAfter = getOpsDone();
+        long endMs = System.currentTimeMillis();
+        Step step = new Step(threads, 1000.0 * (opsAfter - opsBefore) / (endMs - startMs),
+            Measurements.getIntervalHistograms(before, after));
+        System.err.println("Thread scaling: " + threads + " threads, " + d.format(step._throughput) + " ops/sec");
+
+        Step previous = _steps.isEmpty() ? null : _steps.get(_steps.size() - 1);
+        synchronized (_steps)
+        {
+          _steps.add(step);
+        }
+        if ((_minGain > 0) && (previous != null) && (step._throughput < previous._throughput * (1 + _minGain)))
+        {
+          System.err.println("Thread scaling: the throughput stopped rising");
+          break;
+        }
+        if ((_maxThreads > 0) && (threads >= _maxThreads))
+        {
+          break;
+        }
+        int add = (_maxThreads > 0) ? Math.min(_step, _maxThreads - threads) : _step;
+        if (!addThreads(add))
+        {
+          break;
+        }
+
+        before = Measurements.getMeasurements().getCumulativeHistograms();
+        opsBefore = getOpsDone();
+        startMs = System.currentTimeMillis();
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // the run ended before the scaling did, report what was found so far and stop the threads
+      // added, which have no operation count of their own to end on
+    }
+    _workload.requestStop();
+  }
+
+  private boolean addThreads(int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      ClientThread client;
+      Thread thread;
+      try
+      {
+        client = _clients.get(0).newSibling(DBFactory.newDB(_dbname, _props, _tracer), new CountDownLatch(1));
+        thread = Client.newClientThread(_tracer.wrap(client, "ClientThread"), _virtual);
+      }
+      catch (UnknownDBException | ReflectiveOperationException e)
+      {
+        System.err.println("Thread scaling: could not add a client thread: " + e);
+        return false;
+      }
+      synchronized (_added)
+      {
+        _added.add(thread);
+        _addedClients.add(client);
+      }
+      _clients.add(client);
+      thread.start();
+    }
+    return true;
+  }
+
+  private long getOpsDone()
+  {
+    long ops = 0;
+    for (ClientThread client : _clients)
+    {
+      ops += client.getOpsDone();
+    }
+    return ops;
+  }
+
+  /**
+   * Wait for the threads added by the scaler to complete, once the scaler stopped the workload.
+   *
+   * @return The number of operations they completed.
+   */
+  public long joinAddedThreads() throws InterruptedException
+  {
+    long ops = 0;
+    synchronized (_added)
+    {
+      for (int i = 0; i < _added.size(); i++)
+      {
+        _added.get(i).join();
+        ops += _addedClients.get(i).getOpsDone();
+      }
+    }
+    return ops;
+  }
+
+  /**
+   * Export the throughput and latency percentiles of each thread count.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    Step peak = null;
+    synchronized (_steps)
+    {
+      for (int i = 0; i < _steps.size(); i++)
+      {
+        Step step = _steps.get(i);
+        String metric = "THREAD_SCALING_STEP_" + i;
+        exporter.write(metric, "Threads", step._threads);
+        exporter.write(metric, "Throughput(ops/sec)", step._throughput);
+        for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(step._histograms).entrySet())
+        {
+          Histogram histogram = entry.getValue();
+          exporter.write(metric, entry.getKey() + " AverageLatency(us)", histogram.getMean());
+          for (double percentile : PERCENTILES)
+          {
+            exporter.write(metric, entry.getKey() + " " + new DecimalFormat("#.#").format(percentile)
+                + "thPercentileLatency(us)", histogram.getValueAtPercentile(percentile));
+          }
+          exporter.write(metric, entry.getKey() + " MaxLatency(us)", histogram.getMaxValue());
+        }
+        if ((peak == null) || (step._throughput > peak._throughput))
+        {
+          peak = step;
+        }
+      }
+    }
+    if (peak != null)
+    {
+      exporter.write("THREAD_SCALING", "PeakThreads", peak._threads);
+      exporter.write("THREAD_SCALING", "PeakThroughput(ops/sec)", peak._throughput);
+    }
+  }
+}
@@ -0,0 +1,389 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Searches for the highest aggregate target throughput at which the latencies meet a service level
+ * objective. The client threads are throttled to one target after the other, each held for a
+ * window; a target meets the objective when the p99 and p99.9 latencies of every objective
+ * operation recorded during its window are within bounds and the client threads actually achieved
+ * the target. The "step" search raises the target by a fixed step until it fails, the "bisect"
+ * search doubles the target until it fails and then bisects between the last target that met the
+ * objective and the first one that did not.
+ */
+public class ThroughputSearch extends Thread
+{
+  /**
+   * The search strategy, "step" or "bisect". Not set to run without a search.
+   */
+  public static final String SEARCH_PROPERTY = "slo.search";
+
+  /**
+   * The bound on the p99 latency in microseconds, 0 for none.
+   */
+  public static final String P99_PROPERTY = "slo.p99";
+  public static final String P99_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The bound on the p99.9 latency in microseconds, 0 for none.
+   */
+  public static final String P999_PROPERTY = "slo.p999";
+  public static final String P999_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The comma separated operations the objective applies to; operations not performed by the
+   * workload are ignored.
+   */
+  public static final String OPERATIONS_PROPERTY = "slo.operations";
+  public static final String OPERATIONS_PROPERTY_DEFAULT = "READ,UPDATE,INSERT,SCAN,READ-MODIFY-WRITE,DELETE";
+
+  /**
+   * The number of seconds each target is held.
+   */
+  public static final String WINDOW_PROPERTY = "slo.window";
+  public static final String WINDOW_PROPERTY_DEFAULT = "30";
+
+  /**
+   * The first target, in operations per second.
+   */
+  public static final String START_TARGET_PROPERTY = "slo.target.start";
+  public static final String START_TARGET_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * The step between two targets of the "step" search and the precision of the "bisect" search.
+   */
+  public static final String STEP_PROPERTY = "slo.target.step";
+  public static final String STEP_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * The highest target tried, 0 for no limit.
+   */
+  public static final String MAX_TARGET_PROPERTY = "slo.target.max";
+  public static final String MAX_TARGET_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The fraction of a target the client threads must achieve for it to meet the objective.
+   */
+  public static final String ACHIEVED_PROPERTY = "slo.achieved";
+  public static final String ACHIEVED_PROPERTY_DEFAULT = "0.95";
+
+  /**
+   * The result of holding one target.
+   */
+  public static class Step
+  {
+    final int _target;
+    final double _achieved;
+    final long _p99;
+    final long _p999;
+    final boolean _met;
+
+    Step(int target, double achieved, long p99, long p999, boolean met)
+    {
+      _target = target;
+      _achieved = achieved;
+      _p99 = p99;
+      _p999 = p999;
+      _met = met;
+    }
+  }
+
+  private final boolean _bisect;
+  private final long _p99Bound;
+  private final long _p999Bound;
+  private final String[] _operations;
+  private final long _windowMs;
+  private final int _step;
+  private final int _maxTarget;
+  private final double _achievedFraction;
+
+  private List<ClientThread> _clients;
+  private Workload _workload;
+  private SharedRateLimiter _rateLimiter;
+
+  /** The current target, and the highest that met and the lowest that failed the objective. */
+  private int _target;
+  private int _highestMet;
+  private int _lowestFailed;
+
+  private final List<Step> _steps = Collections.synchronizedList(new ArrayList<Step>());
+
+  /**
+   * Create a search from the run properties.
+   *
+   * @throws IllegalArgumentException if the properties are invalid.
+   */
+  public ThroughputSearch(Properties props)
+  {
+    super("ThroughputSearch");
+    setDaemon(true);
+    String search = props.getProperty(SEARCH_PROPERTY);
+    if (!"step".equals(search) && !"bisect".equals(search))
+    {
+      throw new IllegalArgumentException("Unknown " + SEARCH_PROPERTY + " \"" + search + "\"");
+    }
+    _bisect = search.equals("bisect");
+    _p99Bound = Long.parseLong(props.getProperty(P99_PROPERTY, P99_PROPERTY_DEFAULT));
+    _p999Bound = Long.parseLong(props.getProperty(P999_PROPERTY, P999_PROPERTY_DEFAULT));
+    _operations = props.getProperty(OPERATIONS_PROPERTY, OPERATIONS_PROPERTY_DEFAULT).split(",");
+    _windowMs = 1000L * Integer.parseInt(props.getProperty(WINDOW_PROPERTY, WINDOW_PROPERTY_DEFAULT));
+    _target = Integer.parseInt(props.getProperty(START_TARGET_PROPERTY, START_TARGET_PROPERTY_DEFAULT));
+    _step = Integer.parseInt(props.getProperty(STEP_PROPERTY, STEP_PROPERTY_DEFAULT));
+    _maxTarget = Integer.parseInt(props.getProperty(MAX_TARGET_PROPERTY, MAX_TARGET_PROPERTY_DEFAULT));
+    _achievedFraction = Double.parseDouble(props.getProperty(ACHIEVED_PROPERTY, ACHIEVED_PROPERTY_DEFAULT));
+    if ((_p99Bound <= 0) && (_p999Bound <= 0))
+    {
+      throw new IllegalArgumentException("The search requires " + P99_PROPERTY + " or " + P999_PROPERTY);
+    }
+    if ((_target <= 0) || (_step <= 0) || (_windowMs <= 0))
+    {
+      throw new IllegalArgumentException(START_TARGET_PROPERTY + ", " + STEP_PROPERTY + " and " + WINDOW_PROPERTY
+          + " must be positive");
+    }
+  }
+
+  /**
+   * @return Whether the properties ask for a search.
+   */
+  public static boolean isEnabled(Properties props)
+  {
+    return props.getProperty(SEARCH_PROPERTY) != null;
+  }
+
+  /**
+   * @return The current target of the search in operations per second, the first one before it starts.
+   */
+  public int getTarget()
+  {
+    return _target;
+  }
+
+  /**
+   * Set the client threads to throttle and the workload to stop once the search is complete.
+   *
+   * @param rateLimiter The throttle shared by the client threads, null if each throttles itself.
+   */
+  void setClients(List<ClientThread> clients, Workload workload, SharedRateLimiter rateLimiter)
+  {
+    _clients = clients;
+    _workload = workload;
+    _rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public void run()
+  {
+    DecimalFormat d = new DecimalFormat("#.##");
+    Map<String, Histogram> before = Measurements.getMeasurements().getCumulativeHistograms();
+    long opsBefore = getOpsDone();
+    long startMs = System.currentTimeMillis();
+    try
+    {
+      while (_target > 0)
+      {
+        System.err.println("SLO search: holding " + _target + " ops/sec for " + (_windowMs / 1000) + " sec");
+        if (_rateLimiter != null)
+        {
+          _rateLimiter.setRate(_target);
+        }
+        else
+        {
+          for (ClientThread client : _clients)
+          {
+            client.changeTarget(((double) _target) / _clients.size() / 1000.0);
+          }
+        }
+        Thread.sleep(_windowMs);
+
+        Map<String, Histogram> after = Measurements.getMeasurements().getCumulativeHistograms();
+        long opsAfter = getOpsDone();
+        long endMs = System.currentTimeMillis();
+        Step step = evaluate(_target, 1000.0 * (opsAfter - opsBefore) / (endMs - startMs), before, after);
+        _steps.add(step);
+        System.err.println("SLO search: target " + _target + " ops/sec, achieved " + d.format(step._achieved)
+            + " ops/sec, p99=" + step._p99 + " us, p99.9=" + step._p999 + " us: "
+            + (step._met ? "met" : "not met"));
+
+        nextTarget(step._met);
+        before = after;
+        opsBefore = opsAfter;
+        startMs = endMs;
+      }
+      System.err.println("SLO search: the highest target meeting the objective is " + _highestMet + " ops/sec");
+    }
+    catch (InterruptedException e)
+    {
+      // the run ended before the search did, report what was found so far
+      return;
+    }
+    _workload.requestStop();
+  }
+
+  private long getOpsDone()
+  {
+    long ops = 0;
+    for (ClientThread client : _clients)
+    {
+      ops += client.getOpsDone();
+    }
+    return ops;
+  }
+
+  /**
+   * Evaluate one window against the objective.
+   *
+   * @param target The target held during the window.
+   * @param achieved The throughput achieved during the window.
+   * @param before The histograms at the start of the window.
+   * @param after The histograms at the end of the window.
+   * @return The result of the window.
+   */
+  Step evaluate(int target, double achieved, Map<String, Histogram> before, Map<String, Histogram> after)
+  {
+    boolean met = achieved >= _achievedFraction * target;
+    boolean measured = false;
+    long p99 = 0;
+    long p999 = 0;
+    Map<String, Histogram> windows = Measurements.getIntervalHistograms(before, after);
+    for (String operation : _operations)
+    {
+      Histogram window = windows.get(operation.trim());
+      if (window == null)
+      {
+        continue;
+      }
+      measured = true;
+      p99 = Math.max(p99, window.getValueAtPercentile(99));
+      p999 = Math.max(p999, window.getValueAtPercentile(99.9));
+    }
+    if ((_p99Bound > 0) && (p99 > _p99Bound))
+    {
+      met = false;
+    }
+    if ((_p999Bound > 0) && (p999 > _p999Bound))
+    {
+      met = false;
+    }
+    return new Step(target, achieved, p99, p999, met && measured);
+  }
+
+  /**
+   * Record the result of the current target and move on to the next one.
+   *
+   * @param met Whether the current target met the objective.
+   * @return The next target, or 0 if the search is complete.
+   */
+  int nextTarget(boolean met)
+  {
+    _target = chooseNextTarget(met);
+    return _target;
+  }
+
+  private int chooseNextTarget(boolean met)
+  {
+    int target = _target;
+    if (met)
+    {
+      _highestMet = Math.max(_highestMet, target);
+    }
+    else if ((_lowestFailed == 0) || (target < _lowestFailed))
+    {
+      _lowestFailed = target;
+    }
+
+    int next;
+    if (!_bisect)
+    {
+      if (!met)
+      {
+        return 0;
+      }
+      next = target + _step;
+    }
+    else if (_lowestFailed == 0)
+    {
+      next = 2 * target;
+    }
+    else
+    {
+      if (_lowestFailed - _highestMet <= _step)
+      {
+        return 0;
+      }
+      next = _highestMet + (_lowestFailed - _highestMet) / 2;
+    }
+
+    if ((_maxTarget > 0) && (next > _maxTarget))
+    {
+      if (target >= _maxTarget)
+      {
+        return 0;
+      }
+      next = _maxTarget;
+    }
+    return next;
+  }
+
+  /**
+   * @return The highest target that met the objective, 0 if none did.
+   */
+  public int getHighestMet()
+  {
+    return _highestMet;
+  }
+
+  /**
+   * Export the result of each target and the highest target meeting the objective.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    double maxAchieved = 0;
+    synchronized (_steps)
+    {
+      for (int i = 0; i < _steps.size(); i++)
+      {
+        Step step = _steps.get(i);
+        String metric = "SLO_SEARCH_STEP_" + i;
+        exporter.write(metric, "Target(ops/sec)", step._target);
+        exporter.write(metric, "Throughput(ops/sec)", step._achieved);
+        exporter.write(metric, "99thPercentileLatency(us)", step._p99);
+        exporter.write(metric, "99.9thPercentileLatency(us)", step._p999);
+        exporter.write(metric, "MetObjective", step._met ? 1 : 0);
+        if (step._met)
+        {
+          maxAchieved = Math.max(maxAchieved, step._achieved);
+        }
+      }
+    }
+    exporter.write("SLO_SEARCH", "MaxTarget(ops/sec)", _highestMet);
+    exporter.write("SLO_SEARCH", "MaxThroughput(ops/sec)", maxAchieved);
+  }
+}
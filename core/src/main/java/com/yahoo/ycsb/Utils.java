@@ -41,6 +41,28 @@ public class Utils
     }
     return ret;
   }
+
+  /**
+   * Return a random long uniformly from 0 (inclusive) to bound (exclusive), from the random
+   * generator of the calling thread. Bounds that fit in an int draw an int, as before.
+   *
+   * @param bound The upper bound, positive.
+   */
+  public static long randomLong(long bound) {
+    Random random = random();
+    if (bound <= Integer.MAX_VALUE) {
+      return random.nextInt((int) bound);
+    }
+    // reject the values of the last, incomplete multiple of bound so all values are equally likely
+    long bits;
+    long value;
+    do {
+      bits = random.nextLong() >>> 1;
+      value = bits % bound;
+    } while (bits - value + (bound - 1) < 0);
+    return value;
+  }
+
       /**
        * Generate a random ASCII string of a given length.
        */
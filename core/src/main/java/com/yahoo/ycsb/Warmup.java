@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Tracks the warmup period at the start of a run. Operations execute normally during warmup, while
+ * the JIT, the connection pools and the server caches settle; once both the configured time and
+ * the configured number of operations have passed, all measurements are reset so the reported
+ * results only cover the rest of the run.
+ */
+public class Warmup
+{
+  /**
+   * The minimum number of seconds the warmup lasts.
+   */
+  public static final String WARMUP_TIME_PROPERTY = "warmup.time";
+
+  /**
+   * The default warmup time, no warmup.
+   */
+  public static final String WARMUP_TIME_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The minimum number of operations completed during the warmup.
+   */
+  public static final String WARMUP_OPERATIONS_PROPERTY = "warmup.operations";
+
+  /**
+   * The default number of warmup operations, no warmup.
+   */
+  public static final String WARMUP_OPERATIONS_PROPERTY_DEFAULT = "0";
+
+  private final long _durationNs;
+  private final long _operations;
+
+  /** The operations completed so far, only counted until the warmup ends. */
+  private final AtomicLong _opsDone = new AtomicLong();
+
+  private final AtomicBoolean _done = new AtomicBoolean();
+
+  /** Whether the warmup ended, read on every operation. */
+  private volatile boolean _finished;
+
+  private volatile long _startTimeNs;
+  private long _endTimeMs;
+  private long _opsAtEnd;
+
+  /**
+   * Create a warmup tracker.
+   *
+   * @param durationNs The minimum duration of the warmup, 0 for none.
+   * @param operations The minimum number of operations completed during the warmup, 0 for none.
+   */
+  public Warmup(long durationNs, long operations)
+  {
+    _durationNs = durationNs;
+    _operations = operations;
+  }
+
+  /**
+   * Create a warmup tracker from the run properties.
+   *
+   * @return The tracker, or null if no warmup is configured.
+   */
+  public static Warmup create(Properties props)
+  {
+    long seconds = Long.parseLong(props.getProperty(WARMUP_TIME_PROPERTY, WARMUP_TIME_PROPERTY_DEFAULT));
+    long operations = Long.parseLong(props.getProperty(WARMUP_OPERATIONS_PROPERTY, WARMUP_OPERATIONS_PROPERTY_DEFAULT));
+    if ((seconds <= 0) && (operations <= 0))
+    {
+      return null;
+    }
+    return new Warmup(TimeUnit.SECONDS.toNanos(Math.max(seconds, 0)), Math.max(operations, 0));
+  }
+
+  /**
+   * Start the warmup clock, called when the client threads are started.
+   */
+  public void start()
+  {
+    _startTimeNs = System.nanoTime();
+  }
+
+  /**
+   * Count a completed operation, ending the warmup when its limits have been reached.
+   */
+  public void operationDone()
+  {
+    if (_finished)
+    {
+      return;
+    }
+    long ops = _opsDone.incrementAndGet();
+    if ((ops >= _operations) && (System.nanoTime() - _startTimeNs >= _durationNs))
+    {
+      finish(ops);
+    }
+  }
+
+  /**
+   * Reset the measurements. Operations in progress complete into the fresh recorders.
+   */
+  private void finish(long ops)
+  {
+    if (!_done.compareAndSet(false, true))
+    {
+      return;
+    }
+    Measurements.getMeasurements().reset();
+    _endTimeMs = System.currentTimeMillis();
+    _opsAtEnd = ops;
+    _finished = true;
+    System.err.println("Warmup finished after " + ops + " operations and "
+        + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - _startTimeNs) + " sec, measurements reset.");
+  }
+
+  /**
+   * @return Whether the warmup has ended and the measurements were reset.
+   */
+  public boolean isFinished()
+  {
+    return _finished;
+  }
+
+  /**
+   * @return The wall clock time the warmup ended at; only valid once {@link #isFinished()}.
+   */
+  public long getEndTimeMs()
+  {
+    return _endTimeMs;
+  }
+
+  /**
+   * @return The number of operations completed during the warmup; only valid once {@link #isFinished()}.
+   */
+  public long getOperations()
+  {
+    return _opsAtEnd;
+  }
+}
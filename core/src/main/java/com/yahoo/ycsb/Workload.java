@@ -17,6 +17,7 @@
 
 package com.yahoo.ycsb;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Properties;
 
@@ -96,6 +97,27 @@ public abstract class Workload {
    */
   public abstract boolean doTransaction(DB db, Object threadstate);
 
+  /**
+   * Do one insert operation without waiting for it to complete. Used instead of doInsert() when the
+   * "maxinflight" property is set above 1; the returned future completes with the value doInsert()
+   * would have returned. Completion callbacks may run on other threads, so anything they touch must
+   * be thread safe, including threadstate. The default implementation calls doInsert() and blocks.
+   */
+  public CompletableFuture<Boolean> doInsertAsync(AsyncDB db, Object threadstate) {
+    return CompletableFuture.completedFuture(doInsert(db, threadstate));
+  }
+
+  /**
+   * Do one transaction operation without waiting for it to complete. Used instead of doTransaction()
+   * when the "maxinflight" property is set above 1; the returned future completes with the value
+   * doTransaction() would have returned. Completion callbacks may run on other threads, so anything
+   * they touch must be thread safe, including threadstate. The default implementation calls
+   * doTransaction() and blocks.
+   */
+  public CompletableFuture<Boolean> doTransactionAsync(AsyncDB db, Object threadstate) {
+    return CompletableFuture.completedFuture(doTransaction(db, threadstate));
+  }
+
   /**
    * Allows scheduling a request to stop the workload.
    */
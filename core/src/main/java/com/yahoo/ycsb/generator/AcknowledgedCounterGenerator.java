@@ -16,33 +16,47 @@
  */
 package com.yahoo.ycsb.generator;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * A CounterGenerator that reports generated integers via lastInt()
+ * A CounterGenerator that reports generated integers via lastValue() and lastLong()
  * only after they have been acknowledged.
+ *
+ * The acknowledged values past the limit are bits in a window of atomic long words, and any
+ * acknowledging thread moves a contiguous run of them over to the limit with compare-and-set,
+ * so nothing blocks. Values too far past the limit for the window, such as those acknowledged
+ * while one slow insert holds the limit back, spill over into pages of bits allocated as needed
+ * and dropped once the limit passes them.
  */
 public class AcknowledgedCounterGenerator extends CounterGenerator
 {
 	/** The size of the window of pending id ack's. 2^20 = {@value} */
 	static final int WINDOW_SIZE = Integer.rotateLeft(1, 20);
 
-	/** The mask to use to turn an id into a slot in {@link #window}. */
-	private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+	/** The mask to use to turn an id into a word of {@link #window}. */
+	private static final int WORD_MASK = WINDOW_SIZE / Long.SIZE - 1;
+
+	/** The ids in a page of {@link #spill} are those with the same id >> {@value}. */
+	private static final int PAGE_SHIFT = 16;
 
-	private final ReentrantLock lock;
-	private final boolean[] window;
-	private volatile int limit;
+	/** The mask to use to turn an id into a word of its page. */
+	private static final int PAGE_WORD_MASK = (1 << PAGE_SHIFT) / Long.SIZE - 1;
+
+	private final AtomicLongArray window;
+	private final ConcurrentHashMap<Long, AtomicLongArray> spill;
+	private final AtomicLong limit;
 
 	/**
 	 * Create a counter that starts at countstart.
 	 */
-	public AcknowledgedCounterGenerator(int countstart)
+	public AcknowledgedCounterGenerator(long countstart)
 	{
 		super(countstart);
-		lock = new ReentrantLock();
-		window = new boolean[WINDOW_SIZE];
-		limit = countstart - 1;
+		window = new AtomicLongArray(WINDOW_SIZE / Long.SIZE);
+		spill = new ConcurrentHashMap<Long, AtomicLongArray>();
+		limit = new AtomicLong(countstart - 1);
 	}
 
 	/**
@@ -50,43 +64,115 @@ public class AcknowledgedCounterGenerator extends CounterGenerator
 	 * (as opposed to the highest generated counter value).
 	 */
 	@Override
-	public Integer lastValue()
+	public long lastLong()
 	{
-		return limit;
+		return limit.get();
 	}
 
 	/**
-	 * Make a generated counter value available via lastInt().
+	 * Make a generated counter value available via lastValue() and lastLong().
 	 */
-	public void acknowledge(int value)
+	public void acknowledge(long value)
 	{
-		final int currentSlot = (value & WINDOW_MASK);
-		if (window[currentSlot] == true) {
-			throw new RuntimeException("Too many unacknowledged insertion keys.");
+		final long current = limit.get();
+		if (value <= current) {
+			// acknowledged twice
+			return;
+		}
+
+		// the bit of a value in the window is reused by the value a window later, which can only be
+		// acknowledged once the limit passed this one and cleared its bit
+		if (value - current <= WINDOW_SIZE) {
+			set(window, (int) ((value >>> 6) & WORD_MASK), value);
+		} else {
+			final Long key = value >>> PAGE_SHIFT;
+			AtomicLongArray page = spill.get(key);
+			if (page == null) {
+				final AtomicLongArray created = new AtomicLongArray(PAGE_WORD_MASK + 1);
+				page = spill.putIfAbsent(key, created);
+				if (page == null) {
+					page = created;
+				}
+			}
+			set(page, (int) ((value >>> 6) & PAGE_WORD_MASK), value);
 		}
 
-		window[currentSlot] = true;
-
-		if (lock.tryLock()) {
-			// move a contiguous sequence from the window
-			// over to the "limit" variable
-			try {
-			  // Only loop through the entire window at most once.
-			  int beforeFirstSlot = (limit & WINDOW_MASK);
-				int index;
-				for (index = limit + 1; index != beforeFirstSlot; ++index) {
-					int slot = (index & WINDOW_MASK);
-					if (!window[slot]) {
-						break;
-					}
-
-					window[slot] = false;
+		advance();
+	}
+
+	private static void set(AtomicLongArray words, int word, long value)
+	{
+		final long bit = 1L << value;
+		long bits;
+		do {
+			bits = words.get(word);
+		} while (!words.compareAndSet(word, bits, bits | bit));
+	}
+
+	/**
+	 * Move the contiguous acknowledged values past the limit over to it. Every acknowledging
+	 * thread tries after publishing its value, so the value is either seen by a thread advancing
+	 * the limit up to it, or the limit it reads has been advanced up to it.
+	 */
+	private void advance()
+	{
+		for (;;) {
+			final long current = limit.get();
+			final long next = current + 1;
+			if (claim(window, (int) ((next >>> 6) & WORD_MASK), current)) {
+				continue;
+			}
+			if (!spill.isEmpty()) {
+				final AtomicLongArray page = spill.get(next >>> PAGE_SHIFT);
+				if ((page != null) && claim(page, (int) ((next >>> 6) & PAGE_WORD_MASK), current)) {
+					continue;
 				}
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Try to move the run of acknowledged values from current + 1 on, up to the end of its word,
+	 * over to the limit.
+	 *
+	 * @return false if current + 1 is not acknowledged in these words, true if the limit moved or
+	 *         moved meanwhile.
+	 */
+	private boolean claim(AtomicLongArray words, int word, long current)
+	{
+		final int offset = (int) ((current + 1) & 63);
+		final long bits = words.get(word);
+		final int run = Long.numberOfTrailingZeros(~(bits >>> offset));
+		if (run == 0) {
+			return false;
+		}
 
-				limit = index - 1;
-			} finally {
-				lock.unlock();
+		final long mask = (run == Long.SIZE) ? -1L : ((1L << run) - 1) << offset;
+		// claim the run by clearing it before the limit moves past it, so its bits are free when the
+		// values a window later are acknowledged
+		if (!words.compareAndSet(word, bits, bits & ~mask)) {
+			return true;
+		}
+		if (!limit.compareAndSet(current, current + run)) {
+			// another thread advanced the limit meanwhile, so the bits claimed belong to the values a
+			// window later: give them back
+			long restored;
+			do {
+				restored = words.get(word);
+			} while (!words.compareAndSet(word, restored, restored | mask));
+			return true;
+		}
+
+		final long passed = (current + run + 1) >>> PAGE_SHIFT;
+		if (!spill.isEmpty() && (((current + 1) >>> PAGE_SHIFT) != passed)) {
+			// drop the pages the limit moved past
+			for (Long key : spill.keySet()) {
+				if (key < passed) {
+					spill.remove(key);
+				}
 			}
 		}
+		return true;
 	}
 }
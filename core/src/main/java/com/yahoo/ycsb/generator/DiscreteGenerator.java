@@ -25,6 +25,10 @@ import com.yahoo.ycsb.Utils;
 
 /**
  * Generates a distribution by choosing from a discrete set of values.
+ *
+ * The values are chosen in constant time with Vose's alias method: a table, built once the values
+ * are added, splits the probability of each of n columns between a value and an alias, so one
+ * random number picks a column and which of the two to return.
  */
 public class DiscreteGenerator extends Generator<String>
 {
@@ -40,7 +44,97 @@ public class DiscreteGenerator extends Generator<String>
 		}
 	}
 
+	/**
+	 * The alias table of the values added so far.
+	 */
+	private static final class AliasTable
+	{
+		private final String[] _values;
+		private final String[] _aliases;
+		private final double[] _probabilities;
+
+		AliasTable(Collection<Pair> pairs)
+		{
+			// values of weight 0 are never chosen, so they have no column
+			ArrayList<Pair> chosen=new ArrayList<>();
+			double sum=0;
+			for (Pair p : pairs)
+			{
+				if (p._weight>0)
+				{
+					chosen.add(p);
+					sum+=p._weight;
+				}
+			}
+			if (chosen.isEmpty())
+			{
+				throw new AssertionError("oops. should not get here.");
+			}
+
+			int n=chosen.size();
+			_values=new String[n];
+			_aliases=new String[n];
+			_probabilities=new double[n];
+
+			// the columns over and under the average probability
+			double[] scaled=new double[n];
+			int[] small=new int[n];
+			int[] large=new int[n];
+			int smalls=0;
+			int larges=0;
+			for (int i=0; i<n; i++)
+			{
+				_values[i]=chosen.get(i)._value;
+				_aliases[i]=_values[i];
+				scaled[i]=chosen.get(i)._weight*n/sum;
+				if (scaled[i]<1)
+				{
+					small[smalls++]=i;
+				}
+				else
+				{
+					large[larges++]=i;
+				}
+			}
+
+			// fill each column under the average with the value of a column over it
+			while ((smalls>0) && (larges>0))
+			{
+				int s=small[--smalls];
+				int l=large[--larges];
+				_probabilities[s]=scaled[s];
+				_aliases[s]=_values[l];
+				scaled[l]=(scaled[l]+scaled[s])-1;
+				if (scaled[l]<1)
+				{
+					small[smalls++]=l;
+				}
+				else
+				{
+					large[larges++]=l;
+				}
+			}
+			// what is left is full, up to rounding errors
+			while (larges>0)
+			{
+				_probabilities[large[--larges]]=1;
+			}
+			while (smalls>0)
+			{
+				_probabilities[small[--smalls]]=1;
+			}
+		}
+
+		String sample()
+		{
+			double x=Utils.random().nextDouble()*_values.length;
+			int column=Math.min((int)x, _values.length-1);
+			return (x-column<_probabilities[column]) ? _values[column] : _aliases[column];
+		}
+	}
+
 	private final Collection<Pair> _values = new ArrayList<>();
+	private volatile AliasTable _table;
 	private String _lastvalue;
 
 	public DiscreteGenerator()
@@ -54,28 +148,13 @@ public class DiscreteGenerator extends Generator<String>
 	@Override
     public String nextValue()
 	{
-		double sum=0;
-
-		for (Pair p : _values)
+		AliasTable table=_table;
+		if (table==null)
 		{
-			sum+=p._weight;
+			table=new AliasTable(_values);
+			_table=table;
 		}
-
-		double val=Utils.random().nextDouble();
-
-		for (Pair p : _values)
-		{
-		    double pw = p._weight / sum;
-			if (val < pw)
-			{
-				return p._value;
-			}
-
-			val -= pw;
-		}
-
-		throw new AssertionError("oops. should not get here.");
-
+		return table.sample();
 	}
 
 	/**
@@ -96,6 +175,7 @@ public class DiscreteGenerator extends Generator<String>
 	public void addValue(double weight, String value)
 	{
 		_values.add(new Pair(weight,value));
+		_table=null;
 	}
 
 }
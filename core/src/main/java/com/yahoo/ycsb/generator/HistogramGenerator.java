@@ -40,6 +40,8 @@ public class HistogramGenerator extends NumberGenerator {
 
 	private final long block_size;
 	private final long[] buckets;
+	/** cumulative[i] is the sum of the buckets up to i, for all buckets but the last. */
+	private long[] cumulative;
 	private long area;
 	private long weighted_area = 0;
 	private double mean_size = 0;
@@ -81,9 +83,13 @@ public class HistogramGenerator extends NumberGenerator {
 		init();
 	}
 	private void init() {
+		cumulative = new long[Math.max(buckets.length - 1, 0)];
 		for(int i = 0; i < buckets.length; i++) {
 			area += buckets[i];
 			weighted_area += i * buckets[i];
+			if(i < cumulative.length) {
+				cumulative[i] = area;
+			}
 		}
 		// calculate average file size
 		mean_size = ((double)block_size) * ((double)weighted_area) / (area);
@@ -91,17 +97,34 @@ public class HistogramGenerator extends NumberGenerator {
 
 	@Override
 	public Long nextValue() {
-		int number = Utils.random().nextInt((int)area);
-		int i;
-		
-		for(i = 0; i < (buckets.length - 1); i++){
-			number -= buckets[i];
-			if(number <= 0){
-				return (i+1)*block_size;
+		return nextLong();
+	}
+
+	@Override
+	public long nextLong() {
+		return valueOf(Utils.randomLong(area));
+	}
+
+	/**
+	 * Return the value of the first bucket whose cumulative sum reaches number, found by binary
+	 * search rather than by walking the buckets.
+	 */
+	long valueOf(long number) {
+		int low = 0;
+		int high = cumulative.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(cumulative[middle] < number) {
+				low = middle + 1;
+			} else {
+				high = middle;
 			}
 		}
 		
-		return i * block_size;
+		if(low < cumulative.length) {
+			return (low+1)*block_size;
+		}
+		return low * block_size;
 	}
 
 	@Override
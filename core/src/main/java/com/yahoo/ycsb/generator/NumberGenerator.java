@@ -26,6 +26,8 @@ package com.yahoo.ycsb.generator;
 public abstract class NumberGenerator extends Generator<Number> 
 {
 	private Number lastVal;
+	private long lastLong;
+	private boolean lastIsLong;
 	
 	/**
 	 * Set the last value generated. NumberGenerator subclasses must use this call
@@ -36,12 +38,35 @@ public abstract class NumberGenerator extends Generator<Number>
 		lastVal=last;
 	}
 		
+	/**
+	 * Set the last value generated, without boxing it. The value is only boxed if
+	 * {@link #lastValue()} is called.
+	 */
+	protected void setLastValue(long last)
+	{
+		lastLong=last;
+		lastIsLong=true;
+	}
 	
 	@Override
 	public Number lastValue()
 	{
+		if (lastIsLong)
+		{
+			return lastLong;
+		}
 		return lastVal;
 	}
+
+	/**
+	 * Generate the next value as a long. Subclasses generating integers override this to
+	 * generate without boxing, and callers on the hot path use it rather than {@link #nextValue()}.
+	 */
+	public long nextLong()
+	{
+		return nextValue().longValue();
+	}
+
 	/**
 	 * Return the expected value (mean) of the values this generator will return.
 	 */
@@ -73,23 +73,32 @@ public class ScrambledZipfianGenerator extends NumberGenerator
 */
 	
 	/**
-	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. If you 
-	 * use a zipfian constant other than 0.99, this will take a long time to complete because we need to recompute zeta.
+	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. For a
+	 * zipfian constant other than 0.99, zeta is approximated, see {@link Zeta}.
 	 * @param min The smallest integer to generate in the sequence.
 	 * @param max The largest integer to generate in the sequence.
 	 * @param _zipfianconstant The zipfian constant to use.
 	 */
         public ScrambledZipfianGenerator(long min, long max, double _zipfianconstant)
+	{
+		this(min,max,_zipfianconstant,_zipfianconstant == USED_ZIPFIAN_CONSTANT ? ZETAN
+				: ZipfianGenerator.zetastatic(ITEM_COUNT+1,_zipfianconstant));
+	}
+
+	/**
+	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant, using
+	 * the precomputed zeta of {@link #ITEM_COUNT}+1 items, which the items are scrambled from.
+	 * @param min The smallest integer to generate in the sequence.
+	 * @param max The largest integer to generate in the sequence.
+	 * @param _zipfianconstant The zipfian constant to use.
+	 * @param _zetan The precomputed zeta constant.
+	 */
+	public ScrambledZipfianGenerator(long min, long max, double _zipfianconstant, double _zetan)
 	{
 		_min=min;
 		_max=max;
 		_itemcount=_max-_min+1;
-		if (_zipfianconstant == USED_ZIPFIAN_CONSTANT) 
-		{
-		    gen=new ZipfianGenerator(0,ITEM_COUNT,_zipfianconstant,ZETAN);
-		} else {
-		    gen=new ZipfianGenerator(0,ITEM_COUNT,_zipfianconstant);
-		}
+		gen=new ZipfianGenerator(0,ITEM_COUNT,_zipfianconstant,_zetan);
 	}
 	
 	/**************************************************************************************************/
@@ -100,7 +109,13 @@ public class ScrambledZipfianGenerator extends NumberGenerator
 	@Override
   public Long nextValue()
 	{
-		long ret=gen.nextValue();
+		return nextLong();
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long ret=gen.nextLong();
 		ret=_min+Utils.FNVhash64(ret)%_itemcount;
 		setLastValue(ret);
 		return ret;
@@ -28,7 +28,7 @@ public class SkewedLatestGenerator extends NumberGenerator
 	public SkewedLatestGenerator(CounterGenerator basis)
 	{
 		_basis=basis;
-		_zipfian=new ZipfianGenerator(_basis.lastValue());
+		_zipfian=new ZipfianGenerator(_basis.lastLong());
 		nextValue();
 	}
 
@@ -38,7 +38,13 @@ public class SkewedLatestGenerator extends NumberGenerator
 	@Override
   public Long nextValue()
 	{
-		long max=_basis.lastValue();
+		return nextLong();
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long max=_basis.lastLong();
 		long next=max-_zipfian.nextLong(max);
 		setLastValue(next);
 		return next;
@@ -24,7 +24,7 @@ import com.yahoo.ycsb.Utils;
  */
 public class UniformIntegerGenerator extends NumberGenerator 
 {
-	private final int _lb,_ub,_interval;
+	private final long _lb,_ub,_interval;
 	
 	/**
 	 * Creates a generator that will return integers uniformly randomly from the interval [lb,ub] inclusive (that is, lb and ub are possible values)
@@ -32,7 +32,7 @@ public class UniformIntegerGenerator extends NumberGenerator
 	 * @param lb the lower bound (inclusive) of generated values
 	 * @param ub the upper bound (inclusive) of generated values
 	 */
-	public UniformIntegerGenerator(int lb, int ub)
+	public UniformIntegerGenerator(long lb, long ub)
 	{
 		_lb=lb;
 		_ub=ub;
@@ -40,9 +40,15 @@ public class UniformIntegerGenerator extends NumberGenerator
 	}
 	
 	@Override
-	public Integer nextValue() 
+	public Long nextValue() 
 	{
-		int ret=Utils.random().nextInt(_interval)+_lb;
+		return nextLong();
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long ret=Utils.randomLong(_interval)+_lb;
 		setLastValue(ret);
 		
 		return ret;
@@ -50,6 +56,6 @@ public class UniformIntegerGenerator extends NumberGenerator
 
 	@Override
 	public double mean() {
-		return ((_lb + (long)_ub)) / 2.0;
+		return (_lb + (double)_ub) / 2.0;
 	}
 }
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the zeta constant of a zipfian distribution: the sum of 1/i^theta for i from 1 to n.
+ * Summing the terms one by one takes minutes for billions of items, so there are faster ways:
+ *
+ * <ul>
+ * <li>{@link #approximate(long, long, double)}, the Euler-Maclaurin formula, which takes constant
+ * time and whose error is far below the rounding error of a double for any n.</li>
+ * <li>{@link #parallel(long, long, double)}, the exact sum spread over all cores with fork-join.</li>
+ * <li>{@link #cached(File, long, double)}, the exact sum computed once and kept in a file, so
+ * only the first run with a given n and theta pays for it.</li>
+ * </ul>
+ *
+ * {@link #sum(long, long, double)} sums few terms one by one, as before, and approximates the
+ * sums of many terms.
+ */
+public final class Zeta
+{
+	/**
+	 * Above this many terms, {@link #sum(long, long, double)} approximates the sum.
+	 */
+	static final long EXACT_TERMS=1<<20;
+
+	/**
+	 * The first terms, which the Euler-Maclaurin formula always sums one by one: the remainder of
+	 * the formula shrinks with the power theta+7 of the first term approximated.
+	 */
+	static final long HEAD_TERMS=1000;
+
+	/**
+	 * The terms a fork-join task sums one by one.
+	 */
+	static final long PARALLEL_TERMS=1<<20;
+
+	/** The Bernoulli numbers B2, B4, B6 and B8, each divided by its factorial. */
+	private static final double[] BERNOULLI_OVER_FACTORIAL={
+		1.0/6/2, -1.0/30/24, 1.0/42/720, -1.0/30/40320};
+
+	private Zeta()
+	{
+	}
+
+	/**
+	 * Return the sum of 1/i^theta for i from st+1 to n, one term at a time if there are few of
+	 * them, approximated otherwise.
+	 */
+	public static double sum(long st, long n, double theta)
+	{
+		if (n-st<=EXACT_TERMS)
+		{
+			return serial(st, n, theta);
+		}
+		return approximate(st, n, theta);
+	}
+
+	/**
+	 * Return the sum of 1/i^theta for i from st+1 to n, one term at a time.
+	 */
+	public static double serial(long st, long n, double theta)
+	{
+		double sum=0;
+		for (long i=st; i<n; i++)
+		{
+			sum+=1/(Math.pow(i+1, theta));
+		}
+		return sum;
+	}
+
+	/**
+	 * Return the sum of 1/i^theta for i from st+1 to n with the Euler-Maclaurin formula, up to the
+	 * Bernoulli number B8. The first {@link #HEAD_TERMS} terms are summed one by one, the rest is
+	 * the integral of x^-theta plus corrections from the derivatives at both ends. The remainder
+	 * is bounded by about 1e-6 times the 7th derivative at the first term approximated, below
+	 * 1e-20 for any theta up to 2, so the result is as precise as a double allows.
+	 */
+	public static double approximate(long st, long n, double theta)
+	{
+		long a=Math.max(st+1, HEAD_TERMS);
+		if (n<a)
+		{
+			return serial(st, n, theta);
+		}
+		double head=serial(st, a-1, theta);
+		double fa=Math.pow(a, -theta);
+		double fb=Math.pow(n, -theta);
+
+		// the integral from a to n, (n^(1-theta)-a^(1-theta))/(1-theta), without cancellation as
+		// theta gets close to 1
+		double s=1-theta;
+		double log=Math.log((double)n/a);
+		double integral=(s==0) ? log : Math.pow(a, s)*Math.expm1(s*log)/s;
+
+		// f^(j)(x) = (-1)^j theta (theta+1) ... (theta+j-1) x^(-theta-j), for j = 1, 3, 5, 7
+		double corrections=0;
+		double rising=theta;
+		double xa=fa/a;
+		double xb=fb/n;
+		for (int k=0; k<BERNOULLI_OVER_FACTORIAL.length; k++)
+		{
+			corrections+=BERNOULLI_OVER_FACTORIAL[k]*(-rising)*(xb-xa);
+			rising*=(theta+2*k+1)*(theta+2*k+2);
+			xa/=(double)a*a;
+			xb/=(double)n*n;
+		}
+		return head+integral+(fa+fb)/2+corrections;
+	}
+
+	/**
+	 * Return the sum of 1/i^theta for i from st+1 to n, one term at a time on all cores.
+	 */
+	public static double parallel(long st, long n, double theta)
+	{
+		return ForkJoinPool.commonPool().invoke(new SumTask(st, n, theta));
+	}
+
+	private static final class SumTask extends RecursiveTask<Double>
+	{
+		private static final long serialVersionUID=1L;
+
+		private final long st;
+		private final long n;
+		private final double theta;
+
+		SumTask(long st, long n, double theta)
+		{
+			this.st=st;
+			this.n=n;
+			this.theta=theta;
+		}
+
+		@Override
+		protected Double compute()
+		{
+			if (n-st<=PARALLEL_TERMS)
+			{
+				return serial(st, n, theta);
+			}
+			long middle=st+(n-st)/2;
+			SumTask high=new SumTask(middle, n, theta);
+			high.fork();
+			double low=new SumTask(st, middle, theta).compute();
+			return high.join()+low;
+		}
+	}
+
+	/**
+	 * Return the exact zeta constant of n items, computed in parallel the first time and read from
+	 * the cache file afterwards. The cache file is a properties file from "n,theta" to zeta, which
+	 * is created if missing. A cache that cannot be read or written is ignored.
+	 *
+	 * @param cache The cache file.
+	 * @param n The number of items.
+	 * @param theta The zipfian constant.
+	 */
+	public static double cached(File cache, long n, double theta)
+	{
+		String key=n+","+theta;
+		synchronized (Zeta.class)
+		{
+			Properties zetas=new Properties();
+			if (cache.exists())
+			{
+				try (InputStream in=new FileInputStream(cache))
+				{
+					zetas.load(in);
+				}
+				catch (IOException e)
+				{
+					System.err.println("WARNING: could not read the zeta cache "+cache+": "+e.getMessage());
+				}
+			}
+			String value=zetas.getProperty(key);
+			if (value!=null)
+			{
+				try
+				{
+					return Double.parseDouble(value);
+				}
+				catch (NumberFormatException e)
+				{
+					// recomputed below
+				}
+			}
+
+			double zeta=parallel(0, n, theta);
+			zetas.setProperty(key, Double.toString(zeta));
+			try (OutputStream out=new FileOutputStream(cache))
+			{
+				zetas.store(out, "zeta constants of zipfian distributions, by item count and zipfian constant");
+			}
+			catch (IOException e)
+			{
+				System.err.println("WARNING: could not write the zeta cache "+cache+": "+e.getMessage());
+			}
+			return zeta;
+		}
+	}
+}
@@ -17,6 +17,9 @@
 
 package com.yahoo.ycsb.generator;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import com.yahoo.ycsb.Utils;
 
 /**
@@ -29,11 +32,12 @@ import com.yahoo.ycsb.Utils;
  * popular, min+1 the next most popular, etc.) If you don't want this clustering, and instead want the popular items scattered throughout the 
  * item space, then use ScrambledZipfianGenerator instead.
  * 
- * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a minute
- * for 100 million objects). This is because certain mathematical values need to be computed to properly generate a zipfian skew, and one of those
- * values (zeta) is a sum sequence from 1 to n, where n is the itemcount. Note that if you increase the number of items in the set, we can compute
- * a new zeta incrementally, so it should be fast unless you have added millions of items. However, if you decrease the number of items, we recompute
- * zeta from scratch, so this can take a long time. 
+ * Certain mathematical values need to be computed to properly generate a zipfian skew, and one of those values (zeta) is a sum sequence
+ * from 1 to n, where n is the itemcount. Summing it term by term would take over a minute for 100 million objects, so beyond a million
+ * terms it is approximated in constant time, see {@link Zeta}. Pass a precomputed zeta to the constructor to use the exact sum instead.
+ * Note that if you increase the number of items in the set, we compute a new zeta incrementally, for a batch of item counts ahead at once,
+ * and publish it without a lock, so threads sampling while the number of items grows never wait for each other. However, if you decrease
+ * the number of items, we recompute zeta from scratch.
  *
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
@@ -59,22 +63,50 @@ public class ZipfianGenerator extends NumberGenerator
 	/**
 	 * Computed parameters for generating the distribution.
 	 */
-	private double alpha,zetan,eta,theta,zeta2theta;
-	
+	private final double alpha,theta,zeta2theta;
+
+	/**
+	 * The number of item counts a snapshot holds zetan and eta for.
+	 */
+	static final int BATCH=1024;
+
 	/**
-	 * The number of items used to compute zetan the last time.
+	 * Zetan and eta for a range of item counts, from count to count+BATCH-1, so that as the number of items grows, the samplers
+	 * find them ready. Immutable, so samplers never need a lock to read it.
 	 */
-	private long countforzeta;
+	private static final class Snapshot
+	{
+		final long count;
+		final double[] zetan;
+		final double[] eta;
+
+		Snapshot(long count, double[] zetan, double[] eta)
+		{
+			this.count=count;
+			this.zetan=zetan;
+			this.eta=eta;
+		}
+	}
+
+	/**
+	 * The snapshot of the item counts currently asked for.
+	 */
+	private final AtomicReference<Snapshot> snapshot=new AtomicReference<Snapshot>();
+
+	/**
+	 * Set while a thread computes the next snapshot, so the other threads do not compute it as well.
+	 */
+	private final AtomicBoolean extending=new AtomicBoolean();
 	
 	/**
 	 * Flag to prevent problems. If you increase the number of items the zipfian generator is allowed to choose from, this code will incrementally compute a new zeta
-	 * value for the larger itemcount. However, if you decrease the number of items, the code computes zeta from scratch; this is expensive for large itemsets.
-	 * Usually this is not intentional; e.g. one thread thinks the number of items is 1001 and calls "nextLong()" with that item count; then another thread who thinks the 
-	 * number of items is 1000 calls nextLong() with itemcount=1000 triggering the expensive recomputation. (It is expensive for 100 million items, not really for 1000 items.) Why
+	 * value for the larger itemcount. If you decrease the number of items, the code can likewise subtract the terms of the items that went away, but usually this is
+	 * not intentional; e.g. one thread thinks the number of items is 1001 and calls "nextLong()" with that item count; then another thread who thinks the 
+	 * number of items is 1000 calls nextLong() with itemcount=1000, and the two keep replacing each other's zeta. Why
 	 * did the second thread think there were only 1000 items? maybe it read the item count before the first thread incremented it. So this flag allows you to say if you really do
 	 * want that recomputation. If true, then the code will recompute zeta if the itemcount goes down. If false, the code will assume itemcount only goes up, and never recompute. 
 	 */
-	private boolean allowitemcountdecrease=false;
+	boolean allowitemcountdecrease=false;
 
 	/******************************* Constructors **************************************/
 
@@ -136,14 +168,11 @@ public class ZipfianGenerator extends NumberGenerator
 
 		theta=zipfianconstant;
 
-		zeta2theta=zeta(2,theta);
+		zeta2theta=zetastatic(2,theta);
 
 		
 		alpha=1.0/(1.0-theta);
-		//zetan=zeta(items,theta);
-		zetan=_zetan;
-		countforzeta=items;
-		eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
+		snapshot.set(newSnapshot(items,_zetan));
 		
 		//System.out.println("XXXX 3 XXXX");
 		nextValue();
@@ -152,19 +181,6 @@ public class ZipfianGenerator extends NumberGenerator
 	
 	/**************************************************************************/
 	
-	/**
-	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
-	 * zipfian constant theta. Remember the value of n, so if we change the itemcount, we can recompute zeta.
-	 * 
-	 * @param n The number of items to compute zeta over.
-	 * @param theta The zipfian constant.
-	 */
-	double zeta(long n, double theta)
-	{
-		countforzeta=n;
-		return zetastatic(n,theta);
-	}
-	
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
 	 * zipfian constant theta. This is a static version of the function which will not remember n.
@@ -179,40 +195,96 @@ public class ZipfianGenerator extends NumberGenerator
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
 	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
-	 * n so that if we change the itemcount, we'll know to recompute zeta.
-	 * 
+	 * n so that if we change the itemcount, we'll know to recompute zeta. 
 	 * @param st The number of items used to compute the last initialsum
 	 * @param n The number of items to compute zeta over.
 	 * @param theta The zipfian constant.
      * @param initialsum The value of zeta we are computing incrementally from.
 	 */
-	double zeta(long st, long n, double theta, double initialsum)
+	static double zetastatic(long st, long n, double theta, double initialsum)
 	{
-		countforzeta=n;
-		return zetastatic(st,n,theta,initialsum);
+		return initialsum+Zeta.sum(st,n,theta);
 	}
-	
+
 	/**
-	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
-	 * n so that if we change the itemcount, we'll know to recompute zeta. 
-	 * @param st The number of items used to compute the last initialsum
-	 * @param n The number of items to compute zeta over.
-	 * @param theta The zipfian constant.
-     * @param initialsum The value of zeta we are computing incrementally from.
+	 * Return the snapshot of the item counts from count on, given the zeta constant of count items.
 	 */
-	static double zetastatic(long st, long n, double theta, double initialsum)
+	private Snapshot newSnapshot(long count, double zetan)
 	{
-		double sum=initialsum;
-		for (long i=st; i<n; i++)
+		double[] zetas=new double[BATCH];
+		double[] etas=new double[BATCH];
+		zetas[0]=zetan;
+		for (int i=1; i<BATCH; i++)
+		{
+			zetas[i]=zetas[i-1]+1/Math.pow(count+i,theta);
+		}
+		//as before, eta stays based on the initial number of items
+		double numerator=1-Math.pow(2.0/items,1-theta);
+		for (int i=0; i<BATCH; i++)
 		{
+			etas[i]=numerator/(1-zeta2theta/zetas[i]);
+		}
+		return new Snapshot(count,zetas,etas);
+	}
 
-			sum+=1/(Math.pow(i+1,theta));
+	/**
+	 * Return a snapshot for an item count outside of the current snapshot, and publish it unless another thread is
+	 * computing one already. Either way, the calling thread does not wait for other threads: while another thread
+	 * computes the next snapshot, the others make do with the last zetan of the current one, just as the readers
+	 * outside of the lock used to while the zetan was recomputed.
+	 */
+	private Snapshot extend(Snapshot s, long itemcount)
+	{
+		if (!extending.compareAndSet(false,true))
+		{
+			if (itemcount>s.count)
+			{
+				return s;
+			}
+			//the number of items went down, which is rare enough not to bother
+			double zetan=zetanBelow(s,itemcount);
+			return new Snapshot(itemcount,new double[]{zetan},new double[]{(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan)});
 		}
-		
-		//System.out.println("countforzeta="+countforzeta);
-		
-		return sum;
+		try
+		{
+			double zetan;
+			if (itemcount>s.count)
+			{
+				//we have added more items. can compute zetan incrementally, in constant time however far the item count ran ahead
+				long last=s.count+BATCH-1;
+				zetan=s.zetan[BATCH-1]+Zeta.approximate(last,itemcount,theta);
+			}
+			else
+			{
+				zetan=zetanBelow(s,itemcount);
+			}
+			Snapshot extended=newSnapshot(itemcount,zetan);
+			snapshot.compareAndSet(s,extended);
+			return extended;
+		}
+		finally
+		{
+			extending.set(false);
+		}
+	}
+
+	/**
+	 * Return the zetan of an item count below that of the snapshot, subtracting the terms of the items that went
+	 * away. Like growing, this takes constant time however far the item count moved.
+	 */
+	private double zetanBelow(Snapshot s, long itemcount)
+	{
+		return s.zetan[0]-Zeta.approximate(itemcount,s.count,theta);
+	}
+
+	/**
+	 * Return the zetan the current snapshot holds for the item count, NaN if it holds none.
+	 */
+	double zetan(long itemcount)
+	{
+		Snapshot s=snapshot.get();
+		long i=itemcount-s.count;
+		return ((i>=0) && (i<s.zetan.length)) ? s.zetan[(int)i] : Double.NaN;
 	}
 
 	/****************************************************************************************/
@@ -228,36 +300,34 @@ public class ZipfianGenerator extends NumberGenerator
 	{
 		//from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994
 
-		if (itemcount!=countforzeta)
+		//zetan and eta depend on itemcount, look them up in the snapshot
+		Snapshot s=snapshot.get();
+		long i=itemcount-s.count;
+		if ((i<0) && (!allowitemcountdecrease))
 		{
-
-			//have to recompute zetan and eta, since they depend on itemcount
-			synchronized(this)
+			//assume itemcount only goes up, keep the larger zetan
+			i=0;
+		}
+		else if ((i<0) || (i>=BATCH))
+		{
+			s=extend(s,itemcount);
+			i=Math.max(0,Math.min(itemcount-s.count,s.zetan.length-1));
+		}
+		else if ((i>=BATCH-BATCH/4) && (extending.compareAndSet(false,true)))
+		{
+			//the item count will soon leave the snapshot, compute the next one ahead of the samplers. it
+			//starts a little behind, for the samplers that read the item count a little earlier
+			try
+			{
+				snapshot.compareAndSet(s,newSnapshot(itemcount-BATCH/4,s.zetan[(int)i-BATCH/4]));
+			}
+			finally
 			{
-				if (itemcount>countforzeta)
-				{
-					//System.err.println("WARNING: Incrementally recomputing Zipfian distribtion. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					//we have added more items. can compute zetan incrementally, which is cheaper
-					zetan=zeta(countforzeta,itemcount,theta,zetan);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-				else if ( (itemcount<countforzeta) && (allowitemcountdecrease) )
-				{
-					//have to start over with zetan
-					//note : for large itemsets, this is very slow. so don't do it!
-
-					//TODO: can also have a negative incremental computation, e.g. if you decrease the number of items, then just subtract
-					//the zeta sequence terms for the items that went away. This would be faster than recomputing from scratch when the number of items
-					//decreases
-					
-					System.err.println("WARNING: Recomputing Zipfian distribtion. This is slow and should be avoided. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					zetan=zeta(itemcount,theta);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
+				extending.set(false);
 			}
 		}
+		double zetan=s.zetan[(int)i];
+		double eta=s.eta[(int)i];
 
 		double u=Utils.random().nextDouble();
 		double uz=u*zetan;
@@ -287,6 +357,12 @@ public class ZipfianGenerator extends NumberGenerator
 	{
 		return nextLong(items);
 	}
+
+	@Override
+	public long nextLong()
+	{
+		return nextLong(items);
+	}
 	
 	public static void main(String[] args)
 	{
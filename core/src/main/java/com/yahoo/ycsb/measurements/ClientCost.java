@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * What the client itself spends on each operation: the CPU time and the bytes allocated by the
+ * client thread from the start of an operation to its end, including the binding's work on that
+ * thread. The cost of an operation is attributed to the last operation with an intended latency
+ * measured meanwhile, so a read-modify-write is one READ-MODIFY-WRITE rather than a READ and an
+ * UPDATE.
+ */
+final class ClientCost
+{
+  /**
+   * The totals of one operation.
+   */
+  static final class Totals
+  {
+    final LongAdder _operations=new LongAdder();
+    final LongAdder _cpuNanos=new LongAdder();
+    final LongAdder _allocatedBytes=new LongAdder();
+  }
+
+  private final String _binding;
+
+  private final com.sun.management.ThreadMXBean _threads;
+
+  private volatile ConcurrentHashMap<String, Totals> _totals=new ConcurrentHashMap<String, Totals>();
+
+  /**
+   * Create the accounting of the client cost.
+   *
+   * @param binding The name of the binding the costs are reported for.
+   * @return The accounting, or null if this JVM cannot measure the CPU time or the allocations
+   *         of a thread.
+   */
+  static ClientCost create(String binding)
+  {
+    if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+    {
+      return null;
+    }
+    com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (!threads.isCurrentThreadCpuTimeSupported() || !threads.isThreadAllocatedMemorySupported())
+    {
+      return null;
+    }
+    threads.setThreadCpuTimeEnabled(true);
+    threads.setThreadAllocatedMemoryEnabled(true);
+    return new ClientCost(binding.substring(binding.lastIndexOf('.')+1), threads);
+  }
+
+  private ClientCost(String binding, com.sun.management.ThreadMXBean threads)
+  {
+    _binding=binding;
+    _threads=threads;
+  }
+
+  /**
+   * Note that the calling thread starts an operation.
+   */
+  void start(Measurements.StartTimeHolder holder)
+  {
+    holder.operation=null;
+    holder.cpuStart=_threads.getCurrentThreadCpuTime();
+    holder.allocatedStart=_threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Note that the operation of the calling thread ended, and account for its cost.
+   */
+  void end(Measurements.StartTimeHolder holder)
+  {
+    long cpu=_threads.getCurrentThreadCpuTime();
+    long allocated=_threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    // -1 on threads the JVM cannot measure, such as virtual threads
+    if ((holder.operation==null) || (holder.cpuStart<0) || (cpu<0) || (holder.allocatedStart<0) || (allocated<0))
+    {
+      return;
+    }
+    record(holder.operation, cpu-holder.cpuStart, allocated-holder.allocatedStart);
+    holder.operation=null;
+  }
+
+  void record(String operation, long cpuNanos, long allocatedBytes)
+  {
+    ConcurrentHashMap<String, Totals> totals=_totals;
+    Totals t=totals.get(operation);
+    if (t==null)
+    {
+      t=totals.computeIfAbsent(operation, k -> new Totals());
+    }
+    t._operations.increment();
+    t._cpuNanos.add(cpuNanos);
+    t._allocatedBytes.add(allocatedBytes);
+  }
+
+  /**
+   * Discard the costs accounted so far.
+   */
+  void reset()
+  {
+    _totals=new ConcurrentHashMap<String, Totals>();
+  }
+
+  /**
+   * Return the name the costs of an operation are exported under.
+   */
+  String getName(String operation)
+  {
+    return Measurements.CLIENT_COST_PREFIX+_binding+"-"+operation;
+  }
+
+  /**
+   * Export the CPU time and the allocations per operation, by operation.
+   */
+  void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    for (Map.Entry<String, Totals> entry : new TreeMap<String, Totals>(_totals).entrySet())
+    {
+      String name=getName(entry.getKey());
+      long operations=entry.getValue()._operations.sum();
+      if (operations==0)
+      {
+        continue;
+      }
+      if (operations<=Integer.MAX_VALUE)
+      {
+        exporter.write(name, "Operations", (int) operations);
+      }
+      else
+      {
+        exporter.write(name, "Operations", (double) operations);
+      }
+      exporter.write(name, "CpuPerOp(us)", entry.getValue()._cpuNanos.sum()/1000.0/operations);
+      exporter.write(name, "AllocatedPerOp(bytes)", (double) entry.getValue()._allocatedBytes.sum()/operations);
+    }
+  }
+}
@@ -17,13 +17,22 @@
 
 package com.yahoo.ycsb.measurements;
 
+import com.yahoo.ycsb.Client;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.HdrHistogram.Histogram;
+
 /**
  * Collects latency measurements, and reports them when requested.
  *
@@ -38,6 +47,7 @@ public class Measurements {
   public enum MeasurementType {
     HISTOGRAM,
     HDRHISTOGRAM,
+    HDRHISTOGRAM_PERTHREAD,
     HDRHISTOGRAM_AND_HISTOGRAM,
     HDRHISTOGRAM_AND_RAW,
     TIMESERIES,
@@ -50,6 +60,29 @@ public class Measurements {
   public static final String MEASUREMENT_INTERVAL = "measurement.interval";
   private static final String MEASUREMENT_INTERVAL_DEFAULT = "op";
   
+  /**
+   * Whether to also measure the stages of every operation: the schedule lag, from the intended
+   * to the actual start of the operation, the preprocessing, from the start of the operation to
+   * its first DB call, and the DB call itself.
+   */
+  public static final String MEASUREMENT_DECOMPOSE_PROPERTY = "measurement.decompose";
+  public static final String MEASUREMENT_DECOMPOSE_PROPERTY_DEFAULT = "false";
+
+  /** The prefixes of the names of the stages of an operation. */
+  public static final String SCHEDULE_LAG_PREFIX = "ScheduleLag-";
+  public static final String PREPROCESSING_PREFIX = "Preprocessing-";
+  public static final String DB_CALL_PREFIX = "DbCall-";
+
+  /**
+   * Whether to account for the CPU time and the allocations of the client thread on each
+   * operation, reported per operation under {@link #CLIENT_COST_PREFIX}, the binding and the
+   * operation.
+   */
+  public static final String MEASUREMENT_CLIENT_COST_PROPERTY = "measurement.clientcost";
+  public static final String MEASUREMENT_CLIENT_COST_PROPERTY_DEFAULT = "false";
+
+  public static final String CLIENT_COST_PREFIX = "CLIENT_COST-";
+
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY = "measurement.trackjvm";
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT = "false";
 
@@ -73,10 +106,24 @@ public class Measurements {
     return singleton;
   }
 
-  final ConcurrentHashMap<String,OneMeasurement> _opToMesurementMap;
-  final ConcurrentHashMap<String,OneMeasurement> _opToIntendedMesurementMap;
+  volatile ConcurrentHashMap<String,OneMeasurement> _opToMesurementMap;
+  volatile ConcurrentHashMap<String,OneMeasurement> _opToIntendedMesurementMap;
   final MeasurementType _measurementType;
   final int _measurementInterval;
+  final boolean _decompose;
+
+  /** The accounting of the client cost, null when not measured. */
+  final ClientCost _clientCost;
+
+  /** Counts the resets, so handles know when to look their measurements up again. */
+  private volatile int _generation;
+
+  /**
+   * The HdrHistogram measurements logging to a file that a reset discarded, by name, until the
+   * measurements replacing them take their log files over.
+   */
+  private final ConcurrentHashMap<String, OneMeasurementHdrHistogram> _replacedHdrLogs=
+      new ConcurrentHashMap<String, OneMeasurementHdrHistogram>();
   private Properties _props;
 
   /**
@@ -98,6 +145,10 @@ public class Measurements {
     {
       _measurementType = MeasurementType.HDRHISTOGRAM;
     }
+    else if (mTypeString.equals("hdrhistogram-perthread"))
+    {
+      _measurementType = MeasurementType.HDRHISTOGRAM_PERTHREAD;
+    }
     else if (mTypeString.equals("hdrhistogram+histogram"))
     {
       _measurementType = MeasurementType.HDRHISTOGRAM_AND_HISTOGRAM;
@@ -134,6 +185,24 @@ public class Measurements {
     else {
       throw new IllegalArgumentException("unknown "+MEASUREMENT_INTERVAL+"="+mIntervalString);
     }
+
+    _decompose = Boolean.parseBoolean(_props.getProperty(MEASUREMENT_DECOMPOSE_PROPERTY,
+        MEASUREMENT_DECOMPOSE_PROPERTY_DEFAULT));
+
+    if (Boolean.parseBoolean(_props.getProperty(MEASUREMENT_CLIENT_COST_PROPERTY,
+        MEASUREMENT_CLIENT_COST_PROPERTY_DEFAULT)))
+    {
+      _clientCost = ClientCost.create(_props.getProperty(Client.DB_PROPERTY, "com.yahoo.ycsb.BasicDB"));
+      if (_clientCost == null)
+      {
+        System.err.println("WARNING: this JVM cannot measure the CPU time and the allocations of a thread, "
+            + MEASUREMENT_CLIENT_COST_PROPERTY + " is ignored.");
+      }
+    }
+    else
+    {
+      _clientCost = null;
+    }
   }
 
   OneMeasurement constructOneMeasurement(String name)
@@ -143,14 +212,16 @@ public class Measurements {
     case HISTOGRAM:
       return new OneMeasurementHistogram(name, _props);
     case HDRHISTOGRAM:
-      return new OneMeasurementHdrHistogram(name, _props);
+      return new OneMeasurementHdrHistogram(name, _props, _replacedHdrLogs.remove(name));
+    case HDRHISTOGRAM_PERTHREAD:
+      return new OneMeasurementHdrHistogramPerThread(name, _props, _replacedHdrLogs.remove(name));
     case HDRHISTOGRAM_AND_HISTOGRAM:
       return new TwoInOneMeasurement(name,
-              new OneMeasurementHdrHistogram("Hdr"+name, _props),
+              new OneMeasurementHdrHistogram("Hdr"+name, _props, _replacedHdrLogs.remove("Hdr"+name)),
               new OneMeasurementHistogram("Bucket"+name, _props));
     case HDRHISTOGRAM_AND_RAW:
       return new TwoInOneMeasurement(name,
-          new OneMeasurementHdrHistogram("Hdr"+name, _props),
+          new OneMeasurementHdrHistogram("Hdr"+name, _props, _replacedHdrLogs.remove("Hdr"+name)),
           new OneMeasurementRaw("Raw"+name, _props));
     case TIMESERIES:
       return new OneMeasurementTimeSeries(name, _props);
@@ -163,6 +234,12 @@ public class Measurements {
 
   static class StartTimeHolder {
     long time;
+    /** When the client thread started the current operation, 0 once its first DB call started. */
+    long operationStart;
+    /** The operation the client cost is attributed to, and the CPU time and allocations at its start. */
+    String operation;
+    long cpuStart;
+    long allocatedStart;
 
     long startTime(){
       if(time == 0) {
@@ -181,11 +258,34 @@ public class Measurements {
   };
 
   public void setIntendedStartTimeNs(long time) {
-    if(_measurementInterval==0)
+    if(_measurementInterval==0 && !_decompose)
       return;
     tlIntendedStartTime.get().time=time;
   }
 
+  /**
+   * Note that the calling thread starts a new operation now, when measuring the stages of the
+   * operations or the client cost.
+   */
+  public void startOperation() {
+    if(!_decompose && _clientCost==null)
+      return;
+    StartTimeHolder holder=tlIntendedStartTime.get();
+    if(_decompose)
+      holder.operationStart=System.nanoTime();
+    if(_clientCost!=null)
+      _clientCost.start(holder);
+  }
+
+  /**
+   * Note that the operation the calling thread started last ended, when measuring the client cost.
+   */
+  public void endOperation() {
+    if(_clientCost==null)
+      return;
+    _clientCost.end(tlIntendedStartTime.get());
+  }
+
   public long getIntendedtartTimeNs() {
     if(_measurementInterval==0)
       return 0L;
@@ -220,6 +320,8 @@ public class Measurements {
    */
   public void measureIntended(String operation, int latency)
   {
+    if(_clientCost!=null)
+      tlIntendedStartTime.get().operation=operation;
     if(_measurementInterval==0)
       return;
     try
@@ -276,6 +378,303 @@ public class Measurements {
     m.reportStatus(status);
   }
 
+  /**
+   * Discard all measurements and return codes recorded so far. The components holding on to this
+   * object keep working and start recording into fresh measurements.
+   */
+  public synchronized void reset()
+  {
+    // the log files are kept open for the new measurements, rather than started over
+    for (OneMeasurementHdrHistogram m : getHdrLogs())
+    {
+      _replacedHdrLogs.put(m.getName(), m);
+    }
+    _opToMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
+    _opToIntendedMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
+    if (_clientCost!=null)
+    {
+      _clientCost.reset();
+    }
+    // after the maps, so a handle seeing the new generation also sees the new maps
+    _generation++;
+  }
+
+  /**
+   * Return a handle to the measurements of an operation, for callers measuring the same operation
+   * over and over. The handle looks the measurements up once, and again only after a
+   * {@link #reset()}, instead of on every operation.
+   */
+  public OperationHandle getHandle(String operation)
+  {
+    return new OperationHandle(operation);
+  }
+
+  /**
+   * The measurements of one operation, resolved ahead of the measured operations. The measurements
+   * are still created when the operation is first measured, so operations never executed are not
+   * reported.
+   */
+  public final class OperationHandle
+  {
+    private final String _operation;
+    private final StageMeasurement _scheduleLag;
+    private final StageMeasurement _preprocessing;
+    private final StageMeasurement _dbCall;
+
+    /** The measurements of the current generation, null before the first operation. */
+    private Resolved _resolved;
+
+    OperationHandle(String operation)
+    {
+      _operation=operation;
+      _scheduleLag=new StageMeasurement(SCHEDULE_LAG_PREFIX+operation);
+      _preprocessing=new StageMeasurement(PREPROCESSING_PREFIX+operation);
+      _dbCall=new StageMeasurement(DB_CALL_PREFIX+operation);
+    }
+
+    /**
+     * Report that a DB call of the operation starts now, when measuring the stages of the
+     * operations. The first DB call of an operation ends its schedule lag and its preprocessing.
+     */
+    public void startCall(long startTimeNanos)
+    {
+      if (!_decompose)
+      {
+        return;
+      }
+      StartTimeHolder holder=tlIntendedStartTime.get();
+      if (holder.operationStart==0)
+      {
+        return;
+      }
+      // there is no schedule to lag behind without a target
+      if (holder.time!=0)
+      {
+        _scheduleLag.get().measure((int)((holder.operationStart-holder.time)/1000));
+      }
+      _preprocessing.get().measure((int)((startTimeNanos-holder.operationStart)/1000));
+      holder.operationStart=0;
+    }
+
+    /**
+     * Report the duration of a DB call of the operation, successful or not, when measuring the
+     * stages of the operations.
+     */
+    public void endCall(int latency)
+    {
+      if (_decompose)
+      {
+        _dbCall.get().measure(latency);
+      }
+    }
+
+    /**
+     * Report the latency and the intended latency of one operation.
+     */
+    public void measure(int latency, int intendedLatency)
+    {
+      if (_clientCost!=null)
+      {
+        tlIntendedStartTime.get().operation=_operation;
+      }
+      Resolved resolved=resolve();
+      try
+      {
+        if (resolved._measurement!=null)
+        {
+          resolved._measurement.measure(latency);
+        }
+        if (resolved._intended!=null)
+        {
+          resolved._intended.measure(intendedLatency);
+        }
+      }
+      // as in Measurements.measure
+      catch (java.lang.ArrayIndexOutOfBoundsException e)
+      {
+        System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+      }
+    }
+
+    /**
+     * Report the return code of one operation.
+     */
+    public void reportStatus(Status status)
+    {
+      Resolved resolved=resolve();
+      (_measurementInterval==1 ? resolved._intended : resolved._measurement).reportStatus(status);
+    }
+
+    private Resolved resolve()
+    {
+      // the generation is read before the maps, see reset()
+      int generation=_generation;
+      Resolved resolved=_resolved;
+      if ((resolved==null) || (resolved._generation!=generation))
+      {
+        resolved=new Resolved(generation,
+            _measurementInterval==1 ? null : getOpMeasurement(_operation),
+            _measurementInterval==0 ? null : getOpIntendedMeasurement(_operation));
+        // immutable, so threads racing here only resolve the same measurements twice
+        _resolved=resolved;
+      }
+      return resolved;
+    }
+  }
+
+  /**
+   * A measurement of a stage of an operation, looked up once and again only after a reset, and
+   * created when the stage is first measured.
+   */
+  private final class StageMeasurement
+  {
+    private final String _name;
+    private Resolved _resolved;
+
+    StageMeasurement(String name)
+    {
+      _name=name;
+    }
+
+    OneMeasurement get()
+    {
+      // the generation is read before the maps, see reset()
+      int generation=_generation;
+      Resolved resolved=_resolved;
+      if ((resolved==null) || (resolved._generation!=generation))
+      {
+        resolved=new Resolved(generation, getOpMeasurement(_name), null);
+        _resolved=resolved;
+      }
+      return resolved._measurement;
+    }
+  }
+
+  private static final class Resolved
+  {
+    final int _generation;
+    final OneMeasurement _measurement;
+    final OneMeasurement _intended;
+
+    Resolved(int generation, OneMeasurement measurement, OneMeasurement intended)
+    {
+      _generation=generation;
+      _measurement=measurement;
+      _intended=intended;
+    }
+  }
+
+  /**
+   * Return a copy of the HdrHistogram of everything recorded so far for each operation, without
+   * disturbing the status intervals. The intended latencies are used when they are measured.
+   * Measurement types not keeping an HdrHistogram are left out.
+   */
+  public synchronized HistogramSnapshot getCumulativeHistograms()
+  {
+    // synchronized like reset(), so the histograms are those of the generation recorded
+    HistogramSnapshot histograms = new HistogramSnapshot(_generation);
+    addCumulativeHistograms(_measurementInterval==0 ? _opToMesurementMap : _opToIntendedMesurementMap, false, histograms);
+    return histograms;
+  }
+
+  /**
+   * Return a copy of the HdrHistogram of everything recorded so far for each measurement, by the
+   * name it is exported under, so both the actual and the intended latencies are included when
+   * they are measured.
+   */
+  public synchronized HistogramSnapshot getCumulativeHistogramsByName()
+  {
+    HistogramSnapshot histograms = new HistogramSnapshot(_generation);
+    addCumulativeHistograms(_opToMesurementMap, true, histograms);
+    addCumulativeHistograms(_opToIntendedMesurementMap, true, histograms);
+    return histograms;
+  }
+
+  private static void addCumulativeHistograms(Map<String, OneMeasurement> measurements, boolean byName,
+      Map<String, Histogram> histograms)
+  {
+    for (Map.Entry<String, OneMeasurement> entry : measurements.entrySet())
+    {
+      OneMeasurement m = entry.getValue();
+      if (m instanceof TwoInOneMeasurement)
+      {
+        m = ((TwoInOneMeasurement) m).thing1;
+      }
+      if (m instanceof OneMeasurementHdrHistogram)
+      {
+        histograms.put(byName ? m.getName() : entry.getKey(), ((OneMeasurementHdrHistogram) m).getCumulativeHistogram());
+      }
+    }
+  }
+
+  /**
+   * Return the number of operations that returned each status so far, by the name of the
+   * measurement and then of the status. Measurements no status was reported to are left out.
+   */
+  public Map<String, Map<String, Integer>> getStatusCounts()
+  {
+    Map<String, Map<String, Integer>> counts = new TreeMap<String, Map<String, Integer>>();
+    for (Map<String, OneMeasurement> measurements : Arrays.asList(_opToMesurementMap, _opToIntendedMesurementMap))
+    {
+      for (OneMeasurement m : measurements.values())
+      {
+        Map<String, Integer> statusCounts = m.getStatusCounts();
+        if (!statusCounts.isEmpty())
+        {
+          counts.put(m.getName(), statusCounts);
+        }
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * The HdrHistograms of a snapshot of the measurements, by operation, along with the generation
+   * of the measurements they were copied from.
+   */
+  public static final class HistogramSnapshot extends HashMap<String, Histogram>
+  {
+    private static final long serialVersionUID = 1L;
+
+    /** The number of resets of the measurements before the snapshot. */
+    private final int _generation;
+
+    HistogramSnapshot(int generation)
+    {
+      _generation=generation;
+    }
+  }
+
+  /**
+   * Return what was recorded between two snapshots of {@link #getCumulativeHistograms()}, leaving
+   * out operations with nothing recorded in between. When the measurements were reset in between,
+   * for instance at the end of a warmup, what was recorded since the reset is returned. Histograms
+   * not taken from a {@link HistogramSnapshot} are taken to be of the same generation.
+   */
+  public static Map<String, Histogram> getIntervalHistograms(Map<String, Histogram> before, Map<String, Histogram> after)
+  {
+    boolean reset = (before instanceof HistogramSnapshot) && (after instanceof HistogramSnapshot)
+        && (((HistogramSnapshot) before)._generation != ((HistogramSnapshot) after)._generation);
+    Map<String, Histogram> histograms = new HashMap<String, Histogram>();
+    for (Map.Entry<String, Histogram> entry : after.entrySet())
+    {
+      Histogram interval = entry.getValue();
+      Histogram start = reset ? null : before.get(entry.getKey());
+      if (start != null)
+      {
+        interval = interval.copy();
+        interval.subtract(start);
+      }
+      if (interval.getTotalCount() > 0)
+      {
+        histograms.put(entry.getKey(), interval);
+      }
+    }
+    return histograms;
+  }
+
   /**
    * Export the current measurements to a suitable format.
    *
@@ -292,6 +691,51 @@ public class Measurements {
     {
       measurement.exportMeasurements(exporter);
     }
+    if (_clientCost!=null)
+    {
+      _clientCost.exportMeasurements(exporter);
+    }
+  }
+
+  /**
+   * Close the files the measurements log to. Called once the measurements were exported for the
+   * last time, as a run plan exports them after each of its phases.
+   */
+  public synchronized void close()
+  {
+    for (OneMeasurementHdrHistogram m : getHdrLogs())
+    {
+      m.log.close();
+    }
+    // the logs of operations not measured again after a reset
+    for (OneMeasurementHdrHistogram m : _replacedHdrLogs.values())
+    {
+      m.log.close();
+    }
+    _replacedHdrLogs.clear();
+  }
+
+  /**
+   * Return the current HdrHistogram measurements logging to a file.
+   */
+  private List<OneMeasurementHdrHistogram> getHdrLogs()
+  {
+    List<OneMeasurementHdrHistogram> logs = new ArrayList<OneMeasurementHdrHistogram>();
+    for (Map<String, OneMeasurement> measurements : Arrays.asList(_opToMesurementMap, _opToIntendedMesurementMap))
+    {
+      for (OneMeasurement m : measurements.values())
+      {
+        if (m instanceof TwoInOneMeasurement)
+        {
+          m = ((TwoInOneMeasurement) m).thing1;
+        }
+        if ((m instanceof OneMeasurementHdrHistogram) && (((OneMeasurementHdrHistogram) m).log != null))
+        {
+          logs.add((OneMeasurementHdrHistogram) m);
+        }
+      }
+    }
+    return logs;
   }
 
   /**
@@ -22,6 +22,7 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -73,9 +74,31 @@ public abstract class OneMeasurement {
    */
   public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
 
+  /**
+   * Return the number of operations that returned each status so far, by the name of the status.
+   */
+  public Map<String, Integer> getStatusCounts() {
+    Map<String, Integer> counts = new TreeMap<String, Integer>();
+    for (Map.Entry<Status, AtomicInteger> entry : _returncodes.entrySet()) {
+      counts.put(entry.getKey().getName(), entry.getValue().get());
+    }
+    return counts;
+  }
+
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
     for (Map.Entry<Status, AtomicInteger> entry : _returncodes.entrySet()) {
       exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
     }
   }
+
+  /**
+   * Write a count, as an int unless it is too large for one.
+   */
+  protected final void exportCount(MeasurementsExporter exporter, String metric, long count) throws IOException {
+    if (count <= Integer.MAX_VALUE) {
+      exporter.write(getName(), metric, (int) count);
+    } else {
+      exporter.write(getName(), metric, (double) count);
+    }
+  }
 }
@@ -48,6 +48,9 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   final Recorder histogram;
   Histogram totalHistogram;
 
+  /** Recorded since the last status summary, null if nothing was drained since. */
+  Histogram pendingHistogram;
+
   /**
    * The name of the property for deciding what percentile values to output.
    */
@@ -61,12 +64,24 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   List<Integer> percentiles;
 
   public OneMeasurementHdrHistogram(String name, Properties props) {
+    this(name, props, null);
+  }
+
+  /**
+   * Create a measurement replacing one discarded by a reset, which appends to the log file of the
+   * replaced measurement, if it has one, instead of starting the file over.
+   */
+  OneMeasurementHdrHistogram(String name, Properties props, OneMeasurementHdrHistogram replaced) {
     super(name);
     percentiles = getPercentileValues(props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT));
     boolean shouldLog = Boolean.parseBoolean(props.getProperty("hdrhistogram.fileoutput", "false"));
     if (!shouldLog) {
       log = null;
       histogramLogWriter = null;
+    } else if ((replaced != null) && (replaced.log != null)) {
+      log = replaced.log;
+      histogramLogWriter = replaced.histogramLogWriter;
+      histogramLogWriter.outputComment("[Measurements reset]");
     } else {
       try {
         final String hdrOutputFilename = props.getProperty("hdrhistogram.output.path", "") + name + ".hdr";
@@ -101,24 +116,32 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
     * @see com.yahoo.ycsb.measurements.OneMeasurement#exportMeasurements(com.yahoo.ycsb.measurements.exporter.MeasurementsExporter)
     */
   @Override
-  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
     // accumulate the last interval which was not caught by status thread
     Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
     if (histogramLogWriter != null) {
       histogramLogWriter.outputIntervalHistogram(intervalHistogram);
-      // we can close now
-      log.close();
+      // a run plan exports each phase, the log is closed once the last one is exported
+      log.flush();
     }
-    exporter.write(getName(), "Operations", totalHistogram.getTotalCount());
-    exporter.write(getName(), "AverageLatency(us)", totalHistogram.getMean());
-    exporter.write(getName(), "MinLatency(us)", totalHistogram.getMinValue());
-    exporter.write(getName(), "MaxLatency(us)", totalHistogram.getMaxValue());
+    exportHistogram(exporter, getName(), totalHistogram, percentiles);
+    
+    exportStatusCounts(exporter);
+  }
+
+  /**
+   * Export a histogram in the format of this measurement, for histograms merged elsewhere.
+   */
+  public static void exportHistogram(MeasurementsExporter exporter, String name, Histogram histogram,
+      List<Integer> percentiles) throws IOException {
+    exporter.write(name, "Operations", histogram.getTotalCount());
+    exporter.write(name, "AverageLatency(us)", histogram.getMean());
+    exporter.write(name, "MinLatency(us)", histogram.getMinValue());
+    exporter.write(name, "MaxLatency(us)", histogram.getMaxValue());
 
     for (Integer percentile: percentiles) {
-      exporter.write(getName(), ordinal(percentile) + "PercentileLatency(us)", totalHistogram.getValueAtPercentile(percentile));
+      exporter.write(name, ordinal(percentile) + "PercentileLatency(us)", histogram.getValueAtPercentile(percentile));
     }
-    
-    exportStatusCounts(exporter);
   }
 
 	/**
@@ -129,15 +152,22 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 	 * @see com.yahoo.ycsb.measurements.OneMeasurement#getSummary()
 	 */
 	@Override
-	public String getSummary() {
+	public synchronized String getSummary() {
 		Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
 		// we use the summary interval as the histogram file interval.
 		if (histogramLogWriter != null) {
 			histogramLogWriter.outputIntervalHistogram(intervalHistogram);
 		}
 
+		return getSummary(getName(), intervalHistogram);
+	}
+
+	/**
+	 * Summarize a histogram in the format of the status line.
+	 */
+	public static String getSummary(String name, Histogram intervalHistogram) {
 		DecimalFormat d = new DecimalFormat("#.##");
-		return "[" + getName() + ": Count=" + intervalHistogram.getTotalCount() + ", Max="
+		return "[" + name + ": Count=" + intervalHistogram.getTotalCount() + ", Max="
 				+ intervalHistogram.getMaxValue() + ", Min=" + intervalHistogram.getMinValue() + ", Avg="
 				+ d.format(intervalHistogram.getMean()) + ", 90=" + d.format(intervalHistogram.getValueAtPercentile(90))
 				+ ", 99=" + d.format(intervalHistogram.getValueAtPercentile(99)) + ", 99.9="
@@ -145,15 +175,42 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 				+ d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
 	}
 
+	/**
+	 * Returns a copy of everything recorded so far. Unlike {@link #getSummary()} this does not start
+	 * a new status interval, so it can be sampled by other components while the StatusThread runs.
+	 */
+	public synchronized Histogram getCumulativeHistogram() {
+		accumulate();
+		return totalHistogram.copy();
+	}
+
 	private Histogram getIntervalHistogramAndAccumulate() {
-		Histogram intervalHistogram = histogram.getIntervalHistogram();
+		accumulate();
+		Histogram intervalHistogram = pendingHistogram;
+		pendingHistogram = null;
+		return intervalHistogram;
+	}
+
+	/**
+	 * Returns what was recorded since the last call and starts a new interval.
+	 */
+	protected Histogram drainIntervalHistogram() {
+		return histogram.getIntervalHistogram();
+	}
+
+	private void accumulate() {
+		Histogram intervalHistogram = drainIntervalHistogram();
 		// add this to the total time histogram.
 		if (totalHistogram == null) {
-			totalHistogram = intervalHistogram;
+			totalHistogram = intervalHistogram.copy();
 		} else {
 			totalHistogram.add(intervalHistogram);
 		}
-		return intervalHistogram;
+		if (pendingHistogram == null) {
+			pendingHistogram = intervalHistogram;
+		} else {
+			pendingHistogram.add(intervalHistogram);
+		}
 	}
 
     /**
@@ -162,7 +219,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
      * @param percentileString - comma delimited string of Integer values
      * @return An Integer List of percentile values
      */
-    private List<Integer> getPercentileValues(String percentileString) {
+    public static List<Integer> getPercentileValues(String percentileString) {
       List<Integer> percentileValues = new ArrayList<Integer>();
 
       try {
@@ -186,7 +243,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
      * @param i
      * @return ordinal string
      */
-    private String ordinal(int i) {
+    private static String ordinal(int i) {
       String[] suffixes = new String[] { "th", "st", "nd", "rd", "th", "th", "th", "th", "th", "th" };
       switch (i % 100) {
         case 11:
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+/**
+ * An HdrHistogram measurement in which every client thread records into its own
+ * {@link SingleWriterRecorder}, so threads do not share counters or cache lines on the hot path.
+ * The recorders are merged at each status interval and at the end of the run; the summary, the
+ * exported percentiles and the histogram log are the same as those of
+ * {@link OneMeasurementHdrHistogram}.
+ *
+ * Each thread that measures the operation keeps a recorder for the rest of the run, so this type
+ * suits a bounded number of client threads rather than a virtual thread per operation.
+ */
+public class OneMeasurementHdrHistogramPerThread extends OneMeasurementHdrHistogram {
+
+  /**
+   * The recorder of a thread and the histogram it last handed out, which is recycled.
+   */
+  private static final class ThreadRecorder {
+    final SingleWriterRecorder recorder = new SingleWriterRecorder(3);
+    Histogram recycled;
+  }
+
+  /** The recorders of all threads that measured so far. */
+  private final List<ThreadRecorder> recorders = new CopyOnWriteArrayList<ThreadRecorder>();
+
+  private final ThreadLocal<ThreadRecorder> threadRecorder = new ThreadLocal<ThreadRecorder>() {
+    @Override
+    protected ThreadRecorder initialValue() {
+      ThreadRecorder recorder = new ThreadRecorder();
+      recorders.add(recorder);
+      return recorder;
+    }
+  };
+
+  /** The start of the current interval. */
+  private long intervalStartMs = System.currentTimeMillis();
+
+  public OneMeasurementHdrHistogramPerThread(String name, Properties props) {
+    super(name, props);
+  }
+
+  /**
+   * Create a measurement replacing one discarded by a reset.
+   *
+   * @see OneMeasurementHdrHistogram#OneMeasurementHdrHistogram(String, Properties, OneMeasurementHdrHistogram)
+   */
+  OneMeasurementHdrHistogramPerThread(String name, Properties props, OneMeasurementHdrHistogram replaced) {
+    super(name, props, replaced);
+  }
+
+  @Override
+  public void measure(int latencyInMicros) {
+    threadRecorder.get().recorder.recordValue(latencyInMicros);
+  }
+
+  /**
+   * Merges the intervals of all threads. Called with the lock of this measurement held.
+   */
+  @Override
+  protected Histogram drainIntervalHistogram() {
+    Histogram merged = new Histogram(3);
+    for (ThreadRecorder recorder : recorders) {
+      recorder.recycled = recorder.recorder.getIntervalHistogram(recorder.recycled);
+      merged.add(recorder.recycled);
+    }
+    long now = System.currentTimeMillis();
+    merged.setStartTimeStamp(intervalStartMs);
+    merged.setEndTimeStamp(now);
+    intervalStartMs = now;
+    return merged;
+  }
+}
@@ -20,9 +20,8 @@ package com.yahoo.ycsb.measurements;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.Properties;
-
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -30,6 +29,10 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ LATENCY.
  *
+ * Client threads record into one of several stripes picked by thread id, each with its own bucket
+ * array and totals updated with atomic increments, so threads do not contend on a lock or on the
+ * same counters. The stripes are only added up when the summary or the results are read.
+ *
  * @author cooperb
  *
  */
@@ -38,6 +41,17 @@ public class OneMeasurementHistogram extends OneMeasurement
   public static final String BUCKETS="histogram.buckets";
   public static final String BUCKETS_DEFAULT="1000";
 
+  /** The slots of the totals of a stripe. */
+  private static final int OPERATIONS=0;
+  private static final int TOTAL_LATENCY=1;
+  private static final int TOTAL_SQUARED_LATENCY=2;
+  private static final int WINDOW_OPERATIONS=3;
+  private static final int WINDOW_TOTAL_LATENCY=4;
+  private static final int MIN=5;
+  private static final int MAX=6;
+
+  /** The size of the totals of a stripe, padded to keep those of two stripes off one cache line. */
+  private static final int TOTALS_SIZE=16;
 
   /**
    * Specify the range of latencies to track in the histogram.
@@ -45,96 +59,107 @@ public class OneMeasurementHistogram extends OneMeasurement
   int _buckets;
 
   /**
-     * Groups operations in discrete blocks of 1ms width.
-     */
-  int[] histogram;
-  
-  /**
-   * Counts all operations outside the histogram's range.
-   */
-  int histogramoverflow;
-  
-  /**
-   * The total number of reported operations.
+   * Per stripe, the operations in discrete blocks of 1ms width, followed by the operations outside
+   * the histogram's range.
    */
-  int operations;
-  
-  /**
-   * The sum of each latency measurement over all operations.
-   * Calculated in ms.
-   */
-  long totallatency;
+  private final AtomicIntegerArray[] _histograms;
 
   /**
-   * The sum of each latency measurement squared over all operations. 
-   * Used to calculate variance of latency.
-   * Calculated in ms. 
+   * Per stripe, the number of operations, the sum of their latencies and of their squared
+   * latencies (as double bits) in us, the same since the last summary, and the min and max latency.
    */
-  double totalsquaredlatency;
-  
-  //keep a windowed version of these stats for printing status
-  int windowoperations;
-  long windowtotallatency;
+  private final AtomicLongArray[] _totals;
 
-  int min;
-  int max;
+  private final int _stripeMask;
 
   public OneMeasurementHistogram(String name, Properties props)
   {
     super(name);
     _buckets=Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
-    histogram=new int[_buckets];
-    histogramoverflow=0;
-    operations=0;
-    totallatency=0;
-    totalsquaredlatency=0;
-    windowoperations=0;
-    windowtotallatency=0;
-    min=-1;
-    max=-1;
+    // a power of two at least twice the number of processors
+    int stripes=Integer.highestOneBit(Math.max(1, 2*Runtime.getRuntime().availableProcessors()-1))<<1;
+    _stripeMask=stripes-1;
+    _histograms=new AtomicIntegerArray[stripes];
+    _totals=new AtomicLongArray[stripes];
+    for (int i=0; i<stripes; i++)
+    {
+      _histograms[i]=new AtomicIntegerArray(_buckets+1);
+      _totals[i]=new AtomicLongArray(TOTALS_SIZE);
+      _totals[i].set(MIN, Long.MAX_VALUE);
+      _totals[i].set(MAX, -1);
+    }
   }
 
   /* (non-Javadoc)
    * @see com.yahoo.ycsb.OneMeasurement#measure(int)
    */
-  public synchronized void measure(int latency)
+  public void measure(int latency)
   {
-      //latency reported in us and collected in bucket by ms.
-    if (latency/1000>=_buckets)
-    {
-      histogramoverflow++;
-    }
-    else
+    // consecutive client threads have consecutive ids, and so different stripes
+    int stripe=(int) Thread.currentThread().getId() & _stripeMask;
+    AtomicLongArray totals=_totals[stripe];
+
+    //latency reported in us and collected in bucket by ms.
+    _histograms[stripe].incrementAndGet(Math.min(latency/1000, _buckets));
+    totals.incrementAndGet(OPERATIONS);
+    totals.addAndGet(TOTAL_LATENCY, latency);
+    double squared=((double)latency) * ((double)latency);
+    long bits;
+    do
     {
-      histogram[latency/1000]++;
+      bits=totals.get(TOTAL_SQUARED_LATENCY);
     }
-    operations++;
-    totallatency += latency;
-    totalsquaredlatency += ((double)latency) * ((double)latency);
-    windowoperations++;
-    windowtotallatency += latency;
+    while (!totals.compareAndSet(TOTAL_SQUARED_LATENCY, bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + squared)));
+    totals.incrementAndGet(WINDOW_OPERATIONS);
+    totals.addAndGet(WINDOW_TOTAL_LATENCY, latency);
 
-    if ( (min<0) || (latency<min) )
+    long min=totals.get(MIN);
+    while (latency<min && !totals.compareAndSet(MIN, min, latency))
     {
-      min=latency;
+      min=totals.get(MIN);
     }
-
-    if ( (max<0) || (latency>max) )
+    long max=totals.get(MAX);
+    while (latency>max && !totals.compareAndSet(MAX, max, latency))
     {
-      max=latency;
+      max=totals.get(MAX);
     }
   }
 
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
+    int[] histogram=new int[_buckets];
+    int histogramoverflow=0;
+    int operations=0;
+    long totallatency=0;
+    double totalsquaredlatency=0;
+    long min=Long.MAX_VALUE;
+    long max=-1;
+    for (int s=0; s<_totals.length; s++)
+    {
+      for (int i=0; i<_buckets; i++)
+      {
+        histogram[i]+=_histograms[s].get(i);
+      }
+      histogramoverflow+=_histograms[s].get(_buckets);
+      operations+=(int) _totals[s].get(OPERATIONS);
+      totallatency+=_totals[s].get(TOTAL_LATENCY);
+      totalsquaredlatency+=Double.longBitsToDouble(_totals[s].get(TOTAL_SQUARED_LATENCY));
+      min=Math.min(min, _totals[s].get(MIN));
+      max=Math.max(max, _totals[s].get(MAX));
+    }
+    if (operations==0)
+    {
+      min=-1;
+    }
+
     double mean = totallatency/((double)operations);
     double variance = totalsquaredlatency/((double)operations) - (mean * mean);
     exporter.write(getName(), "Operations", operations);
     exporter.write(getName(), "AverageLatency(us)", mean);
     exporter.write(getName(), "LatencyVariance(us)", variance);
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    exporter.write(getName(), "MinLatency(us)", (int) min);
+    exporter.write(getName(), "MaxLatency(us)", (int) max);
 
     int opcounter=0;
     boolean done95th=false;
@@ -164,14 +189,19 @@ public class OneMeasurementHistogram extends OneMeasurement
 
   @Override
   public String getSummary() {
+    long windowoperations=0;
+    long windowtotallatency=0;
+    for (AtomicLongArray totals : _totals)
+    {
+      windowoperations+=totals.getAndSet(WINDOW_OPERATIONS, 0);
+      windowtotallatency+=totals.getAndSet(WINDOW_TOTAL_LATENCY, 0);
+    }
     if (windowoperations==0)
     {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
     double report=((double)windowtotallatency)/((double)windowoperations);
-    windowtotallatency=0;
-    windowoperations=0;
     return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
   }
 }
@@ -17,59 +17,28 @@
 
 package com.yahoo.ycsb.measurements;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Properties;
-import java.util.LinkedList;
-import java.util.Collections;
-import java.util.Comparator;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
  * Record a series of measurements as raw data points without down sampling,
  * optionally write to an output file when configured.
  *
+ * The data points are kept as columns of primitives, and beyond
+ * measurement.raw.max_in_memory points in a memory mapped spill file, so runs
+ * of any length fit in a bounded heap. The percentiles are exact and computed
+ * without sorting, see {@link RawDataStore#select(long[])}.
+ *
  * @author stfeng
  *
  */
 public class OneMeasurementRaw extends OneMeasurement {
-  /**
-   * One raw data point, two fields: timestamp (ms) when the datapoint is
-   * inserted, and the value.
-   */
-  class RawDataPoint {
-    private final long timestamp;
-    private final int value;
-
-    public RawDataPoint(int value) {
-      this.timestamp = System.currentTimeMillis();
-      this.value = value;
-    }
-
-    public long timeStamp() {
-      return timestamp;
-    }
-
-    public int value() {
-      return value;
-    }
-  }
-
-  class RawDataPointComparator implements Comparator<RawDataPoint> {
-    @Override
-    public int compare(RawDataPoint p1, RawDataPoint p2){
-      if (p1.value() < p2.value()){
-        return -1;
-      } else if (p1.value() == p2.value()) {
-        return 0;
-      } else {
-        return 1;
-      }
-    }
-  }
-
   /**
    * Optionally, user can configure an output file to save the raw data points.
    * Default is none, raw results will be written to stdout.
@@ -89,12 +58,37 @@ public class OneMeasurementRaw extends OneMeasurement {
   public static final String NO_SUMMARY_STATS = "measurement.raw.no_summary";
   public static final String NO_SUMMARY_STATS_DEFAULT = "false";
 
+  /**
+   * Optionally, user can request to not output the raw data points, only the
+   * summary stats.
+   */
+  public static final String NO_DATA_POINTS = "measurement.raw.no_data_points";
+  public static final String NO_DATA_POINTS_DEFAULT = "false";
+
+  /**
+   * The number of data points of each measurement kept on the heap. Any
+   * further data points are spilled to a file, 12 bytes per data point.
+   */
+  public static final String MAX_IN_MEMORY = "measurement.raw.max_in_memory";
+  public static final String MAX_IN_MEMORY_DEFAULT = "4194304";
+
+  /**
+   * The directory of the spill files. Default is the temporary directory of
+   * the JVM.
+   */
+  public static final String SPILL_DIRECTORY = "measurement.raw.spill_dir";
+
+  /** The percentiles reported in the summary, and their names. */
+  private static final double[] PERCENTILES = {0.01, 0.05, 0.5, 0.9, 0.95, 0.99, 0.999, 0.9999};
+  private static final String[] PERCENTILE_NAMES = {"p1", "p5", "p50", "p90", "p95", "p99", "p99.9", "p99.99"};
+
   private String outputFilePath = "";
   private final PrintStream outputStream;
 
   private boolean noSummaryStats = false;
+  private boolean noDataPoints = false;
 
-  private LinkedList<RawDataPoint> measurements;
+  private final RawDataStore measurements;
   private long totalLatency = 0;
 
   // A window of stats to print summary for at the next getSummary() call.
@@ -113,9 +107,8 @@ public class OneMeasurementRaw extends OneMeasurement {
           outputFilePath);
 
       try {
-        outputStream = new PrintStream(
-            new FileOutputStream(outputFilePath, true),
-            true);
+        outputStream = new PrintStream(new BufferedOutputStream(
+            new FileOutputStream(outputFilePath, true)));
       } catch (FileNotFoundException e) {
         throw new RuntimeException("Failed to open raw data output file", e);
       }
@@ -128,8 +121,13 @@ public class OneMeasurementRaw extends OneMeasurement {
 
    noSummaryStats = Boolean.parseBoolean(props.getProperty(NO_SUMMARY_STATS,
         NO_SUMMARY_STATS_DEFAULT));
+   noDataPoints = Boolean.parseBoolean(props.getProperty(NO_DATA_POINTS,
+        NO_DATA_POINTS_DEFAULT));
 
-   measurements = new LinkedList<RawDataPoint>();
+   String spillDirectory = props.getProperty(SPILL_DIRECTORY);
+   measurements = new RawDataStore(name,
+       Long.parseLong(props.getProperty(MAX_IN_MEMORY, MAX_IN_MEMORY_DEFAULT)),
+       spillDirectory == null ? null : new File(spillDirectory));
   }
 
   @Override
@@ -138,56 +136,60 @@ public class OneMeasurementRaw extends OneMeasurement {
     windowTotalLatency += latency;
     windowOperations++;
 
-    measurements.add(new RawDataPoint(latency));
+    try {
+      measurements.add(System.currentTimeMillis(), latency);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to spill raw data points", e);
+    }
   }
 
   @Override
-  public void exportMeasurements(MeasurementsExporter exporter)
+  public synchronized void exportMeasurements(MeasurementsExporter exporter)
       throws IOException {
     // Output raw data points first then print out a summary of percentiles to
     // stdout.
 
-    outputStream.println(getName() +
-        " latency raw data: op, timestamp(ms), latency(us)");
-    for (RawDataPoint point : measurements) {
-      outputStream.println(
-          String.format("%s,%d,%d", getName(), point.timeStamp(),
-              point.value()));
+    if (!noDataPoints) {
+      outputStream.println(getName() +
+          " latency raw data: op, timestamp(ms), latency(us)");
+      final String prefix = getName() + ",";
+      measurements.visit(new RawDataStore.ChunkVisitor() {
+        @Override
+        public void visit(long[] timestamps, int[] latencies, int length) {
+          for (int i = 0; i < length; i++) {
+            outputStream.println(prefix + timestamps[i] + "," + latencies[i]);
+          }
+        }
+      });
     }
+    outputStream.flush();
     if (outputStream != System.out) {
       outputStream.close();
     }
 
-    int totalOps = measurements.size();
-    exporter.write(getName(), "Total Operations", totalOps);
+    long totalOps = measurements.size();
+    exportCount(exporter, "Total Operations", totalOps);
     if (totalOps > 0 && !noSummaryStats) {
       exporter.write(getName(),
           "Below is a summary of latency in microseconds:", -1);
       exporter.write(getName(), "Average",
           (double)totalLatency / (double)totalOps);
 
-      Collections.sort(measurements, new RawDataPointComparator());
-
-      exporter.write(getName(), "Min", measurements.get(0).value());
-      exporter.write(
-          getName(), "Max", measurements.get(totalOps - 1).value());
-      exporter.write(
-          getName(), "p1", measurements.get((int)(totalOps*0.01)).value());
-      exporter.write(
-          getName(), "p5", measurements.get((int)(totalOps*0.05)).value());
-      exporter.write(
-          getName(), "p50", measurements.get((int)(totalOps*0.5)).value());
-      exporter.write(
-          getName(), "p90", measurements.get((int)(totalOps*0.9)).value());
-      exporter.write(
-          getName(), "p95", measurements.get((int)(totalOps*0.95)).value());
-      exporter.write(
-          getName(), "p99", measurements.get((int)(totalOps*0.99)).value());
-      exporter.write(getName(), "p99.9",
-          measurements.get((int)(totalOps*0.999)).value());
-      exporter.write(getName(), "p99.99",
-          measurements.get((int)(totalOps*0.9999)).value());
+      long[] ranks = new long[PERCENTILES.length + 2];
+      ranks[0] = 0;
+      ranks[1] = totalOps - 1;
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        ranks[i + 2] = (long)(totalOps * PERCENTILES[i]);
+      }
+      int[] values = measurements.select(ranks);
+
+      exporter.write(getName(), "Min", values[0]);
+      exporter.write(getName(), "Max", values[1]);
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        exporter.write(getName(), PERCENTILE_NAMES[i], values[i + 2]);
+      }
     }
+    measurements.close();
 
     exportStatusCounts(exporter);
   }
@@ -18,11 +18,21 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
-import java.util.Vector;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.text.DecimalFormat;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -30,18 +40,32 @@ class SeriesUnit
 {
   /**
    * @param time
-   * @param average
+   * @param histogram the latencies of the unit
    */
-  public SeriesUnit(long time, double average) {
+  public SeriesUnit(long time, Histogram histogram) {
     this.time = time;
-    this.average = average;
+    this.average = histogram.getMean();
+    this.p50 = (int) histogram.getValueAtPercentile(50);
+    this.p99 = (int) histogram.getValueAtPercentile(99);
+    this.p999 = (int) histogram.getValueAtPercentile(99.9);
+    this.max = (int) histogram.getMaxValue();
   }
   public long time;
   public double average;
+  public int p50;
+  public int p99;
+  public int p999;
+  public int max;
 }
 
 /**
  * A time series measurement of a metric, such as READ LATENCY.
+ *
+ * Every thread records into its own interval histogram, which is all a measurement does. A shared
+ * timer thread merges the interval histograms of all threads into the unit at the end of each unit
+ * of the time series, so neither the number of threads nor the end of a unit adds to the cost of
+ * a measurement. A measurement taken just before the end of a unit may be counted in the next one,
+ * by as much as the timer runs late.
  */
 public class OneMeasurementTimeSeries extends OneMeasurement
 {
@@ -52,106 +76,190 @@ public class OneMeasurementTimeSeries extends OneMeasurement
   public static final String GRANULARITY="timeseries.granularity";
   public static final String GRANULARITY_DEFAULT="1000";
 
-  int _granularity;
-  Vector<SeriesUnit> _measurements;
-
-  long start=-1;
-  long currentunit=-1;
-  int count=0;
-  int sum=0;
-  int operations=0;
-  long totallatency=0;
-
-  //keep a windowed version of these stats for printing status
-  int windowoperations=0;
-  long windowtotallatency=0;
-
-  int min=-1;
-  int max=-1;
+  /** Ends the units of all time series; a daemon thread, so it does not keep the client from exiting. */
+  private static final ScheduledExecutorService UNIT_TIMER=Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+  {
+    @Override
+    public Thread newThread(Runnable r)
+    {
+      Thread thread=new Thread(r, "timeseries-units");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
 
-  public OneMeasurementTimeSeries(String name, Properties props)
+  /**
+   * The recorder of a thread and the histogram it last handed out, which is recycled.
+   */
+  private static final class ThreadRecorder
   {
-    super(name);
-    _granularity=Integer.parseInt(props.getProperty(GRANULARITY,GRANULARITY_DEFAULT));
-    _measurements=new Vector<SeriesUnit>();
+    final SingleWriterRecorder recorder=new SingleWriterRecorder(3);
+    Histogram recycled;
   }
 
-  synchronized void checkEndOfUnit(boolean forceend)
+  /**
+   * Ends the units of a time series. It only holds on to the series weakly, so a series dropped
+   * by a reset of the measurements without being exported stops being timed.
+   */
+  private static final class UnitEnder implements Runnable
   {
-    long now=System.currentTimeMillis();
+    private final WeakReference<OneMeasurementTimeSeries> _series;
+    volatile ScheduledFuture<?> _future;
 
-    if (start<0)
+    UnitEnder(OneMeasurementTimeSeries series)
     {
-      currentunit=0;
-      start=now;
+      _series=new WeakReference<OneMeasurementTimeSeries>(series);
     }
 
-    long unit=((now-start)/_granularity)*_granularity;
-
-    if ( (unit>currentunit) || (forceend) )
+    @Override
+    public void run()
     {
-      double avg=((double)sum)/((double)count);
-      _measurements.add(new SeriesUnit(currentunit,avg));
+      OneMeasurementTimeSeries series=_series.get();
+      if (series==null)
+      {
+        _future.cancel(false);
+        return;
+      }
+      series.endUnits(System.currentTimeMillis());
+    }
+  }
+
+  final int _granularity;
 
-      currentunit=unit;
+  /** The recorders of all threads that measured so far. */
+  private final List<ThreadRecorder> _recorders=new CopyOnWriteArrayList<ThreadRecorder>();
 
-      count=0;
-      sum=0;
+  private final ThreadLocal<ThreadRecorder> _threadRecorder=new ThreadLocal<ThreadRecorder>()
+  {
+    @Override
+    protected ThreadRecorder initialValue()
+    {
+      ThreadRecorder recorder=new ThreadRecorder();
+      _recorders.add(recorder);
+      return recorder;
     }
+  };
+
+  private final long _start=System.currentTimeMillis();
+
+  /** The end of the current unit; guarded by this. */
+  private long _unitEnd;
+
+  private final ScheduledFuture<?> _timer;
+
+  /** The units ended so far by the time they started, relative to the start. */
+  private final Map<Long,SeriesUnit> _measurements=new TreeMap<Long,SeriesUnit>();
+
+  /** All units merged, and the current unit so far; guarded by this. */
+  private final Histogram _total=new Histogram(3);
+  private final Histogram _unit=new Histogram(3);
+
+  /** What was measured since the last status summary; guarded by this. */
+  private final Histogram _window=new Histogram(3);
+
+  public OneMeasurementTimeSeries(String name, Properties props)
+  {
+    super(name);
+    _granularity=Integer.parseInt(props.getProperty(GRANULARITY,GRANULARITY_DEFAULT));
+    _unitEnd=_start+_granularity;
+    UnitEnder ender=new UnitEnder(this);
+    _timer=UNIT_TIMER.scheduleAtFixedRate(ender,_granularity,_granularity,TimeUnit.MILLISECONDS);
+    ender._future=_timer;
   }
 
   @Override
   public void measure(int latency)
   {
-    checkEndOfUnit(false);
-
-    count++;
-    sum+=latency;
-    totallatency+=latency;
-    operations++;
-    windowoperations++;
-    windowtotallatency+=latency;
+    _threadRecorder.get().recorder.recordValue(latency);
+  }
 
-    if (latency>max)
+  /**
+   * Move what all threads recorded so far to the current unit and the summary window. The
+   * measurements of the threads going on meanwhile are left to the next call.
+   */
+  private void collect()
+  {
+    for (ThreadRecorder recorder : _recorders)
     {
-      max=latency;
+      recorder.recycled=recorder.recorder.getIntervalHistogram(recorder.recycled);
+      _unit.add(recorder.recycled);
+      _window.add(recorder.recycled);
     }
+  }
 
-    if ( (latency<min) || (min<0) )
+  /**
+   * End the current unit if it ended by the given time, starting the unit the time falls in.
+   */
+  synchronized void endUnits(long now)
+  {
+    if (now>=_unitEnd)
     {
-      min=latency;
+      long unitStart=_unitEnd-_granularity;
+      _unitEnd=now-(now-_start)%_granularity+_granularity;
+      endUnit(unitStart);
     }
   }
 
+  /**
+   * Close the current unit as the unit starting at the given time.
+   */
+  private void endUnit(long unitStart)
+  {
+    collect();
+    if (_unit.getTotalCount()>0)
+    {
+      long time=unitStart-_start;
+      _measurements.put(time,new SeriesUnit(time,_unit));
+      _total.add(_unit);
+      _unit.reset();
+    }
+  }
 
   @Override
-  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    checkEndOfUnit(true);
-
-    exporter.write(getName(), "Operations", operations);
-    exporter.write(getName(), "AverageLatency(us)", (((double) totallatency) / ((double) operations)));
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    if (_unitEnd!=Long.MAX_VALUE)
+    {
+      _timer.cancel(false);
+      endUnit(_unitEnd-_granularity);
+      _unitEnd=Long.MAX_VALUE;
+    }
 
-    // TODO: 95th and 99th percentile latency
+    long operations=_total.getTotalCount();
+    exportCount(exporter, "Operations", operations);
+    exporter.write(getName(), "AverageLatency(us)", _total.getMean());
+    exporter.write(getName(), "MinLatency(us)", operations==0 ? -1 : (int) _total.getMinValue());
+    exporter.write(getName(), "MaxLatency(us)", operations==0 ? -1 : (int) _total.getMaxValue());
+    exporter.write(getName(), "95thPercentileLatency(us)", (int) _total.getValueAtPercentile(95));
+    exporter.write(getName(), "99thPercentileLatency(us)", (int) _total.getValueAtPercentile(99));
 
     exportStatusCounts(exporter);
-    for (SeriesUnit unit : _measurements) {
-      exporter.write(getName(), Long.toString(unit.time), unit.average);
+    for (SeriesUnit unit : _measurements.values()) {
+      String time=Long.toString(unit.time);
+      exporter.write(getName(), time, unit.average);
+      exporter.write(getName(), time+"-p50", unit.p50);
+      exporter.write(getName(), time+"-p99", unit.p99);
+      exporter.write(getName(), time+"-p999", unit.p999);
+      exporter.write(getName(), time+"-max", unit.max);
     }
   }
 
+  /**
+   * The average, 95th and 99th percentile latencies of the operations measured since the last
+   * summary.
+   */
   @Override
-  public String getSummary() {
-    if (windowoperations==0)
+  public synchronized String getSummary() {
+    collect();
+    if (_window.getTotalCount()==0)
     {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
-    double report=((double)windowtotallatency)/((double)windowoperations);
-    windowtotallatency=0;
-    windowoperations=0;
-    return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
+    String summary="["+getName()+" AverageLatency(us)="+d.format(_window.getMean())
+        +", 95thPercentileLatency(us)="+_window.getValueAtPercentile(95)
+        +", 99thPercentileLatency(us)="+_window.getValueAtPercentile(99)+"]";
+    _window.reset();
+    return summary;
   }
 
 }
@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The raw data points of one measurement, stored as columns of primitive timestamps and latencies
+ * in chunks of {@link #CHUNK_SIZE} points, 12 bytes per point.
+ *
+ * Once more than a given number of points are held on the heap, every further full chunk is
+ * written to a memory mapped spill file, so the heap needed by the measurement is bounded however
+ * long the run. Each spilled chunk keeps the column layout: all its timestamps, then all its
+ * latencies.
+ *
+ * Not thread safe.
+ */
+final class RawDataStore implements Closeable {
+
+  /** The number of data points in a chunk. */
+  static final int CHUNK_SIZE = 1 << 16;
+
+  private static final int TIMESTAMP_BYTES = 8;
+  private static final int LATENCY_BYTES = 4;
+  private static final long SPILLED_CHUNK_BYTES = (long) CHUNK_SIZE * (TIMESTAMP_BYTES + LATENCY_BYTES);
+
+  /**
+   * Receives the data points of a store, one chunk at a time.
+   */
+  interface ChunkVisitor {
+    /**
+     * Visit the first length points of the given columns. The arrays may be reused for the next
+     * chunk.
+     */
+    void visit(long[] timestamps, int[] latencies, int length) throws IOException;
+  }
+
+  /**
+   * A chunk of data points, either on the heap or in the spill file.
+   */
+  private static final class Chunk {
+    long[] timestamps;
+    int[] latencies;
+    int length;
+    /** The position of the chunk in the spill file, -1 while on the heap. */
+    long offset = -1;
+  }
+
+  private final long maxInMemory;
+  private final File spillDirectory;
+  private final String name;
+
+  /** All chunks in the order their points were added. */
+  private final List<Chunk> chunks = new ArrayList<Chunk>();
+  private Chunk current;
+  private long inMemory;
+  private long size;
+
+  private File spillFile;
+  private RandomAccessFile spillAccess;
+  private long spilledBytes;
+
+  /**
+   * @param name a name for the spill file
+   * @param maxInMemory the number of data points kept on the heap before spilling
+   * @param spillDirectory where to create the spill file, null for the default temporary directory
+   */
+  RawDataStore(String name, long maxInMemory, File spillDirectory) {
+    this.name = name;
+    this.maxInMemory = maxInMemory;
+    this.spillDirectory = spillDirectory;
+  }
+
+  void add(long timestamp, int latency) throws IOException {
+    if (current == null || current.length == CHUNK_SIZE) {
+      nextChunk();
+    }
+    current.timestamps[current.length] = timestamp;
+    current.latencies[current.length] = latency;
+    current.length++;
+    size++;
+  }
+
+  long size() {
+    return size;
+  }
+
+  private void nextChunk() throws IOException {
+    Chunk next = new Chunk();
+    if (current != null && inMemory > maxInMemory) {
+      // hand the columns of the spilled chunk to the next one
+      next.timestamps = current.timestamps;
+      next.latencies = current.latencies;
+      spill(current);
+      inMemory -= CHUNK_SIZE;
+    } else {
+      next.timestamps = new long[CHUNK_SIZE];
+      next.latencies = new int[CHUNK_SIZE];
+    }
+    chunks.add(next);
+    current = next;
+    inMemory += CHUNK_SIZE;
+  }
+
+  private void spill(Chunk chunk) throws IOException {
+    if (spillAccess == null) {
+      spillFile = File.createTempFile("ycsb-raw-" + name.replaceAll("[^A-Za-z0-9-]", "_") + "-", ".bin",
+          spillDirectory);
+      spillFile.deleteOnExit();
+      spillAccess = new RandomAccessFile(spillFile, "rw");
+    }
+    MappedByteBuffer buffer = spillAccess.getChannel().map(FileChannel.MapMode.READ_WRITE, spilledBytes,
+        SPILLED_CHUNK_BYTES);
+    buffer.asLongBuffer().put(chunk.timestamps, 0, CHUNK_SIZE);
+    buffer.position(CHUNK_SIZE * TIMESTAMP_BYTES);
+    buffer.asIntBuffer().put(chunk.latencies, 0, CHUNK_SIZE);
+    chunk.offset = spilledBytes;
+    chunk.timestamps = null;
+    chunk.latencies = null;
+    spilledBytes += SPILLED_CHUNK_BYTES;
+  }
+
+  /**
+   * Visit all data points in the order they were added.
+   */
+  void visit(ChunkVisitor visitor) throws IOException {
+    long[] timestamps = null;
+    int[] latencies = null;
+    for (Chunk chunk : chunks) {
+      if (chunk.offset < 0) {
+        visitor.visit(chunk.timestamps, chunk.latencies, chunk.length);
+        continue;
+      }
+      if (spillAccess == null) {
+        throw new IOException("The raw data points of " + name + " were already released");
+      }
+      if (timestamps == null) {
+        timestamps = new long[CHUNK_SIZE];
+        latencies = new int[CHUNK_SIZE];
+      }
+      MappedByteBuffer buffer = spillAccess.getChannel().map(FileChannel.MapMode.READ_ONLY, chunk.offset,
+          SPILLED_CHUNK_BYTES);
+      buffer.asLongBuffer().get(timestamps, 0, CHUNK_SIZE);
+      buffer.position(CHUNK_SIZE * TIMESTAMP_BYTES);
+      buffer.asIntBuffer().get(latencies, 0, CHUNK_SIZE);
+      visitor.visit(timestamps, latencies, CHUNK_SIZE);
+    }
+  }
+
+  /**
+   * Return the exact latencies at the given ranks of the points sorted by latency, rank 0 being
+   * the lowest latency and rank size()-1 the highest.
+   *
+   * Rather than sorting, this makes two passes over the points: the first counts the points by
+   * the upper 16 bits of their latency, which tells the bucket of every rank, the second counts
+   * the points of those buckets only by their lower 16 bits.
+   */
+  int[] select(final long[] ranks) throws IOException {
+    final long[] upperCounts = new long[1 << 16];
+    visit(new ChunkVisitor() {
+      @Override
+      public void visit(long[] timestamps, int[] latencies, int length) {
+        for (int i = 0; i < length; i++) {
+          upperCounts[unsigned(latencies[i]) >>> 16]++;
+        }
+      }
+    });
+
+    // the bucket of each rank, and the rank within that bucket
+    final int[] bucketOfRank = new int[ranks.length];
+    final long[] rankInBucket = new long[ranks.length];
+    final int[] slotOfBucket = new int[1 << 16];
+    Arrays.fill(slotOfBucket, -1);
+    int slots = 0;
+    for (int r = 0; r < ranks.length; r++) {
+      if (ranks[r] < 0 || ranks[r] >= size) {
+        throw new IllegalArgumentException("rank " + ranks[r] + " out of " + size + " data points");
+      }
+      long below = 0;
+      int bucket = 0;
+      while (below + upperCounts[bucket] <= ranks[r]) {
+        below += upperCounts[bucket];
+        bucket++;
+      }
+      bucketOfRank[r] = bucket;
+      rankInBucket[r] = ranks[r] - below;
+      if (slotOfBucket[bucket] < 0) {
+        slotOfBucket[bucket] = slots++;
+      }
+    }
+
+    final long[][] lowerCounts = new long[slots][1 << 16];
+    visit(new ChunkVisitor() {
+      @Override
+      public void visit(long[] timestamps, int[] latencies, int length) {
+        for (int i = 0; i < length; i++) {
+          int value = unsigned(latencies[i]);
+          int slot = slotOfBucket[value >>> 16];
+          if (slot >= 0) {
+            lowerCounts[slot][value & 0xFFFF]++;
+          }
+        }
+      }
+    });
+
+    int[] values = new int[ranks.length];
+    for (int r = 0; r < ranks.length; r++) {
+      long[] counts = lowerCounts[slotOfBucket[bucketOfRank[r]]];
+      long below = 0;
+      int lower = 0;
+      while (below + counts[lower] <= rankInBucket[r]) {
+        below += counts[lower];
+        lower++;
+      }
+      values[r] = unsigned((bucketOfRank[r] << 16) | lower);
+    }
+    return values;
+  }
+
+  /**
+   * Map a latency to an int whose unsigned order is the signed order of the latencies, and back.
+   */
+  private static int unsigned(int value) {
+    return value ^ Integer.MIN_VALUE;
+  }
+
+  /**
+   * Delete the spill file, if any. The spilled data points cannot be visited afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    if (spillAccess != null) {
+      spillAccess.close();
+      spillAccess = null;
+      if (!spillFile.delete()) {
+        System.err.println("Could not delete raw data spill file " + spillFile);
+      }
+    }
+  }
+}
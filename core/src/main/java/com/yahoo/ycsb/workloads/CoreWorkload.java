@@ -32,9 +32,11 @@ import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SequentialGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.generator.Zeta;
 import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -42,6 +44,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -64,6 +67,11 @@ import java.util.Vector;
  * modify it, write it back (default: 0)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate
  * on - uniform, zipfian, hotspot, sequential, exponential or latest (default: uniform)
+ * <LI><b>zipfianconstant</b>: the skew of the zipfian request distribution (default: 0.99)
+ * <LI><b>zipfian.zeta</b>: how the zeta constant of a zipfian request distribution with a
+ * zipfianconstant other than 0.99 is computed - approximate, in constant time, or exact, summed
+ * on all cores (default: approximate)
+ * <LI><b>zipfian.zeta.cache</b>: a file keeping the exact zeta constants across runs (default: none)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the
  * number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
@@ -255,6 +263,33 @@ public class CoreWorkload extends Workload {
    */
   public static final String REQUEST_DISTRIBUTION_PROPERTY_DEFAULT = "uniform";
 
+  /**
+   * The name of the property for the zipfian constant of the zipfian request distribution.
+   */
+  public static final String ZIPFIAN_CONSTANT_PROPERTY = "zipfianconstant";
+
+  /**
+   * The default zipfian constant.
+   */
+  public static final String ZIPFIAN_CONSTANT_PROPERTY_DEFAULT =
+      Double.toString(ZipfianGenerator.ZIPFIAN_CONSTANT);
+
+  /**
+   * The name of the property for how the zeta constant of the zipfian request distribution is
+   * computed. Options are "approximate", in constant time, and "exact", summed on all cores.
+   */
+  public static final String ZIPFIAN_ZETA_PROPERTY = "zipfian.zeta";
+
+  /**
+   * The default computation of the zeta constant.
+   */
+  public static final String ZIPFIAN_ZETA_PROPERTY_DEFAULT = "approximate";
+
+  /**
+   * The name of the property for the file keeping the exact zeta constants across runs.
+   */
+  public static final String ZIPFIAN_ZETA_CACHE_PROPERTY = "zipfian.zeta.cache";
+
    /**
    * The name of the property for adding zero padding to record numbers in order to match
    * string sort order. Controls the number of 0s to left pad with.
@@ -344,7 +379,7 @@ public class CoreWorkload extends Workload {
 
   boolean orderedinserts;
 
-  int recordcount;
+  long recordcount;
   int zeropadding;
 
   int insertionRetryLimit;
@@ -397,7 +432,7 @@ public class CoreWorkload extends Workload {
     fieldlengthgenerator = CoreWorkload.getFieldLengthGenerator(p);
     
     recordcount =
-        Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+        Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
     if (recordcount == 0) {
       recordcount = Integer.MAX_VALUE;
     }
@@ -408,10 +443,10 @@ public class CoreWorkload extends Workload {
     String scanlengthdistrib =
         p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY, SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
 
-    int insertstart =
-        Integer.parseInt(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
-    int insertcount =
-        Integer.parseInt(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
+    long insertstart =
+        Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    long insertcount =
+        Long.parseLong(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
     // Confirm valid values for insertstart and insertcount in relation to recordcount
     if (recordcount < (insertstart + insertcount)) {
       System.err.println("Invalid combination of insertstart, insertcount and recordcount.");
@@ -471,10 +506,10 @@ public class CoreWorkload extends Workload {
       // the keyspace doesn't change from the perspective of the scrambled zipfian generator
       final double insertproportion = Double.parseDouble(
           p.getProperty(INSERT_PROPORTION_PROPERTY, INSERT_PROPORTION_PROPERTY_DEFAULT));
-      int opcount = Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-      int expectednewkeys = (int) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
+      long opcount = Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      long expectednewkeys = (long) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
 
-      keychooser = new ScrambledZipfianGenerator(insertstart, insertstart + insertcount + expectednewkeys);
+      keychooser = createZipfianKeyChooser(p, insertstart, insertstart + insertcount + expectednewkeys);
     } else if (requestdistrib.compareTo("latest") == 0) {
       keychooser = new SkewedLatestGenerator(transactioninsertkeysequence);
     } else if (requestdistrib.equals("hotspot")) {
@@ -524,13 +559,13 @@ public class CoreWorkload extends Workload {
   private HashMap<String, ByteIterator> buildSingleValue(String key) {
     HashMap<String, ByteIterator> value = new HashMap<String, ByteIterator>();
 
-    String fieldkey = fieldnames.get(fieldchooser.nextValue().intValue());
+    String fieldkey = fieldnames.get((int) fieldchooser.nextLong());
     ByteIterator data;
     if (dataintegrity) {
       data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
     } else {
       // fill with random data
-      data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+      data = new RandomByteIterator(fieldlengthgenerator.nextLong());
     }
     value.put(fieldkey, data);
 
@@ -549,7 +584,7 @@ public class CoreWorkload extends Workload {
         data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
       } else {
         // fill with random data
-        data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+        data = new RandomByteIterator(fieldlengthgenerator.nextLong());
       }
       values.put(fieldkey, data);
     }
@@ -560,7 +595,7 @@ public class CoreWorkload extends Workload {
    * Build a deterministic value given the key information.
    */
   private String buildDeterministicValue(String key, String fieldkey) {
-    int size = fieldlengthgenerator.nextValue().intValue();
+    int size = (int) fieldlengthgenerator.nextLong();
     StringBuilder sb = new StringBuilder(size);
     sb.append(key);
     sb.append(':');
@@ -582,7 +617,7 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doInsert(DB db, Object threadstate) {
-    int keynum = keysequence.nextValue().intValue();
+    long keynum = keysequence.nextLong();
     String dbkey = buildKeyName(keynum);
     HashMap<String, ByteIterator> values = buildValues(dbkey);
 
@@ -617,6 +652,27 @@ public class CoreWorkload extends Workload {
     return (status == Status.OK);
   }
 
+  /**
+   * Do one insert operation without waiting for it to complete. Inserts with a retry limit are
+   * executed synchronously, since the retries back off by sleeping.
+   */
+  @Override
+  public CompletableFuture<Boolean> doInsertAsync(AsyncDB db, Object threadstate) {
+    if (insertionRetryLimit > 0) {
+      return super.doInsertAsync(db, threadstate);
+    }
+    long keynum = keysequence.nextLong();
+    String dbkey = buildKeyName(keynum);
+    HashMap<String, ByteIterator> values = buildValues(dbkey);
+
+    return db.insertAsync(table, dbkey, values).thenApply(status -> {
+      if (status != Status.OK) {
+        System.err.println("Error inserting, not retrying any more. Insertion Retry Limit: " + insertionRetryLimit);
+      }
+      return status == Status.OK;
+    });
+  }
+
   /**
    * Do one transaction operation. Because it will be called concurrently from multiple client
    * threads, this function must be thread safe. However, avoid synchronized, or the threads will block waiting
@@ -645,6 +701,34 @@ public class CoreWorkload extends Workload {
     return true;
   }
 
+  /**
+   * Do one transaction operation without waiting for it to complete. The returned future completes
+   * with true once the operation is done, whatever its return code, like {@link #doTransaction}; it
+   * completes exceptionally where doTransaction() would have thrown.
+   */
+  @Override
+  public CompletableFuture<Boolean> doTransactionAsync(AsyncDB db, Object threadstate) {
+    CompletableFuture<?> op;
+    switch (operationchooser.nextString()) {
+    case "READ":
+      op = doTransactionReadAsync(db);
+      break;
+    case "UPDATE":
+      op = doTransactionUpdateAsync(db);
+      break;
+    case "INSERT":
+      op = doTransactionInsertAsync(db);
+      break;
+    case "SCAN":
+      op = doTransactionScanAsync(db);
+      break;
+    default:
+      op = doTransactionReadModifyWriteAsync(db);
+    }
+
+    return op.thenApply(result -> true);
+  }
+
   /**
    * Results are reported in the first three buckets of the histogram under
    * the label "VERIFY".
@@ -671,23 +755,23 @@ public class CoreWorkload extends Workload {
     _measurements.reportStatus("VERIFY", verifyStatus);
   }
 
-  int nextKeynum() {
-    int keynum;
+  long nextKeynum() {
+    long keynum;
     if (keychooser instanceof ExponentialGenerator) {
       do {
-        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().intValue();
+        keynum = transactioninsertkeysequence.lastLong() - keychooser.nextLong();
       } while (keynum < 0);
     } else {
       do {
-        keynum = keychooser.nextValue().intValue();
-      } while (keynum > transactioninsertkeysequence.lastValue());
+        keynum = keychooser.nextLong();
+      } while (keynum > transactioninsertkeysequence.lastLong());
     }
     return keynum;
   }
 
   public void doTransactionRead(DB db) {
     // choose a random key
-    int keynum = nextKeynum();
+    long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
@@ -695,7 +779,7 @@ public class CoreWorkload extends Workload {
 
     if (!readallfields) {
       // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
+      String fieldname = fieldnames.get((int) fieldchooser.nextLong());
 
       fields = new HashSet<String>();
       fields.add(fieldname);
@@ -712,9 +796,36 @@ public class CoreWorkload extends Workload {
     }
   }
   
+  public CompletableFuture<Void> doTransactionReadAsync(AsyncDB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    final String keyname = buildKeyName(keynum);
+
+    HashSet<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      String fieldname = fieldnames.get((int) fieldchooser.nextLong());
+
+      fields = new HashSet<String>();
+      fields.add(fieldname);
+    } else if (dataintegrity) {
+      // pass the full field list if dataintegrity is on for verification
+      fields = new HashSet<String>(fieldnames);
+    }
+
+    final HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    return db.readAsync(table, keyname, fields, cells).thenAccept(status -> {
+      if (dataintegrity) {
+        verifyRow(keyname, cells);
+      }
+    });
+  }
+
   public void doTransactionReadModifyWrite(DB db) {
     // choose a random key
-    int keynum = nextKeynum();
+    long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
@@ -722,7 +833,7 @@ public class CoreWorkload extends Workload {
 
     if (!readallfields) {
       // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
+      String fieldname = fieldnames.get((int) fieldchooser.nextLong());
 
       fields = new HashSet<String>();
       fields.add(fieldname);
@@ -759,20 +870,71 @@ public class CoreWorkload extends Workload {
     _measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
   }
 
+  /**
+   * Issue the update of a read-modify-write once its read completes. The whole operation is timed
+   * from the submission of the read to the completion of the update.
+   */
+  public CompletableFuture<Void> doTransactionReadModifyWriteAsync(final AsyncDB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    final String keyname = buildKeyName(keynum);
+
+    HashSet<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      String fieldname = fieldnames.get((int) fieldchooser.nextLong());
+
+      fields = new HashSet<String>();
+      fields.add(fieldname);
+    }
+
+    final HashMap<String, ByteIterator> values;
+
+    if (writeallfields) {
+      // new data for all the fields
+      values = buildValues(keyname);
+    } else {
+      // update a random field
+      values = buildSingleValue(keyname);
+    }
+
+    // do the transaction
+
+    final HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+
+    final long ist = _measurements.getIntendedtartTimeNs();
+    final long st = System.nanoTime();
+    // the update may be issued from a driver thread, so it is given the intended start time
+    return db.readAsync(table, keyname, fields, cells).thenCompose(status ->
+      db.updateAsync(table, keyname, values, ist)
+    ).thenAccept(status -> {
+      long en = System.nanoTime();
+
+      if (dataintegrity) {
+        verifyRow(keyname, cells);
+      }
+
+      _measurements.measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
+      _measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
+    });
+  }
+
   public void doTransactionScan(DB db) {
     // choose a random key
-    int keynum = nextKeynum();
+    long keynum = nextKeynum();
 
     String startkeyname = buildKeyName(keynum);
 
     // choose a random scan length
-    int len = scanlength.nextValue().intValue();
+    int len = (int) scanlength.nextLong();
 
     HashSet<String> fields = null;
 
     if (!readallfields) {
       // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
+      String fieldname = fieldnames.get((int) fieldchooser.nextLong());
 
       fields = new HashSet<String>();
       fields.add(fieldname);
@@ -781,9 +943,31 @@ public class CoreWorkload extends Workload {
     db.scan(table, startkeyname, len, fields, new Vector<HashMap<String, ByteIterator>>());
   }
 
+  public CompletableFuture<Status> doTransactionScanAsync(AsyncDB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    String startkeyname = buildKeyName(keynum);
+
+    // choose a random scan length
+    int len = (int) scanlength.nextLong();
+
+    HashSet<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      String fieldname = fieldnames.get((int) fieldchooser.nextLong());
+
+      fields = new HashSet<String>();
+      fields.add(fieldname);
+    }
+
+    return db.scanAsync(table, startkeyname, len, fields, new Vector<HashMap<String, ByteIterator>>());
+  }
+
   public void doTransactionUpdate(DB db) {
     // choose a random key
-    int keynum = nextKeynum();
+    long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
@@ -800,9 +984,28 @@ public class CoreWorkload extends Workload {
     db.update(table, keyname, values);
   }
 
+  public CompletableFuture<Status> doTransactionUpdateAsync(AsyncDB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    String keyname = buildKeyName(keynum);
+
+    HashMap<String, ByteIterator> values;
+
+    if (writeallfields) {
+      // new data for all the fields
+      values = buildValues(keyname);
+    } else {
+      // update a random field
+      values = buildSingleValue(keyname);
+    }
+
+    return db.updateAsync(table, keyname, values);
+  }
+
   public void doTransactionInsert(DB db) {
     // choose the next key
-    int keynum = transactioninsertkeysequence.nextValue();
+    long keynum = transactioninsertkeysequence.nextLong();
 
     try {
       String dbkey = buildKeyName(keynum);
@@ -814,6 +1017,60 @@ public class CoreWorkload extends Workload {
     }
   }
 
+  /**
+   * Insert the next key without waiting for it. The key is acknowledged once the insert completes,
+   * so it only becomes readable after the record was written.
+   */
+  public CompletableFuture<Status> doTransactionInsertAsync(AsyncDB db) {
+    // choose the next key
+    final long keynum = transactioninsertkeysequence.nextLong();
+
+    CompletableFuture<Status> insert;
+    try {
+      String dbkey = buildKeyName(keynum);
+
+      HashMap<String, ByteIterator> values = buildValues(dbkey);
+      insert = db.insertAsync(table, dbkey, values);
+    } catch (RuntimeException e) {
+      transactioninsertkeysequence.acknowledge(keynum);
+      throw e;
+    }
+    return insert.whenComplete((status, error) -> transactioninsertkeysequence.acknowledge(keynum));
+  }
+
+
+  /**
+   * Creates the key chooser of the zipfian request distribution, computing its zeta constant as
+   * the properties ask.
+   *
+   * @param p The properties list to pull the zipfian settings from.
+   * @param min The smallest key.
+   * @param max The largest key.
+   * @return The key chooser.
+   * @throws WorkloadException if the zeta computation is unknown.
+   */
+  protected static NumberGenerator createZipfianKeyChooser(final Properties p, long min, long max)
+      throws WorkloadException {
+    final double constant =
+        Double.parseDouble(p.getProperty(ZIPFIAN_CONSTANT_PROPERTY, ZIPFIAN_CONSTANT_PROPERTY_DEFAULT));
+    final String zeta = p.getProperty(ZIPFIAN_ZETA_PROPERTY, ZIPFIAN_ZETA_PROPERTY_DEFAULT);
+    if (zeta.equals("approximate")) {
+      return new ScrambledZipfianGenerator(min, max, constant);
+    } else if (zeta.equals("exact")) {
+      if (constant == ScrambledZipfianGenerator.USED_ZIPFIAN_CONSTANT) {
+        // precomputed
+        return new ScrambledZipfianGenerator(min, max, constant);
+      }
+      final long items = ScrambledZipfianGenerator.ITEM_COUNT + 1;
+      final String cache = p.getProperty(ZIPFIAN_ZETA_CACHE_PROPERTY);
+      final double zetan = (cache == null) ? Zeta.parallel(0, items, constant)
+          : Zeta.cached(new File(cache), items, constant);
+      return new ScrambledZipfianGenerator(min, max, constant, zetan);
+    } else {
+      throw new WorkloadException("Unknown zeta computation \"" + zeta + "\"");
+    }
+  }
+
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
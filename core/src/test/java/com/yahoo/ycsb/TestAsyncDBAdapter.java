@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class TestAsyncDBAdapter {
+
+  /** Remembers the threads it was used from and how many of its calls overlapped. */
+  static class RecordingDB extends DB {
+    final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+    final AtomicInteger active = new AtomicInteger();
+    volatile int maxActive;
+    volatile boolean initialized;
+    volatile boolean cleanedUp;
+    final boolean failInit;
+
+    RecordingDB(boolean failInit) {
+      this.failInit = failInit;
+    }
+
+    @Override
+    public void init() throws DBException {
+      if (failInit) {
+        throw new DBException("init failed");
+      }
+      initialized = true;
+    }
+
+    @Override
+    public void cleanup() {
+      cleanedUp = true;
+    }
+
+    private Status call() {
+      threads.add(Thread.currentThread());
+      maxActive = Math.max(maxActive, active.incrementAndGet());
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      active.decrementAndGet();
+      return Status.OK;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      result.put("field0", new StringByteIterator(key));
+      return call();
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return call();
+    }
+
+    @Override
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      return call();
+    }
+
+    @Override
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return call();
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.NOT_FOUND;
+    }
+  }
+
+  @Test
+  public void eachInstanceIsUsedByOneWorker() throws Exception {
+    final List<DB> dbs = new ArrayList<DB>();
+    for (int i = 0; i < 4; i++) {
+      dbs.add(new RecordingDB(false));
+    }
+    final AsyncDBAdapter adapter = new AsyncDBAdapter(dbs);
+    adapter.init();
+
+    final List<CompletableFuture<Status>> futures = new ArrayList<CompletableFuture<Status>>();
+    final HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    for (int i = 0; i < 200; i++) {
+      futures.add(adapter.updateAsync("table", "key" + i, values));
+    }
+    for (CompletableFuture<Status> future : futures) {
+      assertEquals(future.get(), Status.OK);
+    }
+    assertEquals(adapter.delete("table", "key"), Status.NOT_FOUND);
+
+    final HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(adapter.readAsync("table", "key", null, result).get(), Status.OK);
+    assertEquals(result.get("field0").toString(), "key");
+
+    adapter.cleanup();
+    for (DB db : dbs) {
+      final RecordingDB recording = (RecordingDB) db;
+      assertTrue(recording.initialized);
+      assertTrue(recording.cleanedUp);
+      assertEquals(recording.maxActive, 1);
+      assertTrue(recording.threads.size() <= 1);
+    }
+  }
+
+  @Test
+  public void initFailureIsReported() throws Exception {
+    final List<DB> dbs = new ArrayList<DB>();
+    dbs.add(new RecordingDB(false));
+    dbs.add(new RecordingDB(true));
+    final AsyncDBAdapter adapter = new AsyncDBAdapter(dbs);
+    try {
+      adapter.init();
+      fail("init should have failed");
+    } catch (DBException e) {
+      assertEquals(e.getMessage(), "init failed");
+    }
+  }
+
+  @Test
+  public void exceptionIsAFailedOperation() throws Exception {
+    final List<DB> dbs = new ArrayList<DB>();
+    dbs.add(new RecordingDB(false) {
+      @Override
+      public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+          Vector<HashMap<String, ByteIterator>> result) {
+        throw new IllegalStateException("scan failed");
+      }
+    });
+    final AsyncDBAdapter adapter = new AsyncDBAdapter(dbs);
+    adapter.init();
+    assertEquals(adapter.scan("table", "key", 10, null, new Vector<HashMap<String, ByteIterator>>()), Status.ERROR);
+    adapter.cleanup();
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+public class TestClientThreadModel {
+
+  @Test
+  public void platformThread() throws Exception {
+    final AtomicInteger runs = new AtomicInteger();
+    final Thread thread = Client.newClientThread(counting(runs), false);
+    assertFalse(isVirtual(thread));
+    thread.start();
+    thread.join();
+    assertEquals(runs.get(), 1);
+  }
+
+  @Test
+  public void virtualThread() throws Exception {
+    final Thread thread;
+    final AtomicInteger runs = new AtomicInteger();
+    try {
+      thread = Client.newClientThread(counting(runs), true);
+    } catch (ReflectiveOperationException e) {
+      throw new SkipException("virtual threads need Java 21, this is Java " + System.getProperty("java.version"));
+    }
+    assertTrue(isVirtual(thread));
+    thread.start();
+    thread.join();
+    assertEquals(runs.get(), 1);
+  }
+
+  private static Runnable counting(final AtomicInteger runs) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+      }
+    };
+  }
+
+  private static boolean isVirtual(Thread thread) throws Exception {
+    try {
+      return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+}
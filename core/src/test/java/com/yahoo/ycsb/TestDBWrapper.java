@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.HdrHistogram.Histogram;
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestDBWrapper {
+
+  /** Returns the status it was given for every read. */
+  static class StatusDB extends DB {
+    Status status = Status.OK;
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return status;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return status;
+    }
+
+    @Override
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      return status;
+    }
+
+    @Override
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return status;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return status;
+    }
+  }
+
+  @Test
+  public void failuresMeasuredByReturnCode() throws DBException {
+    Measurements.setProperties(new Properties());
+    final Properties props = new Properties();
+    props.setProperty("latencytrackederrors", "NOT_FOUND");
+    final StatusDB db = new StatusDB();
+    final DBWrapper wrapper = new DBWrapper(db, new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build());
+    wrapper.setProperties(props);
+    wrapper.init();
+
+    wrapper.read("t", "k", null, new HashMap<String, ByteIterator>());
+    db.status = Status.NOT_FOUND;
+    wrapper.read("t", "k", null, new HashMap<String, ByteIterator>());
+    wrapper.read("t", "k", null, new HashMap<String, ByteIterator>());
+    db.status = Status.ERROR;
+    wrapper.read("t", "k", null, new HashMap<String, ByteIterator>());
+    db.status = Status.BAD_REQUEST;
+    wrapper.read("t", "k", null, new HashMap<String, ByteIterator>());
+
+    final Map<String, Histogram> histograms = Measurements.getMeasurements().getCumulativeHistograms();
+    assertEquals(histograms.get("READ").getTotalCount(), 1);
+    assertEquals(histograms.get("READ-NOT_FOUND").getTotalCount(), 2);
+    assertEquals(histograms.get("READ-FAILED").getTotalCount(), 2, "the return codes not tracked apart");
+    assertFalse(histograms.containsKey("READ-ERROR"));
+    assertEquals(Measurements.getMeasurements().getStatusCounts().get("READ").get("NOT_FOUND").intValue(), 2);
+  }
+}
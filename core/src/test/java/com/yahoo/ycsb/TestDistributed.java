@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+public class TestDistributed {
+
+  @Test
+  public void splitsTheKeySpaceAndTheRun() {
+    final Properties props = new Properties();
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "10000");
+    props.setProperty(Client.TARGET_PROPERTY, "100");
+    long insertstart = 0;
+    long operations = 0;
+    long target = 0;
+    for (int i = 0; i < 3; i++) {
+      final Properties assigned = Distributed.assignment(props, i, 3);
+      assertEquals(Long.parseLong(assigned.getProperty(Workload.INSERT_START_PROPERTY)), insertstart);
+      insertstart += Long.parseLong(assigned.getProperty(Client.INSERT_COUNT_PROPERTY));
+      operations += Long.parseLong(assigned.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      target += Long.parseLong(assigned.getProperty(Client.TARGET_PROPERTY));
+    }
+    assertEquals(insertstart, 1000);
+    assertEquals(operations, 10000);
+    assertEquals(target, 100);
+  }
+
+  @Test
+  public void splitsTheGivenSlice() {
+    final Properties props = new Properties();
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    props.setProperty(Workload.INSERT_START_PROPERTY, "500");
+    props.setProperty(Client.INSERT_COUNT_PROPERTY, "200");
+    final Properties assigned = Distributed.assignment(props, 1, 2);
+    assertEquals(assigned.getProperty(Workload.INSERT_START_PROPERTY), "600");
+    assertEquals(assigned.getProperty(Client.INSERT_COUNT_PROPERTY), "100");
+    // no operation count or target to share
+    assertNull(assigned.getProperty(Client.OPERATION_COUNT_PROPERTY));
+    assertNull(assigned.getProperty(Client.TARGET_PROPERTY));
+  }
+
+  @Test
+  public void mergedHistogramsKeepTheGlobalPercentiles() throws IOException {
+    // one fast and one slow worker: neither has the percentiles of the whole run
+    final Histogram fast = new Histogram(3);
+    final Histogram slow = new Histogram(3);
+    for (int i = 1; i <= 900; i++) {
+      fast.recordValue(i);
+    }
+    for (int i = 1; i <= 100; i++) {
+      slow.recordValue(100000 + i);
+    }
+
+    final Map<String, Histogram> merged = new HashMap<String, Histogram>();
+    Distributed.merge(merged, roundTrip("READ", fast));
+    Distributed.merge(merged, roundTrip("READ", slow));
+    final Histogram read = merged.get("READ");
+    assertEquals(read.getTotalCount(), 1000);
+    assertEquals(read.getValueAtPercentile(50), 500, 1);
+    assertEquals((double) read.getValueAtPercentile(95), 100050, 100);
+  }
+
+  private static Map<String, Histogram> roundTrip(String name, Histogram histogram) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final Map<String, Histogram> histograms = new HashMap<String, Histogram>();
+    histograms.put(name, histogram);
+    Distributed.writeHistograms(new DataOutputStream(bytes), histograms);
+    return Distributed.readHistograms(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+}
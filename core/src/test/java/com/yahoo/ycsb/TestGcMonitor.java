@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class TestGcMonitor {
+
+  @Test
+  public void sumsUpThePausesOfEachInterval() {
+    final GcMonitor monitor = new GcMonitor();
+    try {
+      monitor.nextInterval();
+      monitor.recordCollection(true, 20, 1000);
+      monitor.recordCollection(true, 5, 1000);
+      monitor.recordCollection(false, 300, 1000);
+
+      final GcMonitor.Interval interval = monitor.nextInterval();
+      assertTrue(interval._pauses >= 2);
+      assertTrue(interval._pauseTimeMs >= 25);
+      assertTrue(interval._maxPauseMs >= 20);
+      assertTrue(interval._allocatedBytes >= 0);
+      assertTrue(monitor.getTotalPauses() >= 2);
+      assertTrue(monitor.getMaxPauseMs() >= 20);
+    } finally {
+      monitor.close();
+    }
+  }
+
+  @Test
+  public void concurrentCollectionsAreNoPauses() {
+    assertTrue(GcMonitor.isPause("G1 Young Generation"));
+    assertTrue(GcMonitor.isPause("ZGC Pauses"));
+    assertFalse(GcMonitor.isPause("G1 Concurrent GC"));
+    assertFalse(GcMonitor.isPause("ZGC Cycles"));
+    assertFalse(GcMonitor.isPause("Shenandoah Cycles"));
+  }
+
+  @Test
+  public void followsTheCollectionsOfTheJvm() throws InterruptedException {
+    final GcMonitor monitor = new GcMonitor();
+    try {
+      System.gc();
+      // the notifications are delivered asynchronously
+      for (int i = 0; i < 100 && monitor.getTotalPauses() == 0; i++) {
+        Thread.sleep(50);
+      }
+      assertTrue(monitor.getTotalPauses() > 0);
+      assertTrue(monitor.nextInterval()._pauses > 0);
+    } finally {
+      monitor.close();
+    }
+  }
+}
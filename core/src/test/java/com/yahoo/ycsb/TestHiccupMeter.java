@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestHiccupMeter {
+
+  @Test
+  public void createdOnlyWhenAskedFor() {
+    final Properties props = new Properties();
+    assertNull(HiccupMeter.create(props));
+    props.setProperty(HiccupMeter.HICCUP_PROPERTY, "true");
+    assertNotNull(HiccupMeter.create(props));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsANonPositiveResolution() {
+    final Properties props = new Properties();
+    props.setProperty(HiccupMeter.HICCUP_PROPERTY, "true");
+    props.setProperty(HiccupMeter.RESOLUTION_PROPERTY, "0");
+    HiccupMeter.create(props);
+  }
+
+  @Test
+  public void measuresTheSleepsALongHiccupHeldUp() {
+    final Measurements measurements = new Measurements(new Properties());
+    final HiccupMeter meter = new HiccupMeter(TimeUnit.MILLISECONDS.toNanos(1));
+    meter.record(measurements, TimeUnit.MICROSECONDS.toNanos(200));
+    meter.record(measurements, TimeUnit.MICROSECONDS.toNanos(3500));
+
+    final Histogram hiccups = measurements.getCumulativeHistograms().get(HiccupMeter.OPERATION);
+    // 200, then 3500 and the sleeps it held up: 2500 and 1500
+    assertEquals(hiccups.getTotalCount(), 4);
+    assertEquals(hiccups.getCountBetweenValues(1400, 1600), 1);
+    assertEquals(hiccups.getCountBetweenValues(2400, 2600), 1);
+  }
+
+  @Test
+  public void stopsWhenTerminated() throws InterruptedException {
+    Measurements.setProperties(new Properties());
+    final HiccupMeter meter = new HiccupMeter(TimeUnit.MILLISECONDS.toNanos(1));
+    meter.start();
+    Thread.sleep(20);
+    meter.terminate();
+    assertEquals(meter.isAlive(), false);
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+public class TestLoadProfile {
+
+  private static final long SECOND = 1000000000L;
+
+  @Test
+  public void noProfileByDefault() throws IOException {
+    assertNull(LoadProfile.create(new Properties()));
+  }
+
+  @Test
+  public void constantRate() {
+    final LoadProfile profile = LoadProfile.constant(1000);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(profile.offsetNs(i), i * 1000000L);
+    }
+    assertEquals(profile.offeredOps(SECOND), 1000.0, 1e-6);
+  }
+
+  @Test
+  public void linearRamp() throws IOException {
+    final Properties props = new Properties();
+    props.setProperty(LoadProfile.LOAD_PROFILE_PROPERTY, "ramp");
+    props.setProperty(LoadProfile.POINTS_PROPERTY, "0:0,10:1000,20:1000");
+    final LoadProfile profile = LoadProfile.create(props);
+    // 1000 ops/sec after 10 seconds, 5000 operations offered by then
+    assertEquals(profile.offsetNs(1250), 5 * SECOND, 1000);
+    assertEquals(profile.offsetNs(5000), 10 * SECOND, 1000);
+    assertEquals(profile.offsetNs(10000), 15 * SECOND, 1000);
+    // the last rate is held
+    assertEquals(profile.offsetNs(20000), 25 * SECOND, 1000);
+    assertEquals(profile.offeredOps(5 * SECOND), 1250, 1e-6);
+    assertEquals(profile.offeredOps(25 * SECOND), 20000, 1e-6);
+  }
+
+  @Test
+  public void repeatingBursts() throws IOException {
+    final Properties props = new Properties();
+    props.setProperty(LoadProfile.LOAD_PROFILE_PROPERTY, "burst");
+    props.setProperty(LoadProfile.BASE_PROPERTY, "100");
+    props.setProperty(LoadProfile.PEAK_PROPERTY, "1000");
+    props.setProperty(LoadProfile.PERIOD_PROPERTY, "10");
+    props.setProperty(LoadProfile.BURST_LENGTH_PROPERTY, "2");
+    final LoadProfile profile = LoadProfile.create(props);
+    // 2000 operations in the burst, 800 after it
+    assertEquals(profile.offsetNs(1000), SECOND, 1000);
+    assertEquals(profile.offsetNs(2100), 3 * SECOND, 1000);
+    assertEquals(profile.offsetNs(2800), 10 * SECOND, 1000);
+    assertEquals(profile.offsetNs(3800), 11 * SECOND, 1000);
+    assertEquals(profile.offeredOps(13 * SECOND), 2800 + 2100, 1e-6);
+  }
+
+  @Test
+  public void csvFile() throws IOException {
+    final File file = File.createTempFile("loadprofile", ".csv");
+    file.deleteOnExit();
+    try (FileWriter writer = new FileWriter(file)) {
+      writer.write("seconds,ops\n# diurnal\n0,100\n\n10,100\n10,200\n");
+    }
+    final Properties props = new Properties();
+    props.setProperty(LoadProfile.LOAD_PROFILE_PROPERTY, "csv");
+    props.setProperty(LoadProfile.FILE_PROPERTY, file.getPath());
+    final LoadProfile profile = LoadProfile.create(props);
+    assertEquals(profile.offsetNs(1000), 10 * SECOND, 1000);
+    assertEquals(profile.offsetNs(1200), 11 * SECOND, 1000);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void mustNotEndWithoutLoad() {
+    new LoadProfile(new double[] {0, 10}, new double[] {100, 0}, false);
+  }
+}
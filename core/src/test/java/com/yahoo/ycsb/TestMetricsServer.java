@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.Test;
+
+public class TestMetricsServer {
+
+  @Test
+  public void notStartedWithoutAPort() throws IOException {
+    assertNull(MetricsServer.start(new Properties()));
+  }
+
+  @Test
+  public void servesTheLastSnapshot() throws IOException {
+    final Properties props = new Properties();
+    props.setProperty(MetricsServer.PORT_PROPERTY, "0");
+    final MetricsServer server = MetricsServer.start(props);
+    try {
+      final Histogram read = new Histogram(3);
+      for (int i = 1; i <= 1000; i++) {
+        read.recordValue(i);
+      }
+      final Map<String, Map<String, Integer>> statusCounts = new HashMap<String, Map<String, Integer>>();
+      statusCounts.put("READ", Collections.singletonMap("OK", 1000));
+      server.publish(new MetricsServer.Snapshot(10000, 5000, 500.0, Collections.singletonMap("READ", read),
+          statusCounts));
+
+      final String text = get(server, "/metrics", 200);
+      assertTrue(text.contains("\nycsb_operations_total 5000\n"), text);
+      assertTrue(text.contains("\nycsb_throughput_ops_per_second 500.0\n"), text);
+      assertTrue(text.contains("\nycsb_latency_us{operation=\"READ\",quantile=\"0.99\"} 990\n"), text);
+      assertTrue(text.contains("\nycsb_interval_operations{operation=\"READ\"} 1000\n"), text);
+      assertTrue(text.contains("\nycsb_return_codes_total{operation=\"READ\",status=\"OK\"} 1000\n"), text);
+
+      final JsonNode json = new ObjectMapper().readTree(get(server, "/metrics.json", 200));
+      assertEquals(json.get("runtime").getLongValue(), 10000);
+      assertEquals(json.get("latencies").get("READ").get("p50").getLongValue(), 500);
+      assertEquals(json.get("latencies").get("READ").get("max").getLongValue(), 1000);
+      assertEquals(json.get("returncodes").get("READ").get("OK").getIntValue(), 1000);
+      assertTrue(json.get("jvm").get("threads").getIntValue() > 0);
+
+      get(server, "/metrics/other", 404);
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static String get(MetricsServer server, String path, int expectedCode) throws IOException {
+    final HttpURLConnection connection =
+        (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    assertEquals(connection.getResponseCode(), expectedCode);
+    if (expectedCode != 200) {
+      return null;
+    }
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (InputStream in = connection.getInputStream()) {
+      final byte[] buffer = new byte[4096];
+      for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+        body.write(buffer, 0, n);
+      }
+    }
+    return new String(body.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
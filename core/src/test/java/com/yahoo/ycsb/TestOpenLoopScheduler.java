@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class TestOpenLoopScheduler {
+
+  @Test
+  public void fixedArrivalsAreEvenlySpaced() {
+    final OpenLoopScheduler scheduler = new OpenLoopScheduler(1000, 0, false);
+    final long first = scheduler.nextArrivalNs();
+    for (int i = 1; i < 100; i++) {
+      assertEquals(scheduler.nextArrivalNs() - first, i * 1000000L);
+    }
+  }
+
+  @Test
+  public void poissonArrivalsAverageTheTargetRate() {
+    final OpenLoopScheduler scheduler = new OpenLoopScheduler(1000, 0, true);
+    final long first = scheduler.nextArrivalNs();
+    long previous = first;
+    for (int i = 1; i < 100000; i++) {
+      long next = scheduler.nextArrivalNs();
+      assertTrue(next >= previous);
+      previous = next;
+    }
+    final double meanIntervalMs = (previous - first) / 99999.0 / 1000000.0;
+    assertTrue(meanIntervalMs > 0.95 && meanIntervalMs < 1.05, "mean interval " + meanIntervalMs);
+  }
+
+  @Test
+  public void stopsAfterOperationCount() {
+    final OpenLoopScheduler scheduler = new OpenLoopScheduler(1000, 10, true);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(scheduler.nextArrivalNs() > 0);
+    }
+    assertEquals(scheduler.nextArrivalNs(), -1);
+    assertEquals(scheduler.nextArrivalNs(), -1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void requiresTarget() {
+    new OpenLoopScheduler(0, 10, false);
+  }
+}
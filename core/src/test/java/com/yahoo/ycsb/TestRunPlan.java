@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+public class TestRunPlan {
+
+  @Test
+  public void phasesLayerTheirPropertiesOverTheBase() throws Exception {
+    final File workloadFile = File.createTempFile("workload", ".properties");
+    workloadFile.deleteOnExit();
+    try (Writer writer = new FileWriter(workloadFile)) {
+      writer.write("readproportion=0.95\ntarget=100\n");
+    }
+
+    final Properties base = new Properties();
+    base.setProperty("recordcount", "10");
+    base.setProperty("target", "50");
+
+    final Properties plan = new Properties();
+    plan.setProperty("phases", "load, run");
+    plan.setProperty("threadcount", "4");
+    plan.setProperty("phase.load.dotransactions", "false");
+    plan.setProperty("phase.run.properties", workloadFile.getPath());
+    plan.setProperty("phase.run.target", "200");
+
+    final List<RunPlan.Phase> phases = RunPlan.create(plan, base, new Properties()).getPhases();
+    assertEquals(phases.size(), 2);
+
+    final RunPlan.Phase load = phases.get(0);
+    assertEquals(load.getName(), "load");
+    assertEquals(load.getProperties().getProperty("dotransactions"), "false");
+    assertEquals(load.getProperties().getProperty("threadcount"), "4");
+    assertEquals(load.getProperties().getProperty("target"), "50");
+    assertNull(load.getProperties().getProperty("readproportion"));
+
+    final RunPlan.Phase run = phases.get(1);
+    assertEquals(run.getName(), "run");
+    assertEquals(run.getProperties().getProperty("recordcount"), "10");
+    assertEquals(run.getProperties().getProperty("readproportion"), "0.95");
+    assertEquals(run.getProperties().getProperty("target"), "200");
+    assertNull(run.getProperties().getProperty("dotransactions"));
+    assertNull(run.getProperties().getProperty("properties"));
+  }
+
+  @Test
+  public void commandLineOverridesThePlan() throws Exception {
+    final File workloadFile = File.createTempFile("workload", ".properties");
+    workloadFile.deleteOnExit();
+    try (Writer writer = new FileWriter(workloadFile)) {
+      writer.write("target=100\nthreadcount=2\n");
+    }
+
+    final Properties commandLine = new Properties();
+    commandLine.setProperty("target", "50");
+    final Properties base = new Properties();
+    base.setProperty("target", "50");
+
+    final Properties plan = new Properties();
+    plan.setProperty("phases", "load, run");
+    plan.setProperty("target", "10");
+    plan.setProperty("phase.run.properties", workloadFile.getPath());
+    plan.setProperty("phase.load.target", "200");
+
+    for (RunPlan.Phase phase : RunPlan.create(plan, base, commandLine).getPhases()) {
+      assertEquals(phase.getProperties().getProperty("target"), "50", phase.getName());
+    }
+    assertEquals(RunPlan.create(plan, base, commandLine).getPhases().get(1).getProperties()
+        .getProperty("threadcount"), "2");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void phasesAreRequired() throws Exception {
+    RunPlan.create(new Properties(), new Properties(), new Properties());
+  }
+}
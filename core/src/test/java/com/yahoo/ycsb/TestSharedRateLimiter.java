@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class TestSharedRateLimiter {
+
+  @Test
+  public void permitsAreEvenlySpaced() {
+    final SharedRateLimiter limiter = new SharedRateLimiter(1000, 1, 0);
+    final long first = limiter.acquire();
+    for (int i = 1; i < 100; i++) {
+      assertEquals(limiter.acquire() - first, i * 1000000L);
+    }
+  }
+
+  @Test
+  public void batchesAreClaimedAtOnce() throws InterruptedException {
+    final SharedRateLimiter limiter = new SharedRateLimiter(1000, 10, 0);
+    final long first = limiter.acquire();
+    final long[] other = new long[1];
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        other[0] = limiter.acquire();
+      }
+    };
+    thread.start();
+    thread.join();
+    // the other thread gets the first permit after this thread's batch
+    assertEquals(other[0] - first, 10 * 1000000L);
+    for (int i = 1; i < 10; i++) {
+      assertEquals(limiter.acquire() - first, i * 1000000L);
+    }
+    assertEquals(limiter.acquire() - first, 20 * 1000000L);
+  }
+
+  @Test
+  public void burstLimitsExpiredPermits() throws InterruptedException {
+    final SharedRateLimiter limiter = new SharedRateLimiter(1000, 1, 5);
+    limiter.acquire();
+    Thread.sleep(100);
+    final long now = System.nanoTime();
+    final long permit = limiter.acquire();
+    // at most 5 permits accumulated during the pause
+    assertTrue(now - permit <= 5 * 1000000L + 1000000L, "permit " + (now - permit) + " ns old");
+  }
+
+  @Test
+  public void concurrentThreadsGetDistinctPermits() throws InterruptedException {
+    final SharedRateLimiter limiter = new SharedRateLimiter(1000000, 4, 0);
+    final int threads = 4;
+    final int perThread = 10000;
+    final long[] permits = new long[threads * perThread];
+    final AtomicInteger index = new AtomicInteger();
+    final Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      workers[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < perThread; i++) {
+            permits[index.getAndIncrement()] = limiter.acquire();
+          }
+        }
+      };
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    Arrays.sort(permits);
+    for (int i = 1; i < permits.length; i++) {
+      assertEquals(permits[i] - permits[i - 1], 1000L);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void requiresPositiveRate() {
+    new SharedRateLimiter(0, 1, 0);
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+public class TestThroughputSearch {
+
+  private static ThroughputSearch search(String strategy, String max) {
+    final Properties props = new Properties();
+    props.setProperty(ThroughputSearch.SEARCH_PROPERTY, strategy);
+    props.setProperty(ThroughputSearch.P99_PROPERTY, "1000");
+    props.setProperty(ThroughputSearch.START_TARGET_PROPERTY, "1000");
+    props.setProperty(ThroughputSearch.STEP_PROPERTY, "100");
+    props.setProperty(ThroughputSearch.MAX_TARGET_PROPERTY, max);
+    return new ThroughputSearch(props);
+  }
+
+  /** Run the search against a system meeting the objective up to the given throughput. */
+  private static int runSearch(ThroughputSearch search, int capacity) {
+    int target = search.getTarget();
+    int steps = 0;
+    while (target > 0) {
+      target = search.nextTarget(target <= capacity);
+      steps++;
+      assertTrue(steps < 100);
+    }
+    return search.getHighestMet();
+  }
+
+  @Test
+  public void stepStopsAtFirstFailure() {
+    assertEquals(runSearch(search("step", "0"), 1750), 1700);
+  }
+
+  @Test
+  public void stepStopsAtMaximum() {
+    assertEquals(runSearch(search("step", "1450"), 100000), 1450);
+  }
+
+  @Test
+  public void bisectConvergesWithinStep() {
+    final int highest = runSearch(search("bisect", "0"), 5321);
+    assertTrue(highest <= 5321 && highest > 5321 - 100, "highest " + highest);
+  }
+
+  @Test
+  public void bisectBelowStart() {
+    final int highest = runSearch(search("bisect", "0"), 420);
+    assertTrue(highest <= 420 && highest > 320, "highest " + highest);
+  }
+
+  @Test
+  public void evaluatesTheWindowOnly() {
+    final ThroughputSearch search = search("step", "0");
+    final Histogram before = new Histogram(3);
+    for (int i = 0; i < 1000; i++) {
+      before.recordValue(5000);
+    }
+    final Histogram after = before.copy();
+    for (int i = 0; i < 1000; i++) {
+      after.recordValue(500);
+    }
+    final Map<String, Histogram> start = Collections.singletonMap("READ", before);
+    final Map<String, Histogram> end = Collections.singletonMap("READ", after);
+
+    assertTrue(search.evaluate(1000, 1000, start, end)._met);
+    assertFalse(search.evaluate(1000, 900, start, end)._met, "target not achieved");
+    assertFalse(search.evaluate(1000, 1000, new HashMap<String, Histogram>(), end)._met);
+    assertFalse(search.evaluate(1000, 1000, start, start)._met, "nothing measured");
+  }
+}
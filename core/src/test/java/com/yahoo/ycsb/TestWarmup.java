@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestWarmup {
+
+  @BeforeClass
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void noWarmupByDefault() {
+    assertNull(Warmup.create(new Properties()));
+  }
+
+  @Test
+  public void resetsMeasurementsAfterOperations() {
+    final Measurements measurements = Measurements.getMeasurements();
+    final Warmup warmup = new Warmup(0, 3);
+    warmup.start();
+    measurements.measure("WARMUP_TEST", 1000);
+    warmup.operationDone();
+    warmup.operationDone();
+    assertFalse(warmup.isFinished());
+    assertTrue(measurements.getSummary().contains("WARMUP_TEST"));
+
+    warmup.operationDone();
+    assertTrue(warmup.isFinished());
+    assertEquals(warmup.getOperations(), 3);
+    assertFalse(measurements.getSummary().contains("WARMUP_TEST"));
+
+    // measurements taken after the warmup are kept
+    measurements.measure("WARMUP_TEST", 1000);
+    warmup.operationDone();
+    assertTrue(measurements.getSummary().contains("WARMUP_TEST"));
+  }
+
+  @Test
+  public void lastsAtLeastTheWarmupTime() throws InterruptedException {
+    final Warmup warmup = new Warmup(50000000L, 1);
+    warmup.start();
+    warmup.operationDone();
+    assertFalse(warmup.isFinished());
+    Thread.sleep(60);
+    warmup.operationDone();
+    assertTrue(warmup.isFinished());
+    assertEquals(warmup.getOperations(), 2);
+  }
+}
@@ -16,9 +16,18 @@
  */
 package com.yahoo.ycsb.generator;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.testng.annotations.Test;
 
@@ -38,24 +47,153 @@ public class AcknowledgedCounterGeneratorTest {
         new AcknowledgedCounterGenerator(Integer.MAX_VALUE - 1000);
 
     Random rand = new Random(System.currentTimeMillis());
-    BlockingQueue<Integer> pending = new ArrayBlockingQueue<Integer>(1000);
+    BlockingQueue<Long> pending = new ArrayBlockingQueue<Long>(1000);
     for (long i = 0; i < toTry; ++i) {
-      int value = generator.nextValue();
+      long value = generator.nextLong();
 
       while (!pending.offer(value)) {
 
-        Integer first = pending.poll();
+        Long first = pending.poll();
 
         // Don't always advance by one.
         if (rand.nextBoolean()) {
           generator.acknowledge(first);
         } else {
-          Integer second = pending.poll();
+          Long second = pending.poll();
           pending.add(first);
           generator.acknowledge(second);
         }
       }
     }
 
+    assertTrue(generator.lastLong() > Integer.MAX_VALUE);
+  }
+
+  /**
+   * Test that the limit only moves past contiguous acknowledged values.
+   */
+  @Test
+  public void testLimitStopsAtTheFirstUnacknowledgedValue() {
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(100);
+    for (int i = 0; i < 200; i++) {
+      generator.nextLong();
+    }
+    assertEquals(generator.lastLong(), 99);
+
+    for (long value = 101; value < 300; value++) {
+      generator.acknowledge(value);
+    }
+    assertEquals(generator.lastValue().longValue(), 99);
+
+    generator.acknowledge(100);
+    assertEquals(generator.lastValue().longValue(), 299);
+  }
+
+  /**
+   * Test that values acknowledged far past a slow one are kept rather than rejected.
+   */
+  @Test
+  public void testSlowValueDoesNotExhaustTheWindow() {
+    final long toTry = AcknowledgedCounterGenerator.WINDOW_SIZE * 3L;
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0);
+    final long slow = generator.nextLong();
+    for (long i = 0; i < toTry; ++i) {
+      generator.acknowledge(generator.nextLong());
+    }
+    assertEquals(generator.lastLong(), slow - 1);
+
+    generator.acknowledge(slow);
+    assertEquals(generator.lastLong(), toTry);
+
+    // the window is still usable afterwards
+    generator.acknowledge(generator.nextLong());
+    assertEquals(generator.lastLong(), toTry + 1);
+  }
+
+  /**
+   * Test that threads acknowledging out of order never expose an unacknowledged value.
+   */
+  @Test
+  public void testConcurrentAcknowledgements() throws InterruptedException {
+    final int threads = 8;
+    final int perThread = AcknowledgedCounterGenerator.WINDOW_SIZE / 4;
+    final int total = threads * perThread;
+    final AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0);
+    final AtomicLongArray acknowledged = new AtomicLongArray(total);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final AtomicBoolean done = new AtomicBoolean();
+
+    final Thread checker = new Thread() {
+      @Override
+      public void run() {
+        long checked = -1;
+        while (!done.get()) {
+          final long last = generator.lastLong();
+          if (last < checked) {
+            failure.compareAndSet(null, new AssertionError("limit went back from " + checked + " to " + last));
+            return;
+          }
+          for (long value = checked + 1; value <= last; value++) {
+            if (acknowledged.get((int) value) == 0) {
+              failure.compareAndSet(null, new AssertionError("limit " + last + " passed " + value));
+              return;
+            }
+          }
+          checked = last;
+        }
+      }
+    };
+    checker.start();
+
+    final List<Thread> workers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; t++) {
+      final Random random = new Random(t);
+      workers.add(new Thread() {
+        @Override
+        public void run() {
+          final List<Long> pending = new ArrayList<Long>();
+          Long held = null;
+          for (int i = 0; i < perThread; i++) {
+            pending.add(generator.nextLong());
+            if (pending.size() == 16) {
+              // acknowledge out of order, and now and then hold a value back for a long time
+              Collections.shuffle(pending, random);
+              if ((held == null) && (random.nextInt(1000) == 0)) {
+                held = pending.remove(0);
+              } else if ((held != null) && (random.nextInt(100) == 0)) {
+                pending.add(held);
+                held = null;
+              }
+              acknowledgeAll(pending);
+            }
+          }
+          if (held != null) {
+            pending.add(held);
+          }
+          acknowledgeAll(pending);
+        }
+
+        private void acknowledgeAll(List<Long> pending) {
+          for (long value : pending) {
+            acknowledged.set((int) value, 1);
+            generator.acknowledge(value);
+          }
+          pending.clear();
+        }
+      });
+    }
+    for (Thread worker : workers) {
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    done.set(true);
+    checker.join();
+
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+    assertEquals(generator.lastLong(), total - 1);
   }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+public class TestDiscreteGenerator {
+
+  @Test
+  public void choosesInProportionToTheWeights() {
+    final DiscreteGenerator generator = new DiscreteGenerator();
+    generator.addValue(0.5, "READ");
+    generator.addValue(0.3, "UPDATE");
+    generator.addValue(0.15, "INSERT");
+    generator.addValue(0.05, "SCAN");
+    final Map<String, Integer> counts = count(generator, 100000);
+    assertEquals(counts.get("READ") / 100000.0, 0.5, 0.01);
+    assertEquals(counts.get("UPDATE") / 100000.0, 0.3, 0.01);
+    assertEquals(counts.get("INSERT") / 100000.0, 0.15, 0.01);
+    assertEquals(counts.get("SCAN") / 100000.0, 0.05, 0.01);
+  }
+
+  @Test
+  public void neverChoosesAValueOfWeightZero() {
+    final DiscreteGenerator generator = new DiscreteGenerator();
+    generator.addValue(1.0 / 3, "READ");
+    generator.addValue(0, "SCAN");
+    generator.addValue(1.0 / 3, "UPDATE");
+    generator.addValue(1.0 / 3, "INSERT");
+    generator.addValue(0, "READMODIFYWRITE");
+    final Map<String, Integer> counts = count(generator, 100000);
+    assertEquals(counts.size(), 3, counts.toString());
+    assertTrue(!counts.containsKey("SCAN") && !counts.containsKey("READMODIFYWRITE"), counts.toString());
+  }
+
+  @Test
+  public void choosesAmongTheValuesAddedAfterSampling() {
+    final DiscreteGenerator generator = new DiscreteGenerator();
+    generator.addValue(1, "READ");
+    assertEquals(generator.nextString(), "READ");
+    generator.addValue(3, "UPDATE");
+    final Map<String, Integer> counts = count(generator, 100000);
+    assertEquals(counts.get("UPDATE") / 100000.0, 0.75, 0.01);
+  }
+
+  @Test(expectedExceptions = AssertionError.class)
+  public void failsWithoutValues() {
+    new DiscreteGenerator().nextValue();
+  }
+
+  private static Map<String, Integer> count(DiscreteGenerator generator, int samples) {
+    final Map<String, Integer> counts = new HashMap<String, Integer>();
+    for (int i = 0; i < samples; i++) {
+      final String value = generator.nextValue();
+      final Integer count = counts.get(value);
+      counts.put(value, count == null ? 1 : count + 1);
+    }
+    return counts;
+  }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class TestHistogramGenerator {
+
+  @Test
+  public void findsTheBucketsTheLinearScanFound() {
+    final Random random = new Random(42);
+    for (int round = 0; round < 20; round++) {
+      final long[] buckets = new long[1 + random.nextInt(200)];
+      for (int i = 0; i < buckets.length; i++) {
+        // some empty buckets, including the first and last ones now and then
+        buckets[i] = random.nextInt(4) == 0 ? 0 : random.nextInt(50);
+      }
+      final HistogramGenerator generator = new HistogramGenerator(buckets, 512);
+      long area = 0;
+      for (long bucket : buckets) {
+        area += bucket;
+      }
+      for (long number = 0; number < area; number++) {
+        assertEquals(generator.valueOf(number), linearScan(buckets, 512, number), "number " + number);
+      }
+    }
+  }
+
+  @Test
+  public void drawsMultiplesOfTheBlockSize() {
+    final long[] buckets = new long[10000];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = 1 + i % 7;
+    }
+    final HistogramGenerator generator = new HistogramGenerator(buckets, 4096);
+    for (int i = 0; i < 10000; i++) {
+      final long value = generator.nextLong();
+      assertTrue(value >= 4096 && value <= 10000 * 4096L && value % 4096 == 0, "value " + value);
+    }
+  }
+
+  /**
+   * The walk over the buckets the generator used to do for every value.
+   */
+  private static long linearScan(long[] buckets, long blockSize, long number) {
+    int i;
+    for (i = 0; i < (buckets.length - 1); i++) {
+      number -= buckets[i];
+      if (number <= 0) {
+        return (i + 1) * blockSize;
+      }
+    }
+    return i * blockSize;
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class TestIntegerGenerators {
+
+  private static final long BEYOND_INT = 10000000000L;
+
+  @Test
+  public void uniformBeyondIntegerMaxValue() {
+    final UniformIntegerGenerator generator = new UniformIntegerGenerator(BEYOND_INT, 2 * BEYOND_INT);
+    boolean upperHalf = false;
+    for (int i = 0; i < 1000; i++) {
+      final long value = generator.nextLong();
+      assertTrue(value >= BEYOND_INT && value <= 2 * BEYOND_INT, "value " + value);
+      assertEquals(generator.lastValue().longValue(), value);
+      upperHalf |= value > 1.5 * BEYOND_INT;
+    }
+    assertTrue(upperHalf);
+    assertEquals(generator.mean(), 1.5 * BEYOND_INT);
+  }
+
+  @Test
+  public void uniformOverAWholeIntInterval() {
+    final UniformIntegerGenerator generator = new UniformIntegerGenerator(0, Integer.MAX_VALUE);
+    for (int i = 0; i < 1000; i++) {
+      final long value = generator.nextLong();
+      assertTrue(value >= 0 && value <= Integer.MAX_VALUE, "value " + value);
+    }
+  }
+
+  @Test
+  public void hotspotBeyondIntegerMaxValue() {
+    final HotspotIntegerGenerator generator =
+        new HotspotIntegerGenerator(BEYOND_INT, 2 * BEYOND_INT - 1, 0.1, 0.9);
+    int hot = 0;
+    for (int i = 0; i < 1000; i++) {
+      final long value = generator.nextLong();
+      assertTrue(value >= BEYOND_INT && value < 2 * BEYOND_INT, "value " + value);
+      if (value < 1.1 * BEYOND_INT) {
+        hot++;
+      }
+    }
+    assertTrue(hot > 800, "hot " + hot);
+  }
+
+  @Test
+  public void sequentialBeyondIntegerMaxValue() {
+    final SequentialGenerator generator = new SequentialGenerator(BEYOND_INT, BEYOND_INT + 2);
+    assertEquals(generator.nextLong(), BEYOND_INT);
+    assertEquals(generator.nextLong(), BEYOND_INT + 1);
+    assertEquals(generator.nextLong(), BEYOND_INT + 2);
+    assertEquals(generator.nextLong(), BEYOND_INT);
+  }
+
+  @Test
+  public void counterBeyondIntegerMaxValue() {
+    final CounterGenerator generator = new CounterGenerator(Integer.MAX_VALUE);
+    assertEquals(generator.nextLong(), Integer.MAX_VALUE);
+    assertEquals(generator.nextValue().longValue(), Integer.MAX_VALUE + 1L);
+    assertEquals(generator.lastLong(), Integer.MAX_VALUE + 1L);
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+public class TestZeta {
+
+  @Test
+  public void sumsFewTermsOneByOne() {
+    assertEquals(Zeta.sum(0, 1000, 0.99), Zeta.serial(0, 1000, 0.99));
+    assertEquals(Zeta.sum(0, 3, 1.0), 1 + 1 / 2.0 + 1 / 3.0, 1e-15);
+  }
+
+  @Test
+  public void approximatesTheExactSum() {
+    final long n = 5000000;
+    for (double theta : new double[] {0.2, 0.5, 0.99, 1.0, 1.2, 2.0}) {
+      final double exact = Zeta.parallel(0, n, theta);
+      assertEquals(Zeta.approximate(0, n, theta), exact, exact * 1e-10, "theta " + theta);
+    }
+  }
+
+  @Test
+  public void approximatesIncrementally() {
+    final double exact = Zeta.parallel(0, 3000000, 0.7);
+    assertEquals(Zeta.serial(0, 500, 0.7) + Zeta.approximate(500, 3000000, 0.7), exact, exact * 1e-10);
+    assertEquals(Zeta.serial(0, 2000000, 0.7) + Zeta.approximate(2000000, 3000000, 0.7), exact, exact * 1e-10);
+  }
+
+  @Test
+  public void approximatesThePrecomputedZetaOfTheScrambledZipfian() {
+    assertEquals(ZipfianGenerator.zetastatic(ScrambledZipfianGenerator.ITEM_COUNT + 1, 0.99),
+        ScrambledZipfianGenerator.ZETAN, ScrambledZipfianGenerator.ZETAN * 1e-6);
+  }
+
+  @Test
+  public void keepsTheExactSumsInTheCache() throws IOException {
+    final File cache = File.createTempFile("zeta", ".properties");
+    try {
+      assertTrue(cache.delete());
+      final double zeta = Zeta.cached(cache, 100000, 0.8);
+      assertEquals(zeta, Zeta.parallel(0, 100000, 0.8));
+      assertTrue(cache.exists());
+
+      // served from the file from now on
+      final Properties zetas = new Properties();
+      zetas.setProperty("100000,0.8", "42.0");
+      try (OutputStream out = new FileOutputStream(cache)) {
+        zetas.store(out, null);
+      }
+      assertEquals(Zeta.cached(cache, 100000, 0.8), 42.0);
+    } finally {
+      cache.delete();
+    }
+  }
+
+  @Test
+  public void scrambledZipfianWithAnyConstantStartsQuickly() {
+    final long start = System.nanoTime();
+    final ScrambledZipfianGenerator generator = new ScrambledZipfianGenerator(0, 999, 0.8);
+    assertTrue(System.nanoTime() - start < 5000000000L);
+    for (int i = 0; i < 1000; i++) {
+      final long value = generator.nextValue();
+      assertTrue(value >= 0 && value <= 999);
+    }
+  }
+}
@@ -17,8 +17,12 @@
 
 package com.yahoo.ycsb.generator;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.testng.annotations.Test;
 
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 
 
@@ -36,4 +40,56 @@ public class TestZipfianGenerator {
         }
 
     }
+
+    @Test
+    public void followsTheGrowingItemCount() {
+        ZipfianGenerator zipfian = new ZipfianGenerator(1000);
+        for (long itemcount = 1000; itemcount <= 5000; itemcount++) {
+            zipfian.nextLong(itemcount);
+            assertEquals(Zeta.serial(0, itemcount, ZipfianGenerator.ZIPFIAN_CONSTANT), zipfian.zetan(itemcount), 1e-9);
+        }
+        zipfian.nextLong(1000000);
+        assertEquals(Zeta.serial(0, 1000000, ZipfianGenerator.ZIPFIAN_CONSTANT), zipfian.zetan(1000000), 1e-9);
+    }
+
+    @Test
+    public void followsAShrinkingItemCount() {
+        ZipfianGenerator zipfian = new ZipfianGenerator(1000);
+        zipfian.allowitemcountdecrease = true;
+        zipfian.nextLong(3000000);
+        zipfian.nextLong(2000);
+        assertEquals(Zeta.serial(0, 2000, ZipfianGenerator.ZIPFIAN_CONSTANT), zipfian.zetan(2000), 1e-9);
+        zipfian.nextLong(1500);
+        assertEquals(Zeta.serial(0, 1500, ZipfianGenerator.ZIPFIAN_CONSTANT), zipfian.zetan(1500), 1e-9);
+    }
+
+    @Test
+    public void samplesConcurrentlyWhileTheItemCountGrows() throws InterruptedException {
+        final ZipfianGenerator zipfian = new ZipfianGenerator(100);
+        final AtomicLong itemcount = new AtomicLong(100);
+        final AtomicBoolean outOfRange = new AtomicBoolean();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        long count = (i % 4 == 0) ? itemcount.incrementAndGet() : itemcount.get();
+                        long value = zipfian.nextLong(count);
+                        if (value < 0 || value >= count) {
+                            outOfRange.set(true);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(outOfRange.get());
+
+        zipfian.nextLong(itemcount.get());
+        assertEquals(Zeta.serial(0, itemcount.get(), ZipfianGenerator.ZIPFIAN_CONSTANT), zipfian.zetan(itemcount.get()), 1e-9);
+    }
 }
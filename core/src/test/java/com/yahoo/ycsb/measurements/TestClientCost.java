@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestClientCost {
+
+  @Test
+  public void notMeasuredByDefault() {
+    assertNull(new Measurements(new Properties())._clientCost);
+  }
+
+  @Test
+  public void attributesTheCostToTheOperationMeasured() throws IOException {
+    final Measurements measurements = new Measurements(clientCostProperties());
+    final Measurements.OperationHandle read = measurements.getHandle("READ");
+    for (int i = 0; i < 10; i++) {
+      measurements.startOperation();
+      read.measure(10, 10);
+      measurements.endOperation();
+    }
+
+    final String export = export(measurements);
+    assertTrue(export.contains("[CLIENT_COST-MyDB-READ], Operations, 10"), export);
+    assertTrue(export.contains("[CLIENT_COST-MyDB-READ], CpuPerOp(us), "), export);
+    assertTrue(export.contains("[CLIENT_COST-MyDB-READ], AllocatedPerOp(bytes), "), export);
+  }
+
+  @Test
+  public void attributesACompositeOperationAsAWhole() throws IOException {
+    final Measurements measurements = new Measurements(clientCostProperties());
+    measurements.startOperation();
+    measurements.getHandle("READ").measure(10, 10);
+    measurements.measure("VERIFY", 1);
+    measurements.getHandle("UPDATE").measure(10, 10);
+    measurements.measure("READ-MODIFY-WRITE", 20);
+    measurements.measureIntended("READ-MODIFY-WRITE", 20);
+    measurements.endOperation();
+
+    final String export = export(measurements);
+    assertTrue(export.contains("[CLIENT_COST-MyDB-READ-MODIFY-WRITE], Operations, 1"), export);
+    assertFalse(export.contains("[CLIENT_COST-MyDB-READ]"), export);
+    assertFalse(export.contains("[CLIENT_COST-MyDB-UPDATE]"), export);
+  }
+
+  @Test
+  public void accountsForTheAllocations() throws IOException {
+    final ClientCost cost = new Measurements(clientCostProperties())._clientCost;
+    final Measurements.StartTimeHolder holder = new Measurements.StartTimeHolder();
+    cost.start(holder);
+    byte[][] garbage = new byte[100][];
+    for (int i = 0; i < garbage.length; i++) {
+      garbage[i] = new byte[1024];
+    }
+    holder.operation = "INSERT";
+    cost.end(holder);
+
+    final String export = exportCost(cost);
+    final String allocated = export.replaceAll("(?s).*AllocatedPerOp\\(bytes\\), ([0-9.]+).*", "$1");
+    assertTrue(Double.parseDouble(allocated) >= 100 * 1024, export);
+  }
+
+  @Test
+  public void resetDiscardsTheCosts() throws IOException {
+    final Measurements measurements = new Measurements(clientCostProperties());
+    measurements.startOperation();
+    measurements.getHandle("READ").measure(10, 10);
+    measurements.endOperation();
+    measurements.reset();
+    assertFalse(export(measurements).contains("CLIENT_COST"));
+  }
+
+  private static Properties clientCostProperties() {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_CLIENT_COST_PROPERTY, "true");
+    props.setProperty("db", "com.example.MyDB");
+    return props;
+  }
+
+  private static String export(Measurements measurements) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurements.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString();
+  }
+
+  private static String exportCost(ClientCost cost) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    cost.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString();
+  }
+}
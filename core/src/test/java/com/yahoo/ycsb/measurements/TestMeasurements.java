@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestMeasurements {
+
+  @Test
+  public void intervalHistogramsBetweenSnapshots() {
+    final Measurements measurements = new Measurements(new Properties());
+    measurements.measure("READ", 100);
+    measurements.measure("UPDATE", 100);
+    final Map<String, Histogram> before = measurements.getCumulativeHistograms();
+
+    measurements.measure("READ", 5000);
+    measurements.measure("READ", 5000);
+    // taking a status summary in between does not lose anything
+    measurements.getSummary();
+    measurements.measure("INSERT", 10);
+    final Map<String, Histogram> after = measurements.getCumulativeHistograms();
+
+    final Map<String, Histogram> interval = Measurements.getIntervalHistograms(before, after);
+    assertEquals(interval.get("READ").getTotalCount(), 2);
+    assertTrue(interval.get("READ").getMinValue() >= 4990);
+    assertEquals(interval.get("INSERT").getTotalCount(), 1);
+    assertFalse(interval.containsKey("UPDATE"), "nothing recorded in the interval");
+  }
+
+  @Test
+  public void intervalHistogramsAfterReset() {
+    final Measurements measurements = new Measurements(new Properties());
+    measurements.measure("READ", 100);
+    measurements.measure("READ", 100);
+    final Map<String, Histogram> before = measurements.getCumulativeHistograms();
+    measurements.reset();
+    measurements.measure("READ", 200);
+    final Map<String, Histogram> interval =
+        Measurements.getIntervalHistograms(before, measurements.getCumulativeHistograms());
+    assertEquals(interval.get("READ").getTotalCount(), 1);
+  }
+
+  @Test
+  public void intervalHistogramsAfterResetWithMoreOperations() {
+    final Measurements measurements = new Measurements(new Properties());
+    measurements.measure("READ", 100);
+    final Map<String, Histogram> before = measurements.getCumulativeHistograms();
+    measurements.reset();
+    measurements.measure("READ", 200);
+    measurements.measure("READ", 200);
+    final Map<String, Histogram> interval =
+        Measurements.getIntervalHistograms(before, measurements.getCumulativeHistograms());
+    assertEquals(interval.get("READ").getTotalCount(), 2);
+    assertTrue(interval.get("READ").getMinValue() >= 199);
+  }
+
+  @Test
+  public void handlesRecordLikeTheOperationName() {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+    final Measurements measurements = new Measurements(props);
+    final Measurements.OperationHandle read = measurements.getHandle("READ");
+    measurements.getHandle("SCAN");
+    read.measure(100, 300);
+    read.reportStatus(Status.OK);
+    measurements.measure("READ", 200);
+
+    final Map<String, Histogram> histograms = measurements.getCumulativeHistogramsByName();
+    assertEquals(histograms.get("READ").getTotalCount(), 2);
+    assertEquals(histograms.get("Intended-READ").getMaxValue(), 300, 1);
+    assertFalse(histograms.containsKey("SCAN"), "an operation never measured is not reported");
+  }
+
+  @Test
+  public void handlesFollowAReset() {
+    final Measurements measurements = new Measurements(new Properties());
+    final Measurements.OperationHandle update = measurements.getHandle("UPDATE");
+    update.measure(100, 100);
+    update.measure(100, 100);
+    measurements.reset();
+    update.measure(100, 100);
+    assertEquals(measurements.getCumulativeHistograms().get("UPDATE").getTotalCount(), 1);
+  }
+
+  @Test
+  public void hdrLogFileKeptAcrossThePhasesOfARunPlan() throws IOException {
+    final File dir = Files.createTempDirectory("hdr").toFile();
+    final Properties props = new Properties();
+    props.setProperty("hdrhistogram.fileoutput", "true");
+    props.setProperty("hdrhistogram.output.path", dir.getPath() + File.separator);
+    final Measurements measurements = new Measurements(props);
+    // each phase is exported, then the next one starts from a reset
+    measurements.measure("READ", 100);
+    measurements.measure("UPDATE", 100);
+    measurements.exportMeasurements(new TextMeasurementsExporter(new ByteArrayOutputStream()));
+    measurements.reset();
+    measurements.measure("READ", 200);
+    measurements.measure("READ", 200);
+    measurements.exportMeasurements(new TextMeasurementsExporter(new ByteArrayOutputStream()));
+    measurements.close();
+
+    final File read = new File(dir, "READ.hdr");
+    final String log = new String(Files.readAllBytes(read.toPath()), "UTF-8");
+    assertTrue(log.startsWith("#[Logging for: READ]"), "the file is not started over");
+    assertTrue(log.contains("#[Measurements reset]"));
+    final FileInputStream in = new FileInputStream(read);
+    try {
+      final HistogramLogReader reader = new HistogramLogReader(in);
+      assertEquals(((Histogram) reader.nextIntervalHistogram()).getTotalCount(), 1, "the first phase");
+      assertEquals(((Histogram) reader.nextIntervalHistogram()).getTotalCount(), 2, "the second phase");
+      assertNull(reader.nextIntervalHistogram());
+    } finally {
+      in.close();
+    }
+    assertTrue(new File(dir, "UPDATE.hdr").delete());
+    assertTrue(read.delete());
+    assertTrue(dir.delete());
+  }
+
+  @Test
+  public void stagesOfAnOperation() {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_DECOMPOSE_PROPERTY, "true");
+    final Measurements measurements = new Measurements(props);
+    final Measurements.OperationHandle read = measurements.getHandle("READ");
+    final Measurements.OperationHandle update = measurements.getHandle("UPDATE");
+
+    // an operation starting 2ms behind schedule, then calling the DB twice
+    final long operationStart = System.nanoTime();
+    measurements.setIntendedStartTimeNs(operationStart - 2000000);
+    measurements.startOperation();
+    read.startCall(System.nanoTime());
+    read.endCall(300);
+    update.startCall(System.nanoTime());
+    update.endCall(400);
+
+    final Map<String, Histogram> histograms = measurements.getCumulativeHistogramsByName();
+    assertEquals(histograms.get("ScheduleLag-READ").getTotalCount(), 1);
+    assertTrue(histograms.get("ScheduleLag-READ").getMaxValue() >= 2000);
+    assertEquals(histograms.get("Preprocessing-READ").getTotalCount(), 1);
+    assertEquals(histograms.get("DbCall-READ").getMaxValue(), 300);
+    assertEquals(histograms.get("DbCall-UPDATE").getMaxValue(), 400);
+    assertFalse(histograms.containsKey("ScheduleLag-UPDATE"), "only the first call ends the schedule lag");
+    assertFalse(histograms.containsKey("Preprocessing-UPDATE"));
+  }
+
+  @Test
+  public void noStagesByDefault() {
+    final Measurements measurements = new Measurements(new Properties());
+    final Measurements.OperationHandle read = measurements.getHandle("READ");
+    measurements.startOperation();
+    read.startCall(System.nanoTime());
+    read.endCall(300);
+    assertTrue(measurements.getCumulativeHistogramsByName().isEmpty());
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestOneMeasurementHdrHistogramPerThread {
+
+  private static final int THREADS = 6;
+
+  @Test
+  public void sameResultsAsASharedRecorder() throws Exception {
+    final OneMeasurementHdrHistogram shared = new OneMeasurementHdrHistogram("READ", new Properties());
+    final OneMeasurementHdrHistogram perThread = new OneMeasurementHdrHistogramPerThread("READ", new Properties());
+
+    measureConcurrently(shared, perThread, 0);
+    assertEquals(perThread.getSummary(), shared.getSummary());
+    assertTrue(perThread.getSummary().startsWith("[READ: Count=0"), "the interval starts over");
+
+    measureConcurrently(shared, perThread, 50000);
+    assertEquals(export(perThread), export(shared));
+    assertTrue(export(perThread).startsWith("[READ], Operations, " + (2 * THREADS * 10000)));
+  }
+
+  @Test
+  public void cumulativeHistogramIncludesAllThreads() throws Exception {
+    final OneMeasurementHdrHistogram perThread = new OneMeasurementHdrHistogramPerThread("UPDATE", new Properties());
+    measureConcurrently(perThread, perThread, 0);
+    assertEquals(perThread.getCumulativeHistogram().getTotalCount(), 2 * THREADS * 10000);
+  }
+
+  private static void measureConcurrently(final OneMeasurement first, final OneMeasurement second, final int base)
+      throws InterruptedException {
+    final Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int offset = base + t * 1000;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            first.measure(offset + i);
+            second.measure(offset + i);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  private static String export(OneMeasurement measurement) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurement.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString();
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestOneMeasurementHistogram {
+
+  private static final int THREADS = 8;
+  private static final int PER_THREAD = 10000;
+
+  @Test
+  public void concurrentMeasurementsAreAllCounted() throws Exception {
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementHistogram.BUCKETS, "10");
+    final OneMeasurementHistogram histogram = new OneMeasurementHistogram("READ", props);
+    final OneMeasurementHistogram reference = new OneMeasurementHistogram("READ", props);
+
+    final Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int offset = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < PER_THREAD; i++) {
+            histogram.measure(latency(offset, i));
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // the same measurements from a single thread
+    for (int t = 0; t < THREADS; t++) {
+      for (int i = 0; i < PER_THREAD; i++) {
+        reference.measure(latency(t, i));
+      }
+    }
+
+    assertEquals(histogram.getSummary(), reference.getSummary());
+    assertEquals(export(histogram), export(reference));
+    final String exported = export(histogram);
+    assertEquals(exported.split("\n")[0], "[READ], Operations, " + (THREADS * PER_THREAD));
+    assertEquals(exported.split("\n")[3], "[READ], MinLatency(us), 0");
+    assertEquals(exported.split("\n")[4], "[READ], MaxLatency(us), 11999");
+    // the window starts over after each summary
+    assertEquals(histogram.getSummary(), "");
+  }
+
+  @Test
+  public void overflowAndPercentiles() throws IOException {
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementHistogram.BUCKETS, "5");
+    final OneMeasurementHistogram histogram = new OneMeasurementHistogram("UPDATE", props);
+    for (int i = 0; i < 94; i++) {
+      histogram.measure(500);
+    }
+    for (int i = 0; i < 5; i++) {
+      histogram.measure(3500);
+    }
+    histogram.measure(7000);
+    final String exported = export(histogram);
+    assertEquals(exported,
+        "[UPDATE], Operations, 100\n"
+        + "[UPDATE], AverageLatency(us), 715.0\n"
+        + "[UPDATE], LatencyVariance(us), 826275.0\n"
+        + "[UPDATE], MinLatency(us), 500\n"
+        + "[UPDATE], MaxLatency(us), 7000\n"
+        + "[UPDATE], 95thPercentileLatency(us), 3000\n"
+        + "[UPDATE], 99thPercentileLatency(us), 3000\n"
+        + "[UPDATE], 0, 94\n"
+        + "[UPDATE], 1, 0\n"
+        + "[UPDATE], 2, 0\n"
+        + "[UPDATE], 3, 5\n"
+        + "[UPDATE], 4, 0\n"
+        + "[UPDATE], >5, 1\n");
+  }
+
+  private static int latency(int thread, int i) {
+    return (thread * 1000 + i) % 12000;
+  }
+
+  private static String export(OneMeasurementHistogram histogram) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    histogram.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString().replace("\r\n", "\n");
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestOneMeasurementRaw {
+
+  @Test
+  public void spilledDataPointsKeepTheirOrder() throws IOException {
+    final File directory = Files.createTempDirectory("raw").toFile();
+    final RawDataStore store = new RawDataStore("READ", RawDataStore.CHUNK_SIZE, directory);
+    final int points = 4 * RawDataStore.CHUNK_SIZE + 10;
+    for (int i = 0; i < points; i++) {
+      store.add(i, -i);
+    }
+    assertEquals(directory.list().length, 1, "full chunks beyond the first are spilled");
+
+    final long[] next = {0};
+    store.visit(new RawDataStore.ChunkVisitor() {
+      @Override
+      public void visit(long[] timestamps, int[] latencies, int length) {
+        for (int i = 0; i < length; i++) {
+          assertEquals(timestamps[i], next[0]);
+          assertEquals(latencies[i], -next[0]);
+          next[0]++;
+        }
+      }
+    });
+    assertEquals(next[0], points);
+
+    store.close();
+    assertEquals(directory.list().length, 0);
+    directory.delete();
+  }
+
+  @Test
+  public void selectsTheExactRanks() throws IOException {
+    final RawDataStore store = new RawDataStore("UPDATE", 0, null);
+    final Random random = new Random(42);
+    final int[] latencies = new int[3 * RawDataStore.CHUNK_SIZE + 123];
+    for (int i = 0; i < latencies.length; i++) {
+      // mostly small values, a few very large and a few negative ones
+      latencies[i] = i % 1000 == 0 ? random.nextInt() : random.nextInt(5000);
+      store.add(i, latencies[i]);
+    }
+    final long[] ranks = {0, latencies.length - 1, 1, latencies.length / 2, latencies.length * 99L / 100, 17, 17};
+    final int[] selected = store.select(ranks);
+    store.close();
+
+    Arrays.sort(latencies);
+    for (int r = 0; r < ranks.length; r++) {
+      assertEquals(selected[r], latencies[(int) ranks[r]], "rank " + ranks[r]);
+    }
+  }
+
+  @Test
+  public void writesTheDataPointsAndTheSummary() throws IOException {
+    final File output = File.createTempFile("raw", ".csv");
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, output.getPath());
+    props.setProperty(OneMeasurementRaw.MAX_IN_MEMORY, "0");
+    final OneMeasurementRaw raw = new OneMeasurementRaw("INSERT", props);
+    final int points = 2 * RawDataStore.CHUNK_SIZE + 1;
+    for (int i = 0; i < points; i++) {
+      raw.measure(points - i);
+    }
+
+    final ByteArrayOutputStream summary = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(summary);
+    raw.exportMeasurements(exporter);
+    exporter.close();
+
+    final List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+    output.delete();
+    assertEquals(lines.size(), points + 1);
+    assertEquals(lines.get(0), "INSERT latency raw data: op, timestamp(ms), latency(us)");
+    assertTrue(lines.get(1).matches("INSERT,\\d+," + points), lines.get(1));
+    assertTrue(lines.get(points).matches("INSERT,\\d+,1"), lines.get(points));
+
+    final String exported = summary.toString().replace("\r\n", "\n");
+    assertTrue(exported.startsWith("[INSERT], Total Operations, " + points + "\n"), exported);
+    assertTrue(exported.contains("[INSERT], Min, 1\n"), exported);
+    assertTrue(exported.contains("[INSERT], Max, " + points + "\n"), exported);
+    assertTrue(exported.contains("[INSERT], p50, " + (points / 2 + 1) + "\n"), exported);
+  }
+}
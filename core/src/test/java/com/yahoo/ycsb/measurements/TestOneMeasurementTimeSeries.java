@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestOneMeasurementTimeSeries {
+
+  private static final int THREADS = 4;
+
+  @Test
+  public void percentilesPerUnit() throws Exception {
+    // latencies below 2048 are recorded exactly
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementTimeSeries.GRANULARITY, "100");
+    final OneMeasurementTimeSeries series = new OneMeasurementTimeSeries("READ", props);
+    for (int i = 1; i <= 100; i++) {
+      series.measure(i);
+    }
+    // the timer ends the first unit
+    Thread.sleep(150);
+    for (int i = 0; i < 10; i++) {
+      series.measure(2000);
+    }
+
+    final List<String> lines = export(series);
+    assertTrue(lines.contains("[READ], Operations, 110"), lines.toString());
+    assertTrue(lines.contains("[READ], MaxLatency(us), 2000"), lines.toString());
+    assertTrue(lines.contains("[READ], 0-p50, 50"), lines.toString());
+    assertTrue(lines.contains("[READ], 0-max, 100"), lines.toString());
+    // a later unit, depending on how long the sleep took
+    assertTrue(lines.contains("[READ], " + unitAfterSleep(lines) + ", 2000.0"), lines.toString());
+    assertTrue(lines.contains("[READ], " + unitAfterSleep(lines) + "-p999, 2000"), lines.toString());
+  }
+
+  @Test
+  public void summaryOfTheOperationsSinceTheLastOne() throws Exception {
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementTimeSeries.GRANULARITY, "100");
+    final OneMeasurementTimeSeries series = new OneMeasurementTimeSeries("READ", props);
+    for (int i = 1; i <= 100; i++) {
+      series.measure(i);
+    }
+    assertEquals(series.getSummary(),
+        "[READ AverageLatency(us)=50.5, 95thPercentileLatency(us)=95, 99thPercentileLatency(us)=99]",
+        "the unit going on is included");
+    Thread.sleep(150);
+    series.measure(1000);
+    assertEquals(series.getSummary(),
+        "[READ AverageLatency(us)=1000, 95thPercentileLatency(us)=1000, 99thPercentileLatency(us)=1000]");
+    assertEquals(series.getSummary(), "", "nothing measured since");
+
+    // the summaries take nothing away from the units
+    final List<String> lines = export(series);
+    assertTrue(lines.contains("[READ], Operations, 101"), lines.toString());
+    assertTrue(lines.contains("[READ], 0-max, 100"), lines.toString());
+  }
+
+  @Test
+  public void allThreadsAreMerged() throws Exception {
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementTimeSeries.GRANULARITY, "20");
+    final OneMeasurementTimeSeries series = new OneMeasurementTimeSeries("UPDATE", props);
+    final Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 100; j++) {
+              series.measure(j);
+            }
+            try {
+              Thread.sleep(1);
+            } catch (InterruptedException e) {
+              return;
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(series.getSummary().startsWith("[UPDATE AverageLatency(us)=49.5"), series.getSummary());
+
+    final List<String> lines = export(series);
+    assertTrue(lines.contains("[UPDATE], Operations, " + (THREADS * 100 * 100)), lines.toString());
+    long previous = -1;
+    int units = 0;
+    for (String line : lines) {
+      final String[] fields = line.split(", ");
+      if (fields[1].matches("\\d+")) {
+        final long time = Long.parseLong(fields[1]);
+        assertEquals(time % 20, 0, line);
+        assertTrue(time > previous, line);
+        previous = time;
+        units++;
+      }
+    }
+    assertTrue(units > 1, lines.toString());
+  }
+
+  private static String unitAfterSleep(List<String> lines) {
+    for (String line : lines) {
+      if (line.matches("\\[READ\\], [1-9]\\d*00-max, .*")) {
+        return line.split(", ")[1].replace("-max", "");
+      }
+    }
+    return "none";
+  }
+
+  private static List<String> export(OneMeasurement measurement) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurement.exportMeasurements(exporter);
+    exporter.close();
+    final List<String> lines = new ArrayList<String>();
+    for (String line : out.toString().split("\r?\n")) {
+      lines.add(line);
+    }
+    return lines;
+  }
+}
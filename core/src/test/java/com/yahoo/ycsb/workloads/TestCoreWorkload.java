@@ -16,13 +16,24 @@
  */
 package com.yahoo.ycsb.workloads;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.HashMap;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 import org.testng.annotations.Test;
 
+import com.yahoo.ycsb.AsyncDB;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
 
 public class TestCoreWorkload {
 
@@ -67,4 +78,70 @@ public class TestCoreWorkload {
   public void createOperationChooserNullProperties() {
     CoreWorkload.createOperationGenerator(null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void keysBeyondIntegerMaxValue() throws WorkloadException {
+    Measurements.setProperties(new Properties());
+    final Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "5000000000");
+    p.setProperty(CoreWorkload.INSERT_START_PROPERTY, "4000000000");
+    p.setProperty(CoreWorkload.INSERT_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "uniform");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    assertEquals(workload.keysequence.nextLong(), 4000000000L);
+    assertEquals(workload.transactioninsertkeysequence.nextLong(), 5000000000L);
+    for (int i = 0; i < 100; i++) {
+      final long keynum = workload.nextKeynum();
+      assertTrue(keynum >= 4000000000L && keynum < 4000001000L, "key " + keynum);
+    }
+    assertEquals(workload.buildKeyName(4000000000L), "user4000000000");
+  }
+
+  /** Fails every read with an exception. */
+  static class FailingDB extends AsyncDB {
+    @Override
+    public CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+        HashMap<String, ByteIterator> result) {
+      final CompletableFuture<Status> failed = new CompletableFuture<Status>();
+      failed.completeExceptionally(new IllegalStateException("read failed"));
+      return failed;
+    }
+
+    @Override
+    public CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount,
+        Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+
+    @Override
+    public CompletableFuture<Status> updateAsync(String table, String key, HashMap<String, ByteIterator> values) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+
+    @Override
+    public CompletableFuture<Status> insertAsync(String table, String key, HashMap<String, ByteIterator> values) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+
+    @Override
+    public CompletableFuture<Status> deleteAsync(String table, String key) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+  }
+
+  @Test
+  public void asyncTransactionPassesTheFailureOn() throws WorkloadException {
+    Measurements.setProperties(new Properties());
+    final Properties p = new Properties();
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    final CompletableFuture<Boolean> op = workload.doTransactionAsync(new FailingDB(), null);
+    assertTrue(op.isCompletedExceptionally(), "the failure is not swallowed");
+  }
+}
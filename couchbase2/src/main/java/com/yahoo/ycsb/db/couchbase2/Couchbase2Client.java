@@ -52,8 +52,10 @@ import com.couchbase.client.java.error.TemporaryFailureException;
 import com.couchbase.client.java.query.*;
 import com.couchbase.client.java.transcoder.JacksonTransformers;
 import com.couchbase.client.java.util.Blocking;
+import com.couchbase.client.java.util.retry.RetryBuilder;
+import com.couchbase.client.core.time.Delay;
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteIterator;
-import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
@@ -66,6 +68,7 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
@@ -94,8 +97,11 @@ import java.util.concurrent.locks.LockSupport;
  * <li><b>couchbase.networkMetricsInterval=0</b> The interval in seconds when latency metrics will be logged.</li>
  * <li><b>couchbase.runtimeMetricsInterval=0</b> The interval in seconds when runtime metrics will be logged.</li>
  * </ul>
+ *
+ * <p> With "-p maxinflight=N" Key/Value operations are issued without blocking on the responses. N1QL
+ * operations, including all scans, still block the client thread.
  */
-public class Couchbase2Client extends DB {
+public class Couchbase2Client extends AsyncDB {
 
   static {
     // No need to send the full encoded_plan for this benchmark workload, less network overhead!
@@ -577,6 +583,72 @@ public class Couchbase2Client extends DB {
     return Status.OK;
   }
 
+  @Override
+  public CompletableFuture<Status> readAsync(final String table, final String key, final Set<String> fields,
+      final HashMap<String, ByteIterator> result) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(read(table, key, fields, result));
+    }
+    return toFuture(bucket.async().get(formatId(table, key), RawJsonDocument.class), new Action1<Document<?>>() {
+      @Override
+      public void call(Document<?> document) {
+        decode(((RawJsonDocument) document).content(), fields, result);
+      }
+    });
+  }
+
+  /**
+   * Scans always go through N1QL and block, see {@link #scan(String, String, int, Set, Vector)}.
+   */
+  @Override
+  public CompletableFuture<Status> scanAsync(final String table, final String startkey, final int recordcount,
+      final Set<String> fields, final Vector<HashMap<String, ByteIterator>> result) {
+    return CompletableFuture.completedFuture(scan(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> updateAsync(final String table, final String key,
+      final HashMap<String, ByteIterator> values) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(update(table, key, values));
+    }
+    RawJsonDocument document = RawJsonDocument.create(formatId(table, key), encode(values));
+    if (upsert) {
+      return mutationToFuture(bucket.async().upsert(document, persistTo, replicateTo));
+    }
+    return mutationToFuture(bucket.async().replace(document, persistTo, replicateTo));
+  }
+
+  /**
+   * Like {@link #insertKv(String, HashMap)}, TMPFAILs are retried for roughly a minute, without blocking.
+   */
+  @Override
+  public CompletableFuture<Status> insertAsync(final String table, final String key,
+      final HashMap<String, ByteIterator> values) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(insert(table, key, values));
+    }
+    final RawJsonDocument document = RawJsonDocument.create(formatId(table, key), encode(values));
+    if (upsert) {
+      return mutationToFuture(bucket.async().upsert(document, persistTo, replicateTo));
+    }
+    return mutationToFuture(Observable
+        .defer(() -> bucket.async().insert(document, persistTo, replicateTo))
+        .retryWhen(RetryBuilder
+            .anyOf(TemporaryFailureException.class)
+            .delay(Delay.fixed(1, TimeUnit.SECONDS))
+            .max(60)
+            .build()));
+  }
+
+  @Override
+  public CompletableFuture<Status> deleteAsync(final String table, final String key) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(delete(table, key));
+    }
+    return mutationToFuture(bucket.async().remove(formatId(table, key), persistTo, replicateTo));
+  }
+
   @Override
   public Status scan(final String table, final String startkey, final int recordcount, final Set<String> fields,
       final Vector<HashMap<String, ByteIterator>> result) {
@@ -729,6 +801,55 @@ public class Couchbase2Client extends DB {
     }
   }
 
+  /**
+   * The non-blocking counterpart of {@link #waitForMutationResponse(Observable)}.
+   *
+   * @param input the async input observable.
+   * @return a future completing once the mutation is done, or right away if responses are not awaited.
+   */
+  private CompletableFuture<Status> mutationToFuture(final Observable<? extends Document<?>> input) {
+    if (!syncMutResponse) {
+      waitForMutationResponse(input);
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+    return toFuture(input, null);
+  }
+
+  /**
+   * Helper method to complete a future with the outcome of a Key/Value operation.
+   *
+   * @param input the async input observable, empty if the document was not found.
+   * @param onDocument called with the document, before the future completes, or null.
+   * @return a future completing with OK, NOT_FOUND or ERROR, at the latest after the KV timeout.
+   */
+  private CompletableFuture<Status> toFuture(final Observable<? extends Document<?>> input,
+      final Action1<Document<?>> onDocument) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    input.timeout(kvTimeout, TimeUnit.MILLISECONDS).subscribe(new Subscriber<Document<?>>() {
+      private boolean found = false;
+
+      @Override
+      public void onCompleted() {
+        future.complete(found ? Status.OK : Status.NOT_FOUND);
+      }
+
+      @Override
+      public void onError(Throwable e) {
+        e.printStackTrace();
+        future.complete(Status.ERROR);
+      }
+
+      @Override
+      public void onNext(Document<?> document) {
+        found = true;
+        if (onDocument != null) {
+          onDocument.call(document);
+        }
+      }
+    });
+    return future;
+  }
+
   /**
    * Helper method to turn the values into a String, used with {@link #upsertN1ql(String, HashMap)}.
    *